@@ -1,19 +1,133 @@
 package com.linkshortener.config;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.linkshortener.dto.LinkRedirect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+
+import java.time.Duration;
+import java.util.List;
 
 @Configuration
 @EnableCaching
 public class CacheConfig {
-    
+
+    public static final String LINKS_CACHE = "links";
+
+    // Part of the Redis keys: bump it whenever LinkRedirect changes shape, so that nodes
+    // never read entries written in another one
+    private static final String LINKS_CACHE_VERSION = "v2";
+
+    @Value("${app.cache.links.max-size:100000}")
+    private long linksMaxSize;
+
+    @Value("${app.cache.links.ttl:10m}")
+    private Duration linksTtl;
+
+    @Value("${app.cache.redis.enabled:false}")
+    private boolean redisEnabled;
+
+    @Value("${app.cache.redis.ttl:1h}")
+    private Duration redisTtl;
+
     @Bean
-    public CacheManager cacheManager() {
-        // Use simple in-memory cache instead of Redis for development
-        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager("links");
+    public CacheManager cacheManager(ObjectProvider<RedisConnectionFactory> redisConnectionFactory,
+                                     ObjectProvider<MeterRegistry> meterRegistry,
+                                     ObjectProvider<CacheInvalidationBroadcaster> broadcaster,
+                                     ObjectMapper objectMapper) {
+        // L1: bounded, expiring, in-process
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> linksL1 = Caffeine.newBuilder()
+                .maximumSize(linksMaxSize)
+                .expireAfterWrite(linksTtl)
+                .recordStats()
+                .build();
+        Cache local = new CaffeineCache(LINKS_CACHE, linksL1, false);
+
+        // L2: shared Redis, only when enabled for this environment
+        Cache remote = null;
+        RedisConnectionFactory connectionFactory = redisConnectionFactory.getIfAvailable();
+        if (redisEnabled && connectionFactory != null) {
+            RedisCacheConfiguration redisConfig = RedisCacheConfiguration.defaultCacheConfig()
+                    .entryTtl(redisTtl)
+                    .disableCachingNullValues()
+                    .computePrefixWith(cacheName -> cacheName + ":" + LINKS_CACHE_VERSION + "::")
+                    .serializeValuesWith(RedisSerializationContext.SerializationPair
+                            .fromSerializer(linkRedirectSerializer(objectMapper)));
+            RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
+                    .cacheDefaults(redisConfig)
+                    .build();
+            remote = redisCacheManager.getCache(LINKS_CACHE);
+        }
+
+        // Links may expire while cached: checked on every hit
+        TwoLevelCache linksCache = new TwoLevelCache(LINKS_CACHE, local, remote,
+                remote != null ? broadcaster.getIfAvailable() : null,
+                value -> value instanceof LinkRedirect redirect && !redirect.isAvailable());
+        meterRegistry.ifAvailable(registry -> bindMetrics(registry, linksL1, linksCache));
+
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(List.of(linksCache));
         return cacheManager;
     }
+
+    // With Redis, evictions reach the L1 of every node instead of waiting for its TTL
+    @Bean
+    @ConditionalOnProperty(value = "app.cache.redis.enabled", havingValue = "true")
+    public CacheInvalidationBroadcaster cacheInvalidationBroadcaster(RedisConnectionFactory connectionFactory) {
+        return new CacheInvalidationBroadcaster(new StringRedisTemplate(connectionFactory));
+    }
+
+    @Bean
+    @ConditionalOnProperty(value = "app.cache.redis.enabled", havingValue = "true")
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                            CacheInvalidationBroadcaster broadcaster) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(broadcaster, new ChannelTopic(CacheInvalidationBroadcaster.CHANNEL));
+        return container;
+    }
+
+    private Jackson2JsonRedisSerializer<LinkRedirect> linkRedirectSerializer(ObjectMapper objectMapper) {
+        ObjectMapper mapper = objectMapper.copy()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        return new Jackson2JsonRedisSerializer<>(mapper, LinkRedirect.class);
+    }
+
+    private void bindMetrics(MeterRegistry registry,
+                             com.github.benmanes.caffeine.cache.Cache<Object, Object> linksL1,
+                             TwoLevelCache linksCache) {
+        CaffeineCacheMetrics.monitor(registry, linksL1, LINKS_CACHE, "tier", "l1");
+        if (linksCache.hasRemote()) {
+            FunctionCounter.builder("cache.l2.gets", linksCache, TwoLevelCache::getRemoteHits)
+                    .tags("cache", LINKS_CACHE, "result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("cache.l2.gets", linksCache, TwoLevelCache::getRemoteMisses)
+                    .tags("cache", LINKS_CACHE, "result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("cache.l2.errors", linksCache, TwoLevelCache::getRemoteErrors)
+                    .tags("cache", LINKS_CACHE)
+                    .register(registry);
+        }
+    }
 }
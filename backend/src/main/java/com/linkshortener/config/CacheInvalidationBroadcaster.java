@@ -0,0 +1,74 @@
+package com.linkshortener.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fans L1 evictions out to every node over Redis pub/sub. Evicting a key from Redis
+ * alone leaves the other nodes serving their in-process copy until it expires; each
+ * eviction is therefore published, and every other node drops the key from its L1.
+ *
+ * <p>Pub/sub is fire-and-forget: a node disconnected from Redis misses the messages sent
+ * meanwhile, so the L1 TTL still bounds how stale an entry can get.
+ */
+public class CacheInvalidationBroadcaster implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationBroadcaster.class);
+
+    public static final String CHANNEL = "linkshortener:cache-invalidations";
+
+    // Stands for the whole cache; never a key, keys are link codes
+    private static final String ALL_KEYS = "*";
+
+    private final StringRedisTemplate redisTemplate;
+    // Our own messages come back to us and are skipped
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    public CacheInvalidationBroadcaster(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    public void register(TwoLevelCache cache) {
+        caches.put(cache.getName(), cache);
+    }
+
+    public void evicted(String cacheName, Object key) {
+        publish(cacheName, String.valueOf(key));
+    }
+
+    public void cleared(String cacheName) {
+        publish(cacheName, ALL_KEYS);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        // <node id>|<cache name>|<key>
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length != 3 || parts[0].equals(nodeId)) {
+            return;
+        }
+        TwoLevelCache cache = caches.get(parts[1]);
+        if (cache == null) {
+            return;
+        }
+        if (ALL_KEYS.equals(parts[2])) {
+            cache.getLocal().clear();
+        } else {
+            cache.getLocal().evict(parts[2]);
+        }
+        logger.debug("Evicted {}::{} from L1 on behalf of another node", parts[1], parts[2]);
+    }
+
+    private void publish(String cacheName, String key) {
+        redisTemplate.convertAndSend(CHANNEL, nodeId + "|" + cacheName + "|" + key);
+    }
+}
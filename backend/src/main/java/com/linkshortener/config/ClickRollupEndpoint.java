@@ -0,0 +1,33 @@
+package com.linkshortener.config;
+
+import com.linkshortener.service.ClickRollupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint to rebuild click_rollups from the clicks table
+ * ({@code POST /actuator/clickrollups}). Not exposed unless listed in
+ * {@code management.endpoints.web.exposure.include}.
+ */
+@Component
+@Endpoint(id = "clickrollups")
+public class ClickRollupEndpoint {
+
+    @Autowired
+    private ClickRollupService clickRollupService;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        return Map.of("rebuilding", clickRollupService.isRebuilding());
+    }
+
+    @WriteOperation
+    public Map<String, Object> rebuild() {
+        return Map.of("started", clickRollupService.startRebuild());
+    }
+}
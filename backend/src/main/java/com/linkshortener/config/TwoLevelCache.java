@@ -0,0 +1,195 @@
+package com.linkshortener.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.concurrent.Callable;
+import java.util.function.Predicate;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache made of a bounded in-process L1 in front of an optional shared L2 (Redis).
+ * Reads go L1 -> L2 -> loader and L2 hits are copied back into L1. Writes and
+ * evictions are applied to both tiers, and evictions are broadcast to the L1 of the
+ * other nodes. L2 failures are logged and treated as misses so that an unavailable
+ * Redis never breaks a redirect. Entries that went stale since they were cached, such as
+ * expired links, are checked on every hit and evicted as misses.
+ */
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TwoLevelCache.class);
+
+    private final String name;
+    private final Cache local;
+    private final Cache remote;
+    private final CacheInvalidationBroadcaster broadcaster;
+    private final Predicate<Object> stale;
+
+    private final LongAdder remoteHits = new LongAdder();
+    private final LongAdder remoteMisses = new LongAdder();
+    private final LongAdder remoteErrors = new LongAdder();
+
+    public TwoLevelCache(String name, Cache local, Cache remote) {
+        this(name, local, remote, null, value -> false);
+    }
+
+    public TwoLevelCache(String name, Cache local, Cache remote, CacheInvalidationBroadcaster broadcaster,
+                         Predicate<Object> stale) {
+        // null values are never stored: a miss must stay a miss in both tiers
+        super(false);
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.broadcaster = broadcaster;
+        this.stale = stale;
+        if (broadcaster != null) {
+            broadcaster.register(this);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        ValueWrapper localValue = local.get(key);
+        if (localValue != null) {
+            if (stale.test(localValue.get())) {
+                evictStale(key);
+                return null;
+            }
+            return localValue.get();
+        }
+        if (remote == null) {
+            return null;
+        }
+
+        try {
+            ValueWrapper remoteValue = remote.get(key);
+            if (remoteValue != null && remoteValue.get() != null) {
+                if (stale.test(remoteValue.get())) {
+                    evictStale(key);
+                    return null;
+                }
+                remoteHits.increment();
+                local.put(key, remoteValue.get());
+                return remoteValue.get();
+            }
+            remoteMisses.increment();
+        } catch (RuntimeException e) {
+            remoteErrors.increment();
+            logger.warn("L2 cache read failed for {}::{}: {}", name, key, e.getMessage());
+        }
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object cached = lookup(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        if (value != null) {
+            put(key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            return;
+        }
+        local.put(key, value);
+        if (remote != null) {
+            try {
+                remote.put(key, value);
+            } catch (RuntimeException e) {
+                remoteErrors.increment();
+                logger.warn("L2 cache write failed for {}::{}: {}", name, key, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        local.evict(key);
+        if (remote != null) {
+            try {
+                remote.evict(key);
+            } catch (RuntimeException e) {
+                remoteErrors.increment();
+                logger.warn("L2 cache evict failed for {}::{}: {}", name, key, e.getMessage());
+            }
+        }
+        if (broadcaster != null) {
+            try {
+                broadcaster.evicted(name, key);
+            } catch (RuntimeException e) {
+                remoteErrors.increment();
+                logger.warn("L1 eviction broadcast failed for {}::{}: {}", name, key, e.getMessage());
+            }
+        }
+    }
+
+    // Every node finds the entry stale by itself: no broadcast
+    private void evictStale(Object key) {
+        local.evict(key);
+        if (remote != null) {
+            try {
+                remote.evict(key);
+            } catch (RuntimeException e) {
+                remoteErrors.increment();
+                logger.warn("L2 cache evict failed for {}::{}: {}", name, key, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        local.clear();
+        if (remote != null) {
+            try {
+                remote.clear();
+            } catch (RuntimeException e) {
+                remoteErrors.increment();
+                logger.warn("L2 cache clear failed for {}: {}", name, e.getMessage());
+            }
+        }
+        if (broadcaster != null) {
+            try {
+                broadcaster.cleared(name);
+            } catch (RuntimeException e) {
+                remoteErrors.increment();
+                logger.warn("L1 clear broadcast failed for {}: {}", name, e.getMessage());
+            }
+        }
+    }
+
+    public Cache getLocal() { return local; }
+
+    public boolean hasRemote() { return remote != null; }
+
+    public long getRemoteHits() { return remoteHits.sum(); }
+
+    public long getRemoteMisses() { return remoteMisses.sum(); }
+
+    public long getRemoteErrors() { return remoteErrors.sum(); }
+}
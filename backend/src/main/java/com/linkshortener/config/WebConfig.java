@@ -0,0 +1,20 @@
+package com.linkshortener.config;
+
+import com.linkshortener.controller.RedirectFastPathFilter;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+public class WebConfig {
+    
+    @Bean
+    public FilterRegistrationBean<RedirectFastPathFilter> redirectFastPathRegistration(RedirectFastPathFilter filter) {
+        FilterRegistrationBean<RedirectFastPathFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/*");
+        // After character encoding and request observation, ahead of the security filter chain (-100)
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
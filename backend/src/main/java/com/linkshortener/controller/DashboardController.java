@@ -1,17 +1,18 @@
 package com.linkshortener.controller;
 
-import com.linkshortener.entity.Link;
-import com.linkshortener.repository.ClickRepository;
-import com.linkshortener.repository.LinkRepository;
+import com.linkshortener.dto.DashboardStats;
 import com.linkshortener.service.AnalyticsService;
+import com.linkshortener.service.ClickStreamService;
+import com.linkshortener.service.CurrentUserService;
+import com.linkshortener.service.DashboardSnapshotService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
-
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.*;
-import java.util.stream.Collectors;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/dashboard")
@@ -22,64 +23,41 @@ public class DashboardController {
     private AnalyticsService analyticsService;
     
     @Autowired
-    private LinkRepository linkRepository;
+    private DashboardSnapshotService dashboardSnapshotService;
+    
+    @Autowired
+    private ClickStreamService clickStreamService;
     
     @Autowired
-    private ClickRepository clickRepository;
+    private CurrentUserService currentUserService;
     
+    /**
+     * Stats of all links from the snapshot kept by DashboardSnapshotService: no query runs here.
+     */
     @GetMapping("/stats")
-    public ResponseEntity<Map<String, Object>> getDashboardStats() {
+    public ResponseEntity<DashboardStats> getDashboardStats() {
+        return ResponseEntity.ok(dashboardSnapshotService.getSnapshot());
+    }
+    
+    /**
+     * Live clicks of all links, as shown by the dashboard, as Server-Sent Events. Public like
+     * the dashboard, so each user, or each IP address when anonymous, holds a few streams.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamClicks(
+            HttpServletRequest request,
+            Authentication authentication) {
+        
+        Long userId = currentUserService.getUserId(authentication);
+        String client = userId != null
+                ? ClickStreamService.userClient(userId)
+                : ClickStreamService.ipClient(request.getRemoteAddr());
         try {
-            // Version simplifiée pour le développement
-            Map<String, Object> stats = new HashMap<>();
-            
-            // Statistiques de base
-            stats.put("totalLinks", linkRepository.count());
-            stats.put("totalClicks", clickRepository.count());
-            stats.put("clicksToday", 0L);
-            stats.put("uniqueVisitors", 0L);
-            
-            // Données de test pour les graphiques
-            List<Map<String, Object>> dailyClicks = new ArrayList<>();
-            for (int i = 6; i >= 0; i--) {
-                Map<String, Object> dayData = new HashMap<>();
-                dayData.put("date", LocalDateTime.now().minusDays(i).format(DateTimeFormatter.ofPattern("yyyy-MM-dd")));
-                dayData.put("clicks", (int)(Math.random() * 50));
-                dailyClicks.add(dayData);
-            }
-            stats.put("dailyClicks", dailyClicks);
-            
-            // Données horaires
-            List<Map<String, Object>> hourlyClicks = new ArrayList<>();
-            for (int i = 0; i < 24; i++) {
-                Map<String, Object> hourData = new HashMap<>();
-                hourData.put("hour", i + "h");
-                hourData.put("clicks", (int)(Math.random() * 20));
-                hourlyClicks.add(hourData);
-            }
-            stats.put("hourlyClicks", hourlyClicks);
-            
-            // Top liens (les liens existants)
-            List<Link> allLinks = linkRepository.findAll();
-            stats.put("topLinks", allLinks.stream().limit(5).collect(Collectors.toList()));
-            
-            return ResponseEntity.ok(stats);
-        } catch (Exception e) {
-            // Log de l'erreur pour debug
-            System.err.println("Erreur dashboard: " + e.getMessage());
-            e.printStackTrace();
-            
-            // Stats par défaut en cas d'erreur
-            Map<String, Object> defaultStats = new HashMap<>();
-            defaultStats.put("totalLinks", 0L);
-            defaultStats.put("totalClicks", 0L);
-            defaultStats.put("clicksToday", 0L);
-            defaultStats.put("uniqueVisitors", 0L);
-            defaultStats.put("dailyClicks", new ArrayList<>());
-            defaultStats.put("hourlyClicks", new ArrayList<>());
-            defaultStats.put("topLinks", new ArrayList<>());
-            
-            return ResponseEntity.ok(defaultStats);
+            return ResponseEntity.ok(clickStreamService.subscribe(ClickStreamService.Scope.all(), client));
+        } catch (ClickStreamService.TooManyStreamsException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         }
     }
 }
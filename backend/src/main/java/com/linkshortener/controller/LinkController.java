@@ -3,7 +3,12 @@ package com.linkshortener.controller;
 import com.linkshortener.dto.CreateLinkRequest;
 import com.linkshortener.dto.LinkAnalyticsResponse;
 import com.linkshortener.dto.LinkResponse;
+import com.linkshortener.dto.RecentClickStats;
+import com.linkshortener.entity.User;
 import com.linkshortener.service.AnalyticsService;
+import com.linkshortener.service.BulkLinkService;
+import com.linkshortener.service.ClickStreamService;
+import com.linkshortener.service.CurrentUserService;
 import com.linkshortener.service.LinkService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -11,10 +16,14 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import java.util.List;
 import java.util.Optional;
@@ -24,12 +33,23 @@ import java.util.Optional;
 @CrossOrigin(origins = "${cors.allowed-origins}")
 public class LinkController {
     
+    private static final String BULK_MEDIA_TYPE = "application/x-ndjson";
+    
     @Autowired
     private LinkService linkService;
     
     @Autowired
     private AnalyticsService analyticsService;
     
+    @Autowired
+    private BulkLinkService bulkLinkService;
+    
+    @Autowired
+    private ClickStreamService clickStreamService;
+    
+    @Autowired
+    private CurrentUserService currentUserService;
+    
     @PostMapping
     public ResponseEntity<LinkResponse> createLink(
             @Valid @RequestBody CreateLinkRequest request,
@@ -37,9 +57,10 @@ public class LinkController {
         
         try {
             LinkResponse response;
-            if (authentication != null && authentication.isAuthenticated()) {
+            User user = currentUserService.getUser(authentication);
+            if (user != null) {
                 // Authenticated user
-                response = linkService.createLink(request, getUserFromAuthentication(authentication));
+                response = linkService.createLink(request, user);
             } else {
                 // Anonymous user
                 response = linkService.createAnonymousLink(request);
@@ -62,9 +83,9 @@ public class LinkController {
                 Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
         Pageable pageable = PageRequest.of(page, size, sort);
         
-        if (authentication != null && authentication.isAuthenticated()) {
+        Long userId = currentUserService.getUserId(authentication);
+        if (userId != null) {
             // Authenticated user - get their links
-            Long userId = getUserIdFromAuthentication(authentication);
             Page<LinkResponse> links = linkService.getUserLinks(userId, pageable);
             return ResponseEntity.ok(links);
         } else {
@@ -79,11 +100,11 @@ public class LinkController {
             @PathVariable Long id,
             Authentication authentication) {
         
-        if (authentication == null || !authentication.isAuthenticated()) {
+        Long userId = currentUserService.getUserId(authentication);
+        if (userId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
         
-        Long userId = getUserIdFromAuthentication(authentication);
         Optional<LinkResponse> link = linkService.getLinkById(id, userId);
         
         return link.map(ResponseEntity::ok)
@@ -96,12 +117,12 @@ public class LinkController {
             @Valid @RequestBody CreateLinkRequest request,
             Authentication authentication) {
         
-        if (authentication == null || !authentication.isAuthenticated()) {
+        Long userId = currentUserService.getUserId(authentication);
+        if (userId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
         
         try {
-            Long userId = getUserIdFromAuthentication(authentication);
             LinkResponse response = linkService.updateLink(id, request, userId);
             return ResponseEntity.ok(response);
         } catch (IllegalArgumentException e) {
@@ -114,12 +135,12 @@ public class LinkController {
             @PathVariable Long id,
             Authentication authentication) {
         
-        if (authentication == null || !authentication.isAuthenticated()) {
+        Long userId = currentUserService.getUserId(authentication);
+        if (userId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
         
         try {
-            Long userId = getUserIdFromAuthentication(authentication);
             linkService.deleteLink(id, userId);
             return ResponseEntity.noContent().build();
         } catch (IllegalArgumentException e) {
@@ -132,12 +153,12 @@ public class LinkController {
             @PathVariable Long id,
             Authentication authentication) {
         
-        if (authentication == null || !authentication.isAuthenticated()) {
+        Long userId = currentUserService.getUserId(authentication);
+        if (userId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
         
         try {
-            Long userId = getUserIdFromAuthentication(authentication);
             linkService.toggleLinkStatus(id, userId);
             return ResponseEntity.ok().build();
         } catch (IllegalArgumentException e) {
@@ -150,11 +171,11 @@ public class LinkController {
             @RequestParam String q,
             Authentication authentication) {
         
-        if (authentication == null || !authentication.isAuthenticated()) {
+        Long userId = currentUserService.getUserId(authentication);
+        if (userId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
         
-        Long userId = getUserIdFromAuthentication(authentication);
         List<LinkResponse> links = linkService.searchUserLinks(userId, q);
         return ResponseEntity.ok(links);
     }
@@ -164,11 +185,11 @@ public class LinkController {
             @RequestParam(defaultValue = "5") int limit,
             Authentication authentication) {
         
-        if (authentication == null || !authentication.isAuthenticated()) {
+        Long userId = currentUserService.getUserId(authentication);
+        if (userId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
         
-        Long userId = getUserIdFromAuthentication(authentication);
         List<LinkResponse> links = linkService.getUserTopLinks(userId, limit);
         return ResponseEntity.ok(links);
     }
@@ -178,11 +199,11 @@ public class LinkController {
             @RequestParam(defaultValue = "7") int days,
             Authentication authentication) {
         
-        if (authentication == null || !authentication.isAuthenticated()) {
+        Long userId = currentUserService.getUserId(authentication);
+        if (userId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
         
-        Long userId = getUserIdFromAuthentication(authentication);
         List<LinkResponse> links = linkService.getUserRecentLinks(userId, days);
         return ResponseEntity.ok(links);
     }
@@ -193,12 +214,12 @@ public class LinkController {
             @RequestParam(defaultValue = "30") int days,
             Authentication authentication) {
         
-        if (authentication == null || !authentication.isAuthenticated()) {
+        Long userId = currentUserService.getUserId(authentication);
+        if (userId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
         
         try {
-            Long userId = getUserIdFromAuthentication(authentication);
             LinkAnalyticsResponse analytics = analyticsService.getLinkAnalytics(id, userId, days);
             return ResponseEntity.ok(analytics);
         } catch (IllegalArgumentException e) {
@@ -206,41 +227,85 @@ public class LinkController {
         }
     }
     
-    @GetMapping("/bulk")
-    public ResponseEntity<List<LinkResponse>> bulkCreateLinks(
-            @RequestBody List<CreateLinkRequest> requests,
+    @GetMapping("/{id}/analytics/recent")
+    public ResponseEntity<RecentClickStats> getRecentLinkAnalytics(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "60") int minutes,
             Authentication authentication) {
         
-        if (authentication == null || !authentication.isAuthenticated()) {
+        Long userId = currentUserService.getUserId(authentication);
+        if (userId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
         
         try {
-            List<LinkResponse> responses = requests.stream()
-                    .map(request -> {
-                        try {
-                            return linkService.createLink(request, getUserFromAuthentication(authentication));
-                        } catch (Exception e) {
-                            throw new RuntimeException("Failed to create link: " + e.getMessage());
-                        }
-                    })
-                    .toList();
-            
-            return ResponseEntity.status(HttpStatus.CREATED).body(responses);
-        } catch (Exception e) {
+            return ResponseEntity.ok(analyticsService.getRecentLinkAnalytics(id, userId, minutes));
+        } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         }
     }
     
-    private Long getUserIdFromAuthentication(Authentication authentication) {
-        // This will need to be implemented based on your authentication system
-        // For now, returning a placeholder
-        return 1L;
+    /**
+     * Live clicks of a link as Server-Sent Events: one "clicks" event per second with clicks.
+     */
+    @GetMapping(value = "/{id}/analytics/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamLinkClicks(
+            @PathVariable Long id,
+            Authentication authentication) {
+        
+        Long userId = currentUserService.getUserId(authentication);
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        
+        try {
+            return ResponseEntity.ok(clickStreamService.subscribeToLink(id, userId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (ClickStreamService.TooManyStreamsException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
     }
     
-    private com.linkshortener.entity.User getUserFromAuthentication(Authentication authentication) {
-        // This will need to be implemented based on your authentication system
-        // For now, returning null (will create anonymous links)
-        return null;
+    /**
+     * Live clicks of every link of the current user as Server-Sent Events.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamUserClicks(Authentication authentication) {
+        Long userId = currentUserService.getUserId(authentication);
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        
+        try {
+            return ResponseEntity.ok(clickStreamService.subscribe(ClickStreamService.Scope.user(userId),
+                    ClickStreamService.userClient(userId)));
+        } catch (ClickStreamService.TooManyStreamsException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+    
+    /**
+     * Creates links from an NDJSON body, one request per line, and streams back one NDJSON
+     * result per line as each chunk is committed. Invalid lines are reported, not fatal.
+     */
+    @PostMapping(value = "/bulk", consumes = BULK_MEDIA_TYPE, produces = BULK_MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> bulkCreateLinks(
+            HttpServletRequest request,
+            Authentication authentication) {
+        
+        User user = currentUserService.getUser(authentication);
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        
+        StreamingResponseBody body = out -> bulkLinkService.importLinks(request.getInputStream(), out, user);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(BULK_MEDIA_TYPE))
+                .body(body);
     }
 }
@@ -1,14 +1,26 @@
 package com.linkshortener.controller;
 
+import com.linkshortener.dto.QRCodeExportRequest;
 import com.linkshortener.entity.Link;
+import com.linkshortener.service.CurrentUserService;
 import com.linkshortener.service.LinkService;
+import com.linkshortener.service.QRCodeExportService;
+import com.linkshortener.service.QRCodeGenerationService;
+import com.linkshortener.service.QRCodeImageService;
 import com.linkshortener.service.QRCodeService;
+import com.linkshortener.util.ByteRangeResponses;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Optional;
 
@@ -20,67 +32,137 @@ public class QRCodeController {
     @Autowired
     private QRCodeService qrCodeService;
     
+    @Autowired
+    private QRCodeImageService qrCodeImageService;
+    
+    @Autowired
+    private QRCodeGenerationService qrCodeGenerationService;
+    
+    @Autowired
+    private QRCodeExportService qrCodeExportService;
+    
     @Autowired
     private LinkService linkService;
     
+    @Autowired
+    private CurrentUserService currentUserService;
+    
     @GetMapping("/{linkId}")
-    public ResponseEntity<byte[]> getQRCode(@PathVariable Long linkId) {
+    public ResponseEntity<?> getQRCode(
+            @PathVariable Long linkId,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "png") String format,
+            WebRequest webRequest,
+            HttpServletRequest request) {
+        return serveQRCode(linkId, size, format, false, webRequest, request);
+    }
+    
+    @GetMapping("/{linkId}/download")
+    public ResponseEntity<?> downloadQRCode(
+            @PathVariable Long linkId,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "png") String format,
+            WebRequest webRequest,
+            HttpServletRequest request) {
+        return serveQRCode(linkId, size, format, true, webRequest, request);
+    }
+    
+    /**
+     * Streams a ZIP of QR codes: the listed links, or else all the links in the caller's
+     * scope. The scope is the caller's own links, or every active link when anonymous, the
+     * same as the public listing; listed links outside it are reported as not found.
+     * Images are rendered in parallel and written as they complete.
+     */
+    @PostMapping(value = "/export", produces = "application/zip")
+    public ResponseEntity<StreamingResponseBody> exportQRCodes(
+            @RequestBody QRCodeExportRequest request,
+            Authentication authentication) {
+        
+        int imageSize = resolveSize(request.getSize());
+        QRCodeService.Format imageFormat = resolveFormat(request.getFormat() != null ? request.getFormat() : "png");
+        if (imageSize < 0 || imageFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (request.getLinkIds() != null && request.getLinkIds().size() > qrCodeExportService.getMaxLinks()) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        Long userId = currentUserService.getUserId(authentication);
+        // Anonymous: same scope as the public link listing
+        boolean activeOnly = userId == null || Boolean.TRUE.equals(request.getActiveOnly());
+        
+        StreamingResponseBody body = out -> qrCodeExportService.export(
+                request.getLinkIds(), userId, activeOnly, imageSize, imageFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("qr-codes.zip").build().toString())
+                .body(body);
+    }
+    
+    private ResponseEntity<?> serveQRCode(Long linkId, Integer size, String format, boolean attachment,
+                                          WebRequest webRequest, HttpServletRequest request) {
+        int imageSize = resolveSize(size);
+        QRCodeService.Format imageFormat = resolveFormat(format);
+        if (imageSize < 0 || imageFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        
         try {
             // Find the link by ID
             Optional<Link> linkOpt = linkService.findById(linkId);
             if (linkOpt.isEmpty()) {
                 return ResponseEntity.notFound().build();
             }
-            
             Link link = linkOpt.get();
-            if (link.getQrCodePath() == null) {
-                return ResponseEntity.notFound().build();
-            }
             
-            byte[] qrCodeData = qrCodeService.getQRCode(link.getQrCodePath());
-            if (qrCodeData == null) {
-                return ResponseEntity.notFound().build();
+            // The ETag is known before rendering, so a revalidation costs no image work
+            String etag = qrCodeImageService.etag(link, imageSize, imageFormat);
+            if (webRequest.checkNotModified(etag)) {
+                return null;
             }
             
             HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.IMAGE_PNG);
-            headers.setContentLength(qrCodeData.length);
+            // The image follows the link's short URL: let clients keep it but revalidate
+            headers.setCacheControl(CacheControl.noCache().cachePublic());
+            headers.setContentType(MediaType.parseMediaType(imageFormat.getContentType()));
+            if (attachment) {
+                headers.setContentDisposition(ContentDisposition.attachment()
+                        .filename("qr-code-" + linkId + "." + imageFormat.getExtension())
+                        .build());
+            }
             
-            return new ResponseEntity<>(qrCodeData, headers, HttpStatus.OK);
+            // The default PNG is persisted by the background job: serve the file from disk
+            if (imageFormat == QRCodeService.Format.PNG && imageSize == qrCodeService.getDefaultSize()) {
+                String shortUrl = linkService.buildShortUrl(link);
+                byte[] stored = qrCodeService.readStoredQRCode(link.getId(), link.getQrCodePath(), shortUrl);
+                if (stored != null) {
+                    return ByteRangeResponses.of(stored, headers, etag, request);
+                }
+                qrCodeGenerationService.schedule(link.getId(), shortUrl);
+            }
+            
+            QRCodeImageService.Image image = qrCodeImageService.getImage(link, imageSize, imageFormat);
+            return ByteRangeResponses.of(image.data(), headers, image.etag(), request);
             
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
     
-    @GetMapping("/{linkId}/download")
-    public ResponseEntity<byte[]> downloadQRCode(@PathVariable Long linkId) {
+    /**
+     * The requested image size, the default when absent, or -1 when out of range.
+     */
+    private int resolveSize(Integer size) {
+        int imageSize = size != null ? size : qrCodeService.getDefaultSize();
+        return imageSize < QRCodeService.MIN_SIZE || imageSize > QRCodeService.MAX_SIZE ? -1 : imageSize;
+    }
+    
+    private QRCodeService.Format resolveFormat(String format) {
         try {
-            // Find the link by ID
-            Optional<Link> linkOpt = linkService.findById(linkId);
-            if (linkOpt.isEmpty()) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            Link link = linkOpt.get();
-            if (link.getQrCodePath() == null) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            byte[] qrCodeData = qrCodeService.getQRCode(link.getQrCodePath());
-            if (qrCodeData == null) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.IMAGE_PNG);
-            headers.setContentLength(qrCodeData.length);
-            headers.setContentDispositionFormData("attachment", "qr-code-" + linkId + ".png");
-            
-            return new ResponseEntity<>(qrCodeData, headers, HttpStatus.OK);
-            
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            return QRCodeService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
         }
     }
 }
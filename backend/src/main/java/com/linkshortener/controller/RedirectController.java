@@ -1,7 +1,9 @@
 package com.linkshortener.controller;
 
+import com.linkshortener.dto.LinkRedirect;
 import com.linkshortener.entity.Link;
 import com.linkshortener.service.AnalyticsService;
+import com.linkshortener.service.LinkAccessGrantService;
 import com.linkshortener.service.LinkService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
@@ -23,46 +25,56 @@ public class RedirectController {
     @Autowired
     private AnalyticsService analyticsService;
     
+    @Autowired
+    private LinkAccessGrantService linkAccessGrantService;
+    
     @GetMapping("/{code}")
     public ResponseEntity<?> redirectToOriginalUrl(
             @PathVariable String code,
             @RequestParam(required = false) String password,
             HttpServletRequest request) {
         
-        Optional<Link> linkOpt = linkService.findByCode(code);
+        Optional<LinkRedirect> linkOpt = linkService.findByCode(code);
         
         if (linkOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body("Link not found or has expired");
         }
         
-        Link link = linkOpt.get();
+        LinkRedirect link = linkOpt.get();
+        
+        HttpHeaders headers = new HttpHeaders();
         
-        // Check if link requires password
-        if (link.getPasswordProtected()) {
+        // Check if link requires password: a valid grant skips the BCrypt check
+        if (link.requiresPassword() && !linkAccessGrantService.hasValidGrant(link, request)) {
             if (password == null || !linkService.verifyLinkPassword(link, password)) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                         .body("Password required or incorrect");
             }
+            String grant = linkAccessGrantService.issue(link);
+            headers.add(HttpHeaders.SET_COOKIE,
+                    linkAccessGrantService.grantCookie(link, grant, request.isSecure()).toString());
         }
         
         // Record the click for analytics
-        try {
-            analyticsService.recordClick(link, request);
-        } catch (Exception e) {
-            // Log error but don't fail the redirect
-            System.err.println("Failed to record click: " + e.getMessage());
+        if (link.tracksClicks()) {
+            try {
+                analyticsService.recordClick(link.id(), request);
+            } catch (Exception e) {
+                // Log error but don't fail the redirect
+                System.err.println("Failed to record click: " + e.getMessage());
+            }
         }
         
-        // Redirect to original URL
-        HttpHeaders headers = new HttpHeaders();
-        headers.add("Location", link.getOriginalUrl());
-        return new ResponseEntity<>(headers, HttpStatus.FOUND);
+        // Redirect to original URL with the link's status and caching policy
+        headers.add("Location", link.originalUrl());
+        headers.setCacheControl(link.cacheControl());
+        return new ResponseEntity<>(headers, HttpStatus.valueOf(link.statusCode()));
     }
     
     @GetMapping("/{code}/info")
     public ResponseEntity<?> getLinkInfo(@PathVariable String code) {
-        Optional<Link> linkOpt = linkService.findByCode(code);
+        Optional<Link> linkOpt = linkService.findLinkByCode(code);
         
         if (linkOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -84,23 +96,37 @@ public class RedirectController {
     @PostMapping("/{code}/verify-password")
     public ResponseEntity<?> verifyPassword(
             @PathVariable String code,
-            @RequestBody Map<String, String> request) {
+            @RequestBody Map<String, String> request,
+            HttpServletRequest httpRequest) {
         
-        Optional<Link> linkOpt = linkService.findByCode(code);
+        Optional<LinkRedirect> linkOpt = linkService.findByCode(code);
         
         if (linkOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body("Link not found or has expired");
         }
         
-        Link link = linkOpt.get();
+        LinkRedirect link = linkOpt.get();
         String password = request.get("password");
         
-        if (!link.getPasswordProtected()) {
+        if (!link.requiresPassword()) {
             return ResponseEntity.ok().body(Map.of("valid", true));
         }
         
         boolean isValid = linkService.verifyLinkPassword(link, password);
-        return ResponseEntity.ok().body(Map.of("valid", isValid));
+        if (!isValid) {
+            return ResponseEntity.ok().body(Map.of("valid", false));
+        }
+        
+        // Grant for the following redirects, as a cookie for browsers and ?grant= for API clients
+        String grant = linkAccessGrantService.issue(link);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.SET_COOKIE,
+                        linkAccessGrantService.grantCookie(link, grant, httpRequest.isSecure()).toString())
+                .body(Map.of(
+                        "valid", true,
+                        "grant", grant,
+                        "expiresIn", linkAccessGrantService.getTtl().toSeconds()
+                ));
     }
 }
@@ -0,0 +1,141 @@
+package com.linkshortener.controller;
+
+import com.linkshortener.dto.LinkRedirect;
+import com.linkshortener.service.AnalyticsService;
+import com.linkshortener.service.LinkAccessGrantService;
+import com.linkshortener.service.LinkService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves plain {@code GET /{code}} redirects before the security filter chain and
+ * DispatcherServlet, including password-protected links presented with a valid access
+ * grant. Anything it cannot answer on its own (protected links without a grant,
+ * {@code ?password=}, /info, /verify-password, other endpoints) falls through to the
+ * regular chain and {@link RedirectController}.
+ */
+@Component
+public class RedirectFastPathFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedirectFastPathFilter.class);
+
+    // Single-segment paths owned by other handlers
+    private static final Set<String> RESERVED_CODES = Set.of(
+            "api", "actuator", "error", "health", "test", "h2-console", "swagger-ui", "v3");
+
+    private static final int MAX_CODE_LENGTH = 64;
+
+    private static final String NOT_FOUND_BODY = "Link not found or has expired";
+
+    @Autowired
+    private LinkService linkService;
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private LinkAccessGrantService linkAccessGrantService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.redirect.fast-path.enabled:true}")
+    private boolean enabled;
+
+    private Timer redirectTimer;
+    private Timer notFoundTimer;
+
+    @PostConstruct
+    void registerMetrics() {
+        redirectTimer = meterRegistry.timer("redirect.fast.path", "outcome", "redirect");
+        notFoundTimer = meterRegistry.timer("redirect.fast.path", "outcome", "not_found");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !"GET".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String code = extractCode(request);
+        if (code == null || request.getParameter("password") != null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        Optional<LinkRedirect> linkOpt = linkService.findByCode(code);
+
+        if (linkOpt.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getWriter().write(NOT_FOUND_BODY);
+            notFoundTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return;
+        }
+
+        LinkRedirect link = linkOpt.get();
+        if (link.requiresPassword() && !linkAccessGrantService.hasValidGrant(link, request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        if (link.tracksClicks()) {
+            try {
+                analyticsService.recordClick(link.id(), request);
+            } catch (Exception e) {
+                // Log error but don't fail the redirect
+                logger.warn("Failed to record click: {}", e.getMessage());
+            }
+        }
+
+        response.setStatus(link.statusCode());
+        response.setHeader("Location", link.originalUrl());
+        response.setHeader("Cache-Control", link.cacheControl());
+        redirectTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the code of a {@code /{code}} request, or null for any other path.
+     * Codes are restricted to the alias alphabet: letters, digits, '_' and '-'.
+     */
+    static String extractCode(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        int start = request.getContextPath().length();
+        if (uri.length() <= start + 1 || uri.charAt(start) != '/') {
+            return null;
+        }
+        int length = uri.length() - start - 1;
+        if (length > MAX_CODE_LENGTH) {
+            return null;
+        }
+        for (int i = start + 1; i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            boolean allowed = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '_' || c == '-';
+            if (!allowed) {
+                return null;
+            }
+        }
+        String code = uri.substring(start + 1);
+        return RESERVED_CODES.contains(code) ? null : code;
+    }
+}
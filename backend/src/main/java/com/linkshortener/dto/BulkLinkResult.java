@@ -0,0 +1,29 @@
+package com.linkshortener.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One output line of a bulk import, for the input line with the same number.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BulkLinkResult(
+        int line,
+        String status,
+        Long id,
+        String shortCode,
+        String customAlias,
+        String shortUrl,
+        String error) {
+
+    public static final String CREATED = "created";
+
+    public static final String ERROR = "error";
+
+    public static BulkLinkResult created(int line, Long id, String shortCode, String customAlias, String shortUrl) {
+        return new BulkLinkResult(line, CREATED, id, shortCode, customAlias, shortUrl, null);
+    }
+
+    public static BulkLinkResult error(int line, String error) {
+        return new BulkLinkResult(line, ERROR, null, null, null, null, error);
+    }
+}
@@ -0,0 +1,22 @@
+package com.linkshortener.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Clicks written since the previous event of a live click stream, in total and per link.
+ * Counts are deltas: a client adds them to the totals it loaded when it subscribed.
+ */
+public record ClickStreamEvent(
+        LocalDateTime at,
+        long clicks,
+        long bots,
+        long mobile,
+        List<LinkDelta> links) {
+
+    /**
+     * Clicks of one link since the previous event.
+     */
+    public record LinkDelta(long linkId, long clicks, long bots, long mobile) {
+    }
+}
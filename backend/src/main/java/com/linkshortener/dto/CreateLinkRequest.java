@@ -1,5 +1,7 @@
 package com.linkshortener.dto;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
@@ -26,6 +28,15 @@ public class CreateLinkRequest {
     
     private String password;
     
+    // Redirect policy: 301, 302, 307 or 308 (default 302)
+    private Integer redirectStatus;
+    
+    @Min(value = 0, message = "Cache max-age cannot be negative")
+    @Max(value = 31536000, message = "Cache max-age must be at most one year")
+    private Integer cacheMaxAge;
+    
+    private Boolean trackClicks;
+    
     // Constructors
     public CreateLinkRequest() {}
     
@@ -51,4 +62,13 @@ public class CreateLinkRequest {
     
     public String getPassword() { return password; }
     public void setPassword(String password) { this.password = password; }
+    
+    public Integer getRedirectStatus() { return redirectStatus; }
+    public void setRedirectStatus(Integer redirectStatus) { this.redirectStatus = redirectStatus; }
+    
+    public Integer getCacheMaxAge() { return cacheMaxAge; }
+    public void setCacheMaxAge(Integer cacheMaxAge) { this.cacheMaxAge = cacheMaxAge; }
+    
+    public Boolean getTrackClicks() { return trackClicks; }
+    public void setTrackClicks(Boolean trackClicks) { this.trackClicks = trackClicks; }
 }
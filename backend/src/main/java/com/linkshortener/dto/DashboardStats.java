@@ -0,0 +1,36 @@
+package com.linkshortener.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Dashboard figures over all links, as of {@code generatedAt}. Computed in the background
+ * by DashboardSnapshotService; serving one is a field read.
+ */
+public record DashboardStats(
+        LocalDateTime generatedAt,
+        long totalLinks,
+        long totalClicks,
+        long clicksToday,
+        long uniqueVisitors,
+        List<DailyClicks> dailyClicks,
+        List<HourlyClicks> hourlyClicks,
+        List<TopLink> topLinks) {
+
+    public static DashboardStats empty() {
+        return new DashboardStats(null, 0, 0, 0, 0, List.of(), List.of(), List.of());
+    }
+
+    public record DailyClicks(String date, long clicks) {
+    }
+
+    /**
+     * Clicks of one hour of today; hour is a label such as "14h".
+     */
+    public record HourlyClicks(String hour, long clicks) {
+    }
+
+    public record TopLink(Long id, String shortCode, String originalUrl, String title, Long clickCount,
+                          LocalDateTime createdAt) {
+    }
+}
@@ -0,0 +1,107 @@
+package com.linkshortener.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Set;
+
+/**
+ * Immutable view of the columns needed to serve a redirect. Built directly by a
+ * JPQL constructor expression, so it never holds Hibernate proxies and can be
+ * cached in-process or serialized to Redis as-is.
+ *
+ * <p>The password hash is not kept: it would land in the shared cache. Only a stamp of
+ * it is, a digest that changes with the password and binds access grants to it; the
+ * hash itself is loaded when a password is checked.
+ */
+public record LinkRedirect(
+        Long id,
+        String originalUrl,
+        Boolean active,
+        LocalDateTime expiresAt,
+        Boolean passwordProtected,
+        String passwordStamp,
+        Integer redirectStatus,
+        Integer cacheMaxAge,
+        Boolean trackClicks) implements Serializable {
+
+    public static final int DEFAULT_REDIRECT_STATUS = 302;
+
+    public static final Set<Integer> REDIRECT_STATUSES = Set.of(301, 302, 307, 308);
+
+    private static final int STAMP_BYTES = 16;
+
+    /**
+     * From the link columns, with the password hash of protected links only (null otherwise);
+     * used by the JPQL constructor expression.
+     */
+    public LinkRedirect(Long id, String originalUrl, Boolean active, LocalDateTime expiresAt,
+                        Integer redirectStatus, Integer cacheMaxAge, Boolean trackClicks, String passwordHash) {
+        this(id, originalUrl, active, expiresAt, passwordHash != null, stampOf(passwordHash),
+                redirectStatus, cacheMaxAge, trackClicks);
+    }
+
+    // The hash carries its salt; without it the stamp cannot be used to test passwords
+    static String stampOf(String passwordHash) {
+        if (passwordHash == null) {
+            return null;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(passwordHash.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, STAMP_BYTES));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @JsonIgnore
+    public boolean isExpired() {
+        return expiresAt != null && LocalDateTime.now().isAfter(expiresAt);
+    }
+
+    @JsonIgnore
+    public boolean isAvailable() {
+        return Boolean.TRUE.equals(active) && !isExpired();
+    }
+
+    @JsonIgnore
+    public boolean requiresPassword() {
+        return Boolean.TRUE.equals(passwordProtected) && passwordStamp != null;
+    }
+
+    @JsonIgnore
+    public int statusCode() {
+        return redirectStatus != null && REDIRECT_STATUSES.contains(redirectStatus)
+                ? redirectStatus : DEFAULT_REDIRECT_STATUS;
+    }
+
+    @JsonIgnore
+    public boolean tracksClicks() {
+        return !Boolean.FALSE.equals(trackClicks);
+    }
+
+    /**
+     * Cache-Control for the redirect response. The max-age never outlives the link's
+     * expiry. Links that still count clicks are only cached by the browser, so each
+     * visitor reaches the origin at least once; untracked links may be cached at the edge.
+     * Password-protected links are never cached.
+     */
+    @JsonIgnore
+    public String cacheControl() {
+        long maxAge = cacheMaxAge != null ? cacheMaxAge : 0;
+        if (expiresAt != null) {
+            maxAge = Math.min(maxAge, Duration.between(LocalDateTime.now(), expiresAt).getSeconds());
+        }
+        if (maxAge <= 0 || requiresPassword()) {
+            return "no-store";
+        }
+        return (tracksClicks() ? "private" : "public") + ", max-age=" + maxAge;
+    }
+}
@@ -16,6 +16,9 @@ public class LinkResponse {
     private LocalDateTime expiresAt;
     private Boolean passwordProtected;
     private String qrCodeUrl;
+    private Integer redirectStatus;
+    private Integer cacheMaxAge;
+    private Boolean trackClicks;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     
@@ -66,6 +69,15 @@ public class LinkResponse {
     public String getQrCodeUrl() { return qrCodeUrl; }
     public void setQrCodeUrl(String qrCodeUrl) { this.qrCodeUrl = qrCodeUrl; }
     
+    public Integer getRedirectStatus() { return redirectStatus; }
+    public void setRedirectStatus(Integer redirectStatus) { this.redirectStatus = redirectStatus; }
+    
+    public Integer getCacheMaxAge() { return cacheMaxAge; }
+    public void setCacheMaxAge(Integer cacheMaxAge) { this.cacheMaxAge = cacheMaxAge; }
+    
+    public Boolean getTrackClicks() { return trackClicks; }
+    public void setTrackClicks(Boolean trackClicks) { this.trackClicks = trackClicks; }
+    
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     
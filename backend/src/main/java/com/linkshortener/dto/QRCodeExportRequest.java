@@ -0,0 +1,32 @@
+package com.linkshortener.dto;
+
+import java.util.List;
+
+public class QRCodeExportRequest {
+    
+    // Explicit links to export; when empty, the caller's links (or all public links) are exported
+    private List<Long> linkIds;
+    
+    private Boolean activeOnly;
+    
+    private Integer size;
+    
+    // png or svg
+    private String format;
+    
+    // Constructors
+    public QRCodeExportRequest() {}
+    
+    // Getters and Setters
+    public List<Long> getLinkIds() { return linkIds; }
+    public void setLinkIds(List<Long> linkIds) { this.linkIds = linkIds; }
+    
+    public Boolean getActiveOnly() { return activeOnly; }
+    public void setActiveOnly(Boolean activeOnly) { this.activeOnly = activeOnly; }
+    
+    public Integer getSize() { return size; }
+    public void setSize(Integer size) { this.size = size; }
+    
+    public String getFormat() { return format; }
+    public void setFormat(String format) { this.format = format; }
+}
@@ -0,0 +1,82 @@
+package com.linkshortener.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public class RecentClickStats {
+
+    private Long linkId;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    // "memory" when answered by the recent-click buffer, "database" otherwise
+    private String source;
+    private Long totalClicks;
+    private Long botClicks;
+    private Long mobileClicks;
+    private Integer bucketMinutes;
+    private List<TimelinePoint> timeline;
+    private Map<String, Long> clicksByCountry;
+    private Map<String, Long> clicksByBrowser;
+    private Map<String, Long> clicksByOS;
+    private Map<String, Long> clicksByDevice;
+
+    // Constructors
+    public RecentClickStats() {}
+
+    public static class TimelinePoint {
+        private LocalDateTime start;
+        private Long clicks;
+
+        public TimelinePoint() {}
+        public TimelinePoint(LocalDateTime start, Long clicks) {
+            this.start = start;
+            this.clicks = clicks;
+        }
+
+        public LocalDateTime getStart() { return start; }
+        public void setStart(LocalDateTime start) { this.start = start; }
+        public Long getClicks() { return clicks; }
+        public void setClicks(Long clicks) { this.clicks = clicks; }
+    }
+
+    // Getters and Setters
+    public Long getLinkId() { return linkId; }
+    public void setLinkId(Long linkId) { this.linkId = linkId; }
+
+    public LocalDateTime getFrom() { return from; }
+    public void setFrom(LocalDateTime from) { this.from = from; }
+
+    public LocalDateTime getTo() { return to; }
+    public void setTo(LocalDateTime to) { this.to = to; }
+
+    public String getSource() { return source; }
+    public void setSource(String source) { this.source = source; }
+
+    public Long getTotalClicks() { return totalClicks; }
+    public void setTotalClicks(Long totalClicks) { this.totalClicks = totalClicks; }
+
+    public Long getBotClicks() { return botClicks; }
+    public void setBotClicks(Long botClicks) { this.botClicks = botClicks; }
+
+    public Long getMobileClicks() { return mobileClicks; }
+    public void setMobileClicks(Long mobileClicks) { this.mobileClicks = mobileClicks; }
+
+    public Integer getBucketMinutes() { return bucketMinutes; }
+    public void setBucketMinutes(Integer bucketMinutes) { this.bucketMinutes = bucketMinutes; }
+
+    public List<TimelinePoint> getTimeline() { return timeline; }
+    public void setTimeline(List<TimelinePoint> timeline) { this.timeline = timeline; }
+
+    public Map<String, Long> getClicksByCountry() { return clicksByCountry; }
+    public void setClicksByCountry(Map<String, Long> clicksByCountry) { this.clicksByCountry = clicksByCountry; }
+
+    public Map<String, Long> getClicksByBrowser() { return clicksByBrowser; }
+    public void setClicksByBrowser(Map<String, Long> clicksByBrowser) { this.clicksByBrowser = clicksByBrowser; }
+
+    public Map<String, Long> getClicksByOS() { return clicksByOS; }
+    public void setClicksByOS(Map<String, Long> clicksByOS) { this.clicksByOS = clicksByOS; }
+
+    public Map<String, Long> getClicksByDevice() { return clicksByDevice; }
+    public void setClicksByDevice(Map<String, Long> clicksByDevice) { this.clicksByDevice = clicksByDevice; }
+}
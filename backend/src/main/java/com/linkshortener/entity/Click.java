@@ -8,7 +8,10 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "clicks")
+@Table(name = "clicks", indexes = {
+        @Index(name = "idx_clicks_link_clicked_at", columnList = "link_id, clicked_at"),
+        @Index(name = "idx_clicks_clicked_at", columnList = "clicked_at")
+})
 @EntityListeners(AuditingEntityListener.class)
 public class Click {
     
@@ -0,0 +1,97 @@
+package com.linkshortener.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Click count of one link, for one value of one dimension, over one hour or one day.
+ * Rows are written by the click ingestion workers and the rollup backfill through
+ * ClickRollupRepository; the entity only declares the table. Dimensions without a value
+ * (TOTAL) use an empty dimValue so the unique key applies to them too.
+ */
+@Entity
+@Table(name = "click_rollups", uniqueConstraints = @UniqueConstraint(name = "uk_click_rollups_key",
+        columnNames = {"link_id", "dimension", "grain", "bucket_start", "dim_value"}),
+        indexes = @Index(name = "idx_click_rollups_bucket", columnList = "dimension, grain, bucket_start"))
+public class ClickRollup {
+
+    public enum Grain {
+        HOUR,
+        DAY
+    }
+
+    public enum Dimension {
+        TOTAL,
+        COUNTRY,
+        CITY,
+        BROWSER,
+        OS,
+        DEVICE,
+        REFERRER,
+        BOT,
+        MOBILE
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // No foreign key, see LinkDeletionRepository
+    @Column(name = "link_id", nullable = false)
+    private Long linkId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Dimension dimension;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private Grain grain;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "dim_value", nullable = false)
+    private String dimValue;
+
+    // Display companion of the value: country name for COUNTRY, country code for CITY
+    private String label;
+
+    @Column(nullable = false)
+    private Long clicks;
+
+    @Column(name = "last_click_at", nullable = false)
+    private LocalDateTime lastClickAt;
+
+    // Constructors
+    public ClickRollup() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getLinkId() { return linkId; }
+    public void setLinkId(Long linkId) { this.linkId = linkId; }
+
+    public Dimension getDimension() { return dimension; }
+    public void setDimension(Dimension dimension) { this.dimension = dimension; }
+
+    public Grain getGrain() { return grain; }
+    public void setGrain(Grain grain) { this.grain = grain; }
+
+    public LocalDateTime getBucketStart() { return bucketStart; }
+    public void setBucketStart(LocalDateTime bucketStart) { this.bucketStart = bucketStart; }
+
+    public String getDimValue() { return dimValue; }
+    public void setDimValue(String dimValue) { this.dimValue = dimValue; }
+
+    public String getLabel() { return label; }
+    public void setLabel(String label) { this.label = label; }
+
+    public Long getClicks() { return clicks; }
+    public void setClicks(Long clicks) { this.clicks = clicks; }
+
+    public LocalDateTime getLastClickAt() { return lastClickAt; }
+    public void setLastClickAt(LocalDateTime lastClickAt) { this.lastClickAt = lastClickAt; }
+}
@@ -0,0 +1,53 @@
+package com.linkshortener.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+/**
+ * Space-Saving summary of the most clicked values of one dimension (referrer or city) of one
+ * link on one day. Read and written through ClickTopValuesRepository, like the rollups.
+ */
+@Entity
+@Table(name = "click_top_values", uniqueConstraints = @UniqueConstraint(name = "uk_click_top_values_key",
+        columnNames = {"link_id", "dimension", "click_date"}))
+public class ClickTopValues {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "link_id", nullable = false)
+    private Long linkId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ClickRollup.Dimension dimension;
+
+    @Column(name = "click_date", nullable = false)
+    private LocalDate clickDate;
+
+    // SpaceSaving.toBytes(): a few KB at the default capacity
+    @Lob
+    @Column(nullable = false, length = 65535)
+    private byte[] summary;
+
+    // Constructors
+    public ClickTopValues() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getLinkId() { return linkId; }
+    public void setLinkId(Long linkId) { this.linkId = linkId; }
+
+    public ClickRollup.Dimension getDimension() { return dimension; }
+    public void setDimension(ClickRollup.Dimension dimension) { this.dimension = dimension; }
+
+    public LocalDate getClickDate() { return clickDate; }
+    public void setClickDate(LocalDate clickDate) { this.clickDate = clickDate; }
+
+    public byte[] getSummary() { return summary; }
+    public void setSummary(byte[] summary) { this.summary = summary; }
+}
@@ -0,0 +1,47 @@
+package com.linkshortener.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+/**
+ * HyperLogLog sketch of the visitor IPs of one link on one day. Read and written through
+ * ClickSketchRepository, like the rollups.
+ */
+@Entity
+@Table(name = "click_unique_sketches", uniqueConstraints = @UniqueConstraint(name = "uk_click_unique_sketches_key",
+        columnNames = {"link_id", "click_date"}),
+        indexes = @Index(name = "idx_click_unique_sketches_date", columnList = "click_date"))
+public class ClickUniqueSketch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "link_id", nullable = false)
+    private Long linkId;
+
+    @Column(name = "click_date", nullable = false)
+    private LocalDate clickDate;
+
+    // HyperLogLog.toBytes(): at most a few KB
+    @Lob
+    @Column(nullable = false, length = 65535)
+    private byte[] sketch;
+
+    // Constructors
+    public ClickUniqueSketch() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getLinkId() { return linkId; }
+    public void setLinkId(Long linkId) { this.linkId = linkId; }
+
+    public LocalDate getClickDate() { return clickDate; }
+    public void setClickDate(LocalDate clickDate) { this.clickDate = clickDate; }
+
+    public byte[] getSketch() { return sketch; }
+    public void setSketch(byte[] sketch) { this.sketch = sketch; }
+}
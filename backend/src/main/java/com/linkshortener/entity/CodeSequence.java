@@ -0,0 +1,34 @@
+package com.linkshortener.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Named counter from which nodes lease blocks of ids for short code generation. Also
+ * holds the link id up to which the link code backfill has run.
+ */
+@Entity
+@Table(name = "code_sequences")
+public class CodeSequence {
+    
+    @Id
+    @Column(length = 50)
+    private String name;
+    
+    @Column(name = "next_value", nullable = false)
+    private Long nextValue;
+    
+    // Constructors
+    public CodeSequence() {}
+    
+    public CodeSequence(String name, Long nextValue) {
+        this.name = name;
+        this.nextValue = nextValue;
+    }
+    
+    // Getters and Setters
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    
+    public Long getNextValue() { return nextValue; }
+    public void setNextValue(Long nextValue) { this.nextValue = nextValue; }
+}
@@ -1,7 +1,7 @@
 package com.linkshortener.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
-import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
@@ -14,7 +14,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "links")
+@Table(name = "links", indexes = @Index(name = "idx_links_click_count", columnList = "click_count"))
 @EntityListeners(AuditingEntityListener.class)
 public class Link {
     
@@ -35,6 +35,8 @@ public class Link {
     private String customAlias;
     
     private String title;
+    
+    @Column(length = 500)
     private String description;
     
     @Column(name = "click_count")
@@ -55,13 +57,25 @@ public class Link {
     @Column(name = "qr_code_path")
     private String qrCodePath;
     
+    // Redirect policy; null means the defaults (302, not cacheable, clicks tracked)
+    @Column(name = "redirect_status")
+    private Integer redirectStatus;
+    
+    @Column(name = "cache_max_age")
+    private Integer cacheMaxAge;
+    
+    @Column(name = "track_clicks")
+    private Boolean trackClicks;
+    
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     @JsonIgnoreProperties("links")
     private User user;
     
-    @OneToMany(mappedBy = "link", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
-    @JsonManagedReference
+    // Never cascaded nor serialized: either would load every click of the link.
+    // LinkService deletes them with a bulk statement.
+    @OneToMany(mappedBy = "link", fetch = FetchType.LAZY)
+    @JsonIgnore
     private List<Click> clicks = new ArrayList<>();
     
     @CreatedDate
@@ -123,6 +137,15 @@ public class Link {
     public String getQrCodePath() { return qrCodePath; }
     public void setQrCodePath(String qrCodePath) { this.qrCodePath = qrCodePath; }
     
+    public Integer getRedirectStatus() { return redirectStatus; }
+    public void setRedirectStatus(Integer redirectStatus) { this.redirectStatus = redirectStatus; }
+    
+    public Integer getCacheMaxAge() { return cacheMaxAge; }
+    public void setCacheMaxAge(Integer cacheMaxAge) { this.cacheMaxAge = cacheMaxAge; }
+    
+    public Boolean getTrackClicks() { return trackClicks; }
+    public void setTrackClicks(Boolean trackClicks) { this.trackClicks = trackClicks; }
+    
     public User getUser() { return user; }
     public void setUser(User user) { this.user = user; }
     
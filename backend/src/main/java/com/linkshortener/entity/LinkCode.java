@@ -0,0 +1,58 @@
+package com.linkshortener.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry of the shared code namespace: every generated short code and every custom
+ * alias owns exactly one row, keyed by the code itself. The primary key is what makes
+ * a code unique across both kinds, and what a redirect looks up.
+ */
+@Entity
+@Table(name = "link_codes", indexes = @Index(name = "idx_link_codes_link_id", columnList = "link_id"))
+public class LinkCode {
+    
+    public enum Kind {
+        SHORT_CODE,
+        ALIAS
+    }
+    
+    @Id
+    @Column(length = 32)
+    private String code;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "link_id", nullable = false)
+    private Link link;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Kind kind;
+    
+    @Column(name = "reserved_at", nullable = false)
+    private LocalDateTime reservedAt;
+    
+    // Constructors
+    public LinkCode() {}
+    
+    public LinkCode(String code, Link link, Kind kind) {
+        this.code = code;
+        this.link = link;
+        this.kind = kind;
+        this.reservedAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public String getCode() { return code; }
+    public void setCode(String code) { this.code = code; }
+    
+    public Link getLink() { return link; }
+    public void setLink(Link link) { this.link = link; }
+    
+    public Kind getKind() { return kind; }
+    public void setKind(Kind kind) { this.kind = kind; }
+    
+    public LocalDateTime getReservedAt() { return reservedAt; }
+    public void setReservedAt(LocalDateTime reservedAt) { this.reservedAt = reservedAt; }
+}
@@ -0,0 +1,132 @@
+package com.linkshortener.repository;
+
+import com.linkshortener.entity.ClickRollup;
+import com.linkshortener.util.ReferrerNormalizer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Click statistics computed with GROUP BY queries over the clicks table. Slower than the
+ * rollups for busy links, but always complete: analytics uses it while the rollups are
+ * being rebuilt, or when configured to bypass them. Only grouped rows leave the database.
+ */
+@Repository
+public class ClickAggregateRepository implements ClickStatsRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.analytics.referrers.granularity:host}")
+    private String referrerGranularity;
+
+    @Override
+    public Totals totals(long linkId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*), MAX(clicked_at) FROM clicks WHERE link_id = ?",
+                (rs, rowNum) -> {
+                    Timestamp last = rs.getTimestamp(2);
+                    return new Totals(rs.getLong(1), last != null ? last.toLocalDateTime() : null);
+                },
+                linkId);
+    }
+
+    public long countUniqueIps(long linkId) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT ip_address) FROM clicks WHERE link_id = ?", Long.class, linkId);
+        return count != null ? count : 0L;
+    }
+
+    @Override
+    public List<DayCount> daily(long linkId, LocalDateTime since) {
+        return jdbcTemplate.query(
+                "SELECT CAST(clicked_at AS DATE), COUNT(*) FROM clicks WHERE link_id = ? AND clicked_at >= ? "
+                + "GROUP BY CAST(clicked_at AS DATE) ORDER BY CAST(clicked_at AS DATE)",
+                (rs, rowNum) -> new DayCount(rs.getDate(1).toLocalDate().toString(), rs.getLong(2)),
+                linkId, Timestamp.valueOf(since.truncatedTo(ChronoUnit.DAYS)));
+    }
+
+    @Override
+    public long[] clicksByHourOfDay(long linkId, LocalDateTime since) {
+        long[] hours = new long[24];
+        jdbcTemplate.query(
+                "SELECT HOUR(clicked_at), COUNT(*) FROM clicks WHERE link_id = ? AND clicked_at >= ? "
+                + "GROUP BY HOUR(clicked_at)",
+                rs -> {
+                    hours[rs.getInt(1)] += rs.getLong(2);
+                },
+                linkId, hourStart(since));
+        return hours;
+    }
+
+    @Override
+    public List<ValueCount> sumByValue(long linkId, ClickRollup.Dimension dimension, LocalDateTime since, int limit) {
+        if (dimension == ClickRollup.Dimension.REFERRER) {
+            return sumByReferrer(linkId, since, limit);
+        }
+        String value = valueExpression(dimension);
+        String label = switch (dimension) {
+            case COUNTRY -> "MAX(country_name)";
+            case CITY -> "MAX(country_code)";
+            default -> "NULL";
+        };
+        String sql = "SELECT " + value + ", " + label + ", COUNT(*) FROM clicks "
+                + "WHERE link_id = ? AND clicked_at >= ? AND " + value + " IS NOT NULL "
+                + "GROUP BY " + value + " ORDER BY COUNT(*) DESC, " + value
+                + (limit > 0 ? " LIMIT " + limit : "");
+        return jdbcTemplate.query(sql,
+                (rs, rowNum) -> new ValueCount(rs.getString(1), rs.getString(2), rs.getLong(3)),
+                linkId, hourStart(since));
+    }
+
+    // Raw referers are grouped by the database, then normalized like ingestion does and regrouped
+    private List<ValueCount> sumByReferrer(long linkId, LocalDateTime since, int limit) {
+        ReferrerNormalizer.Granularity granularity =
+                ReferrerNormalizer.Granularity.valueOf(referrerGranularity.toUpperCase(Locale.ROOT));
+        Map<String, Long> clicks = new HashMap<>();
+        jdbcTemplate.query("SELECT referer, COUNT(*) FROM clicks WHERE link_id = ? AND clicked_at >= ? "
+                + "AND referer IS NOT NULL GROUP BY referer",
+                rs -> {
+                    String referrer = ReferrerNormalizer.normalize(rs.getString(1), granularity);
+                    if (referrer != null) {
+                        clicks.merge(referrer, rs.getLong(2), Long::sum);
+                    }
+                },
+                linkId, hourStart(since));
+        List<ValueCount> result = new ArrayList<>(clicks.size());
+        clicks.forEach((referrer, count) -> result.add(new ValueCount(referrer, null, count)));
+        result.sort(Comparator.comparingLong(ValueCount::clicks).reversed().thenComparing(ValueCount::value));
+        return limit > 0 && result.size() > limit ? result.subList(0, limit) : result;
+    }
+
+    // The rollups count whole hours, so both implementations start at the hour of since
+    private static Timestamp hourStart(LocalDateTime since) {
+        return Timestamp.valueOf(since.truncatedTo(ChronoUnit.HOURS));
+    }
+
+    // Column, or expression, holding the rollup value of a dimension
+    private static String valueExpression(ClickRollup.Dimension dimension) {
+        return switch (dimension) {
+            case TOTAL -> "''";
+            case COUNTRY -> "country_code";
+            case CITY -> "city_name";
+            case BROWSER -> "browser";
+            case OS -> "operating_system";
+            case DEVICE -> "device_type";
+            case REFERRER -> "referer";
+            case BOT -> "CASE WHEN is_bot THEN 'true' ELSE 'false' END";
+            case MOBILE -> "CASE WHEN is_mobile THEN 'true' ELSE 'false' END";
+        };
+    }
+}
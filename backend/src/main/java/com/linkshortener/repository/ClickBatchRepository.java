@@ -0,0 +1,95 @@
+package com.linkshortener.repository;
+
+import com.linkshortener.entity.Click;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * JDBC writer for click batches. Each statement is a single multi-row INSERT,
+ * which is what both MySQL and H2 execute fastest.
+ */
+@Repository
+public class ClickBatchRepository {
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO clicks (link_id, ip_address, user_agent, referer, country_code, country_name, city_name, "
+            + "browser, operating_system, device_type, is_mobile, is_bot, clicked_at) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // 13 parameters per row keeps a full statement well under the driver placeholder limit
+    private static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public int insertAll(List<Click> clicks) {
+        int inserted = 0;
+        for (int from = 0; from < clicks.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<Click> chunk = clicks.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, clicks.size()));
+            inserted += jdbcTemplate.update(buildInsert(chunk.size()), ps -> bindRows(ps, chunk));
+        }
+        return inserted;
+    }
+
+    /**
+     * The given link ids that still exist, to leave out the clicks of links deleted
+     * since they were queued.
+     */
+    public Set<Long> findExistingLinkIds(Collection<Long> linkIds) {
+        if (linkIds.isEmpty()) {
+            return Set.of();
+        }
+        String sql = "SELECT id FROM links WHERE id IN (" + String.join(", ", Collections.nCopies(linkIds.size(), "?")) + ")";
+        return new HashSet<>(jdbcTemplate.queryForList(sql, Long.class, linkIds.toArray()));
+    }
+
+    private String buildInsert(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows * (ROW_PLACEHOLDERS.length() + 2));
+        sql.append(INSERT_PREFIX);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDERS);
+        }
+        return sql.toString();
+    }
+
+    private void bindRows(PreparedStatement ps, List<Click> clicks) throws SQLException {
+        int index = 1;
+        for (Click click : clicks) {
+            ps.setLong(index++, click.getLink().getId());
+            setString(ps, index++, click.getIpAddress());
+            setString(ps, index++, click.getUserAgent());
+            setString(ps, index++, click.getReferer());
+            setString(ps, index++, click.getCountryCode());
+            setString(ps, index++, click.getCountryName());
+            setString(ps, index++, click.getCityName());
+            setString(ps, index++, click.getBrowser());
+            setString(ps, index++, click.getOperatingSystem());
+            setString(ps, index++, click.getDeviceType());
+            ps.setBoolean(index++, Boolean.TRUE.equals(click.getIsMobile()));
+            ps.setBoolean(index++, Boolean.TRUE.equals(click.getIsBot()));
+            ps.setTimestamp(index++, Timestamp.valueOf(click.getClickedAt()));
+        }
+    }
+
+    private void setString(PreparedStatement ps, int index, String value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.VARCHAR);
+        } else {
+            ps.setString(index, value);
+        }
+    }
+}
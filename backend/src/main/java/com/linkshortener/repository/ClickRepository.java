@@ -11,10 +11,6 @@ import java.util.List;
 @Repository
 public interface ClickRepository extends JpaRepository<Click, Long> {
     
-    List<Click> findByLinkId(Long linkId);
-    
-    List<Click> findByLinkIdOrderByClickedAtDesc(Long linkId);
-    
     @Query("SELECT COUNT(c) FROM Click c WHERE c.link.id = ?1")
     long countClicksByLinkId(Long linkId);
     
@@ -36,9 +32,6 @@ public interface ClickRepository extends JpaRepository<Click, Long> {
     @Query("SELECT DATE(c.clickedAt), COUNT(c) FROM Click c WHERE c.link.id = ?1 AND c.clickedAt >= ?2 GROUP BY DATE(c.clickedAt) ORDER BY DATE(c.clickedAt)")
     List<Object[]> getDailyClicksForLink(Long linkId, LocalDateTime since);
     
-    @Query("SELECT c FROM Click c WHERE c.link.user.id = ?1")
-    List<Click> findClicksByUserId(Long userId);
-    
     @Query("SELECT COUNT(c) FROM Click c WHERE c.link.user.id = ?1")
     long countClicksByUserId(Long userId);
     
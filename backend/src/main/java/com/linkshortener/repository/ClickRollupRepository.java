@@ -0,0 +1,384 @@
+package com.linkshortener.repository;
+
+import com.linkshortener.entity.Click;
+import com.linkshortener.entity.ClickRollup;
+import com.linkshortener.entity.Link;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * JDBC access to click_rollups. Deltas are applied with one lookup, one UPDATE and one
+ * multi-row INSERT per batch of keys, in SQL that MySQL and H2 both accept; increments
+ * are done by the database, so concurrent writers never lose a count.
+ */
+@Repository
+public class ClickRollupRepository implements ClickStatsRepository {
+
+    private static final int MAX_ROWS_PER_STATEMENT = 200;
+    private static final int MAX_LINKS_PER_QUERY = 500;
+    // Rows per round trip when streaming clicks. MySQL Connector/J only honours it with
+    // useCursorFetch=true on the datasource URL; otherwise it reads the whole result first
+    private static final int FETCH_SIZE = 1000;
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO click_rollups (link_id, dimension, grain, bucket_start, dim_value, label, clicks, last_click_at) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Natural key of a rollup row.
+     */
+    public record Key(long linkId, ClickRollup.Dimension dimension, ClickRollup.Grain grain,
+                      LocalDateTime bucketStart, String value) {
+    }
+
+    /**
+     * Clicks to add to a rollup row, the latest of them, and the label to store if the row is new.
+     */
+    public record Delta(long clicks, LocalDateTime lastClickAt, String label) {
+
+        public Delta plus(Delta other) {
+            return new Delta(clicks + other.clicks,
+                    other.lastClickAt.isAfter(lastClickAt) ? other.lastClickAt : lastClickAt,
+                    label != null ? label : other.label);
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Adds every delta to its row, creating the rows that do not exist yet.
+     */
+    public void addAll(Map<Key, Delta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        Map<Key, Long> existing = findIds(deltas.keySet());
+
+        List<Map.Entry<Long, Delta>> updates = new ArrayList<>();
+        List<Map.Entry<Key, Delta>> inserts = new ArrayList<>();
+        for (Map.Entry<Key, Delta> entry : deltas.entrySet()) {
+            Long id = existing.get(entry.getKey());
+            if (id != null) {
+                updates.add(Map.entry(id, entry.getValue()));
+            } else {
+                inserts.add(entry);
+            }
+        }
+
+        for (int from = 0; from < updates.size(); from += MAX_ROWS_PER_STATEMENT) {
+            incrementByIds(updates.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, updates.size())));
+        }
+        for (int from = 0; from < inserts.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<Map.Entry<Key, Delta>> chunk = inserts.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, inserts.size()));
+            try {
+                insert(chunk);
+            } catch (DuplicateKeyException e) {
+                // Another writer created some of these rows first, or the database collation
+                // treats two of our values as equal; the INSERT is atomic, so retry row by row
+                for (Map.Entry<Key, Delta> entry : chunk) {
+                    addOne(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Complete days come from the daily rows, the first partial day from the hourly rows.
+     */
+    @Override
+    public List<ValueCount> sumByValue(long linkId, ClickRollup.Dimension dimension, LocalDateTime since, int limit) {
+        LocalDateTime hourFrom = since.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime dayFrom = firstFullDay(since);
+        String sql = "SELECT dim_value, MAX(label), SUM(clicks) FROM click_rollups "
+                + "WHERE link_id = ? AND dimension = ? "
+                + "AND ((grain = 'DAY' AND bucket_start >= ?) OR (grain = 'HOUR' AND bucket_start >= ? AND bucket_start < ?)) "
+                + "GROUP BY dim_value ORDER BY SUM(clicks) DESC, dim_value"
+                + (limit > 0 ? " LIMIT " + limit : "");
+        return jdbcTemplate.query(sql,
+                (rs, rowNum) -> new ValueCount(rs.getString(1), rs.getString(2), rs.getLong(3)),
+                linkId, dimension.name(), Timestamp.valueOf(dayFrom), Timestamp.valueOf(hourFrom), Timestamp.valueOf(dayFrom));
+    }
+
+    @Override
+    public List<DayCount> daily(long linkId, LocalDateTime since) {
+        return jdbcTemplate.query(
+                "SELECT bucket_start, clicks FROM click_rollups "
+                + "WHERE link_id = ? AND dimension = 'TOTAL' AND grain = 'DAY' AND bucket_start >= ? ORDER BY bucket_start",
+                (rs, rowNum) -> new DayCount(rs.getTimestamp(1).toLocalDateTime().toLocalDate().toString(), rs.getLong(2)),
+                linkId, Timestamp.valueOf(since.truncatedTo(ChronoUnit.DAYS)));
+    }
+
+    @Override
+    public long[] clicksByHourOfDay(long linkId, LocalDateTime since) {
+        long[] hours = new long[24];
+        jdbcTemplate.query(
+                "SELECT bucket_start, clicks FROM click_rollups "
+                + "WHERE link_id = ? AND dimension = 'TOTAL' AND grain = 'HOUR' AND bucket_start >= ?",
+                rs -> {
+                    hours[rs.getTimestamp(1).toLocalDateTime().getHour()] += rs.getLong(2);
+                },
+                linkId, Timestamp.valueOf(since.truncatedTo(ChronoUnit.HOURS)));
+        return hours;
+    }
+
+    @Override
+    public Totals totals(long linkId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(clicks), 0), MAX(last_click_at) FROM click_rollups "
+                + "WHERE link_id = ? AND dimension = 'TOTAL' AND grain = 'DAY'",
+                (rs, rowNum) -> {
+                    Timestamp last = rs.getTimestamp(2);
+                    return new Totals(rs.getLong(1), last != null ? last.toLocalDateTime() : null);
+                },
+                linkId);
+    }
+
+    /**
+     * Clicks of all links in the days starting in [from, to); either bound may be null.
+     */
+    public long sumAllLinks(LocalDateTime from, LocalDateTime to) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(
+                "SELECT COALESCE(SUM(clicks), 0) FROM click_rollups WHERE dimension = 'TOTAL' AND grain = 'DAY'");
+        if (from != null) {
+            sql.append(" AND bucket_start >= ?");
+            params.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND bucket_start < ?");
+            params.add(Timestamp.valueOf(to));
+        }
+        Long clicks = jdbcTemplate.queryForObject(sql.toString(), Long.class, params.toArray());
+        return clicks != null ? clicks : 0L;
+    }
+
+    /**
+     * Clicks of all links per day from a day on, by date.
+     */
+    public List<DayCount> dailyAllLinks(LocalDateTime since) {
+        return jdbcTemplate.query(
+                "SELECT bucket_start, SUM(clicks) FROM click_rollups "
+                + "WHERE dimension = 'TOTAL' AND grain = 'DAY' AND bucket_start >= ? GROUP BY bucket_start ORDER BY bucket_start",
+                (rs, rowNum) -> new DayCount(rs.getTimestamp(1).toLocalDateTime().toLocalDate().toString(), rs.getLong(2)),
+                Timestamp.valueOf(since.truncatedTo(ChronoUnit.DAYS)));
+    }
+
+    /**
+     * Clicks of all links per hour of the 24 hours from a time on, indexed by hour of day.
+     */
+    public long[] hourlyAllLinks(LocalDateTime since) {
+        long[] hours = new long[24];
+        LocalDateTime from = since.truncatedTo(ChronoUnit.HOURS);
+        jdbcTemplate.query(
+                "SELECT bucket_start, SUM(clicks) FROM click_rollups "
+                + "WHERE dimension = 'TOTAL' AND grain = 'HOUR' AND bucket_start >= ? AND bucket_start < ? GROUP BY bucket_start",
+                rs -> {
+                    hours[rs.getTimestamp(1).toLocalDateTime().getHour()] += rs.getLong(2);
+                },
+                Timestamp.valueOf(from), Timestamp.valueOf(from.plusHours(24)));
+        return hours;
+    }
+
+    public boolean isEmpty() {
+        return jdbcTemplate.queryForList("SELECT id FROM click_rollups LIMIT 1").isEmpty();
+    }
+
+    public int deleteByLinkIdRange(long afterId, long upToId) {
+        return jdbcTemplate.update("DELETE FROM click_rollups WHERE link_id > ? AND link_id <= ?", afterId, upToId);
+    }
+
+    public long maxClickId() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM clicks", Long.class);
+        return maxId != null ? maxId : 0L;
+    }
+
+    public long maxClickLinkId() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(link_id) FROM clicks", Long.class);
+        return maxId != null ? maxId : 0L;
+    }
+
+    /**
+     * The link of the {@code clicks}-th click after link {@code afterId} in link order, which
+     * ends a rebuild range of about that many clicks; 0 when fewer clicks are left. Reads the
+     * link_id index only.
+     */
+    public long findRangeEnd(long afterId, int clicks) {
+        List<Long> linkIds = jdbcTemplate.queryForList(
+                "SELECT link_id FROM clicks WHERE link_id > ? ORDER BY link_id LIMIT 1 OFFSET ?",
+                Long.class, afterId, clicks - 1);
+        return linkIds.isEmpty() ? 0L : linkIds.get(0);
+    }
+
+    /**
+     * Streams the clicks of links with an id in (afterId, upToId], with the columns the
+     * rollups and visitor sketches are made of, for a rebuild.
+     */
+    public void forEachClick(long afterId, long upToId, Consumer<Click> consumer) {
+        streamClicks("link_id > ? AND link_id <= ?", consumer, afterId, upToId);
+    }
+
+    /**
+     * Streams the clicks made since a time with an id in (afterId, upToId], oldest first.
+     */
+    public void forEachClickSince(LocalDateTime since, long afterId, long upToId, Consumer<Click> consumer) {
+        streamClicks("clicked_at >= ? AND id > ? AND id <= ? ORDER BY clicked_at", consumer,
+                Timestamp.valueOf(since), afterId, upToId);
+    }
+
+    /**
+     * Streams the clicks of one link made since a time.
+     */
+    public void forEachClickOfLinkSince(long linkId, LocalDateTime since, Consumer<Click> consumer) {
+        streamClicks("link_id = ? AND clicked_at >= ?", consumer, linkId, Timestamp.valueOf(since));
+    }
+
+    private void streamClicks(String condition, Consumer<Click> consumer, Object... params) {
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(FETCH_SIZE);
+        streaming.query("SELECT link_id, referer, country_code, country_name, city_name, browser, operating_system, "
+                + "device_type, is_mobile, is_bot, clicked_at, ip_address FROM clicks WHERE " + condition, rs -> {
+            Link link = new Link();
+            link.setId(rs.getLong(1));
+            Click click = new Click();
+            click.setLink(link);
+            click.setReferer(rs.getString(2));
+            click.setCountryCode(rs.getString(3));
+            click.setCountryName(rs.getString(4));
+            click.setCityName(rs.getString(5));
+            click.setBrowser(rs.getString(6));
+            click.setOperatingSystem(rs.getString(7));
+            click.setDeviceType(rs.getString(8));
+            click.setIsMobile(rs.getBoolean(9));
+            click.setIsBot(rs.getBoolean(10));
+            click.setIpAddress(rs.getString(12));
+            Timestamp clickedAt = rs.getTimestamp(11);
+            if (clickedAt != null) {
+                click.setClickedAt(clickedAt.toLocalDateTime());
+                consumer.accept(click);
+            }
+        }, params);
+    }
+
+    private Map<Key, Long> findIds(Set<Key> keys) {
+        Set<Long> linkIds = new LinkedHashSet<>();
+        Set<LocalDateTime> buckets = new LinkedHashSet<>();
+        for (Key key : keys) {
+            linkIds.add(key.linkId());
+            buckets.add(key.bucketStart());
+        }
+        List<Long> ids = new ArrayList<>(linkIds);
+        List<Timestamp> bucketParams = buckets.stream().map(Timestamp::valueOf).toList();
+
+        // A superset of the rows we need (every dimension of those buckets), matched exactly below
+        Map<Key, Long> found = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += MAX_LINKS_PER_QUERY) {
+            List<Long> chunk = ids.subList(from, Math.min(from + MAX_LINKS_PER_QUERY, ids.size()));
+            String sql = "SELECT id, link_id, dimension, grain, bucket_start, dim_value FROM click_rollups "
+                    + "WHERE link_id IN (" + SerializedRowMerger.placeholders(chunk.size()) + ") "
+                    + "AND bucket_start IN (" + SerializedRowMerger.placeholders(bucketParams.size()) + ")";
+            List<Object> params = new ArrayList<>(chunk);
+            params.addAll(bucketParams);
+            jdbcTemplate.query(sql, rs -> {
+                Key key = new Key(rs.getLong(2),
+                        ClickRollup.Dimension.valueOf(rs.getString(3)),
+                        ClickRollup.Grain.valueOf(rs.getString(4)),
+                        rs.getTimestamp(5).toLocalDateTime(),
+                        rs.getString(6));
+                if (keys.contains(key)) {
+                    found.put(key, rs.getLong(1));
+                }
+            }, params.toArray());
+        }
+        return found;
+    }
+
+    private void incrementByIds(List<Map.Entry<Long, Delta>> rows) {
+        StringBuilder sql = new StringBuilder("UPDATE click_rollups SET clicks = clicks + CASE id");
+        for (int i = 0; i < rows.size(); i++) {
+            sql.append(" WHEN ? THEN ?");
+        }
+        sql.append(" END, last_click_at = GREATEST(last_click_at, CASE id");
+        for (int i = 0; i < rows.size(); i++) {
+            sql.append(" WHEN ? THEN ?");
+        }
+        sql.append(" END) WHERE id IN (").append(SerializedRowMerger.placeholders(rows.size())).append(")");
+
+        jdbcTemplate.update(sql.toString(), ps -> {
+            int index = 1;
+            for (Map.Entry<Long, Delta> row : rows) {
+                ps.setLong(index++, row.getKey());
+                ps.setLong(index++, row.getValue().clicks());
+            }
+            for (Map.Entry<Long, Delta> row : rows) {
+                ps.setLong(index++, row.getKey());
+                ps.setTimestamp(index++, Timestamp.valueOf(row.getValue().lastClickAt()));
+            }
+            for (Map.Entry<Long, Delta> row : rows) {
+                ps.setLong(index++, row.getKey());
+            }
+        });
+    }
+
+    private void insert(List<Map.Entry<Key, Delta>> rows) {
+        String sql = INSERT_PREFIX + String.join(", ", Collections.nCopies(rows.size(), ROW_PLACEHOLDERS));
+        jdbcTemplate.update(sql, ps -> {
+            int index = 1;
+            for (Map.Entry<Key, Delta> row : rows) {
+                Key key = row.getKey();
+                Delta delta = row.getValue();
+                ps.setLong(index++, key.linkId());
+                ps.setString(index++, key.dimension().name());
+                ps.setString(index++, key.grain().name());
+                ps.setTimestamp(index++, Timestamp.valueOf(key.bucketStart()));
+                ps.setString(index++, key.value());
+                ps.setString(index++, delta.label());
+                ps.setLong(index++, delta.clicks());
+                ps.setTimestamp(index++, Timestamp.valueOf(delta.lastClickAt()));
+            }
+        });
+    }
+
+    /**
+     * Row-at-a-time upsert by natural key, for rows a concurrent writer may have created.
+     */
+    private void addOne(Key key, Delta delta) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            int updated = jdbcTemplate.update(
+                    "UPDATE click_rollups SET clicks = clicks + ?, last_click_at = GREATEST(last_click_at, ?) "
+                    + "WHERE link_id = ? AND dimension = ? AND grain = ? AND bucket_start = ? AND dim_value = ?",
+                    delta.clicks(), Timestamp.valueOf(delta.lastClickAt()),
+                    key.linkId(), key.dimension().name(), key.grain().name(), Timestamp.valueOf(key.bucketStart()),
+                    key.value());
+            if (updated > 0) {
+                return;
+            }
+            try {
+                insert(List.of(Map.entry(key, delta)));
+                return;
+            } catch (DuplicateKeyException e) {
+                // Created since our UPDATE: go round once more
+            }
+        }
+        throw new DuplicateKeyException("Could not add clicks to rollup " + key);
+    }
+
+    private static LocalDateTime firstFullDay(LocalDateTime since) {
+        LocalDateTime day = since.truncatedTo(ChronoUnit.DAYS);
+        return day.equals(since) ? day : day.plusDays(1);
+    }
+}
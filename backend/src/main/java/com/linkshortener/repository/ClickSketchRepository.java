@@ -0,0 +1,109 @@
+package com.linkshortener.repository;
+
+import com.linkshortener.util.HyperLogLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC access to click_unique_sketches, one HyperLogLog per link and day. Unions stream the
+ * rows and fold them into one sketch, so memory use is one sketch whatever the range.
+ */
+@Repository
+public class ClickSketchRepository {
+
+    private static final int MAX_LINKS_PER_QUERY = 500;
+
+    /**
+     * A link and a day.
+     */
+    public record Key(long linkId, LocalDate date) {
+    }
+
+    private static final SerializedRowMerger<Key, HyperLogLog> SKETCHES = new SerializedRowMerger<>(
+            "click_unique_sketches", List.of("link_id", "click_date"), "sketch",
+            key -> List.of(key.linkId(), Date.valueOf(key.date())),
+            (rs, column) -> new Key(rs.getLong(column), rs.getDate(column + 1).toLocalDate()),
+            HyperLogLog::fromBytes, HyperLogLog::toBytes, HyperLogLog::merge);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Merges each sketch into the stored sketch of its link and day, creating the rows
+     * that do not exist yet. Call in a transaction: the row locks are held until it ends.
+     */
+    public void mergeAll(Map<Key, HyperLogLog> sketches) {
+        SKETCHES.mergeAll(jdbcTemplate, sketches);
+    }
+
+    /**
+     * Union of the sketches of the given links over [from, to]; either bound may be null.
+     */
+    public HyperLogLog union(Collection<Long> linkIds, LocalDate from, LocalDate to) {
+        HyperLogLog union = new HyperLogLog();
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(linkIds));
+        for (int start = 0; start < ids.size(); start += MAX_LINKS_PER_QUERY) {
+            List<Long> chunk = ids.subList(start, Math.min(start + MAX_LINKS_PER_QUERY, ids.size()));
+            List<Object> params = new ArrayList<>(chunk);
+            String sql = "SELECT sketch FROM click_unique_sketches WHERE link_id IN (" + SerializedRowMerger.placeholders(chunk.size()) + ")"
+                    + dateRange("click_date", from, to, params);
+            jdbcTemplate.query(sql, rs -> {
+                union.merge(HyperLogLog.fromBytes(rs.getBytes(1)));
+            }, params.toArray());
+        }
+        return union;
+    }
+
+    /**
+     * Union of the sketches of every link of a user over [from, to]; either bound may be null.
+     */
+    public HyperLogLog unionForUser(long userId, LocalDate from, LocalDate to) {
+        HyperLogLog union = new HyperLogLog();
+        List<Object> params = new ArrayList<>(List.of(userId));
+        String sql = "SELECT s.sketch FROM click_unique_sketches s JOIN links l ON l.id = s.link_id WHERE l.user_id = ?"
+                + dateRange("s.click_date", from, to, params);
+        jdbcTemplate.query(sql, rs -> {
+            union.merge(HyperLogLog.fromBytes(rs.getBytes(1)));
+        }, params.toArray());
+        return union;
+    }
+
+    /**
+     * Union of the sketches of every link over [from, to]; either bound may be null.
+     */
+    public HyperLogLog unionAll(LocalDate from, LocalDate to) {
+        HyperLogLog union = new HyperLogLog();
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT sketch FROM click_unique_sketches WHERE 1 = 1" + dateRange("click_date", from, to, params);
+        jdbcTemplate.query(sql, rs -> {
+            union.merge(HyperLogLog.fromBytes(rs.getBytes(1)));
+        }, params.toArray());
+        return union;
+    }
+
+    public int deleteByLinkIdRange(long afterId, long upToId) {
+        return jdbcTemplate.update("DELETE FROM click_unique_sketches WHERE link_id > ? AND link_id <= ?", afterId, upToId);
+    }
+
+    private static String dateRange(String column, LocalDate from, LocalDate to, List<Object> params) {
+        StringBuilder sql = new StringBuilder();
+        if (from != null) {
+            sql.append(" AND ").append(column).append(" >= ?");
+            params.add(Date.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND ").append(column).append(" <= ?");
+            params.add(Date.valueOf(to));
+        }
+        return sql.toString();
+    }
+}
@@ -0,0 +1,44 @@
+package com.linkshortener.repository;
+
+import com.linkshortener.entity.ClickRollup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Click statistics of one link, aggregated by the database. Implemented over the rollups
+ * and directly over the clicks table; neither loads individual clicks, so memory use does
+ * not depend on how many clicks a link has.
+ */
+public interface ClickStatsRepository {
+
+    record ValueCount(String value, String label, long clicks) {
+    }
+
+    record DayCount(String date, long clicks) {
+    }
+
+    record Totals(long clicks, LocalDateTime lastClickAt) {
+    }
+
+    /**
+     * All-time clicks of a link and the time of its last click.
+     */
+    Totals totals(long linkId);
+
+    /**
+     * Clicks per day (yyyy-MM-dd) from the day of {@code since} on, oldest first.
+     */
+    List<DayCount> daily(long linkId, LocalDateTime since);
+
+    /**
+     * Clicks from the hour of {@code since} on by hour of day, indexed 0 to 23.
+     */
+    long[] clicksByHourOfDay(long linkId, LocalDateTime since);
+
+    /**
+     * Clicks from the hour of {@code since} on per value of a dimension, most clicked first, at most
+     * {@code limit} values when limit is positive. BOT and MOBILE values are "true" and "false".
+     */
+    List<ValueCount> sumByValue(long linkId, ClickRollup.Dimension dimension, LocalDateTime since, int limit);
+}
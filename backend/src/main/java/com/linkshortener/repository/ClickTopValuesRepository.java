@@ -0,0 +1,70 @@
+package com.linkshortener.repository;
+
+import com.linkshortener.entity.ClickRollup;
+import com.linkshortener.util.SpaceSaving;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC access to click_top_values, one Space-Saving summary per link, dimension and day.
+ * Top-K queries fold the summaries of the range into one, so they read a bounded number
+ * of counters per day and never touch the clicks.
+ */
+@Repository
+public class ClickTopValuesRepository {
+
+    /**
+     * A link, a dimension and a day.
+     */
+    public record Key(long linkId, ClickRollup.Dimension dimension, LocalDate date) {
+    }
+
+    private static final SerializedRowMerger<Key, SpaceSaving> SUMMARIES = new SerializedRowMerger<>(
+            "click_top_values", List.of("link_id", "dimension", "click_date"), "summary",
+            key -> List.of(key.linkId(), key.dimension().name(), Date.valueOf(key.date())),
+            (rs, column) -> new Key(rs.getLong(column), ClickRollup.Dimension.valueOf(rs.getString(column + 1)),
+                    rs.getDate(column + 2).toLocalDate()),
+            SpaceSaving::fromBytes, SpaceSaving::toBytes, SpaceSaving::merge);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Merges each summary into the stored summary of its key, creating the rows that do not
+     * exist yet. Call in a transaction: the row locks are held until it ends.
+     */
+    public void mergeAll(Map<Key, SpaceSaving> summaries) {
+        SUMMARIES.mergeAll(jdbcTemplate, summaries);
+    }
+
+    /**
+     * The most clicked values of a dimension of a link from a day on, with their estimated
+     * clicks; may overestimate each count by the summary error, never underestimates.
+     */
+    public List<ClickStatsRepository.ValueCount> top(long linkId, ClickRollup.Dimension dimension, LocalDate from,
+                                                     int limit) {
+        SpaceSaving[] union = new SpaceSaving[1];
+        jdbcTemplate.query("SELECT summary FROM click_top_values WHERE link_id = ? AND dimension = ? AND click_date >= ?",
+                rs -> {
+                    SpaceSaving summary = SpaceSaving.fromBytes(rs.getBytes(1));
+                    union[0] = union[0] == null ? summary : union[0].merge(summary);
+                },
+                linkId, dimension.name(), Date.valueOf(from));
+        if (union[0] == null) {
+            return List.of();
+        }
+        return union[0].top(limit > 0 ? limit : union[0].getCapacity()).stream()
+                .map(entry -> new ClickStatsRepository.ValueCount(entry.value(), entry.label(), entry.count()))
+                .toList();
+    }
+
+    public int deleteByLinkIdRange(long afterId, long upToId) {
+        return jdbcTemplate.update("DELETE FROM click_top_values WHERE link_id > ? AND link_id <= ?", afterId, upToId);
+    }
+}
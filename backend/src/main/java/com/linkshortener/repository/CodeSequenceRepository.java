@@ -0,0 +1,19 @@
+package com.linkshortener.repository;
+
+import com.linkshortener.entity.CodeSequence;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface CodeSequenceRepository extends JpaRepository<CodeSequence, String> {
+    
+    // SELECT ... FOR UPDATE: concurrent leases on the same sequence are serialized by the row lock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM CodeSequence s WHERE s.name = ?1")
+    Optional<CodeSequence> findForUpdate(String name);
+}
@@ -0,0 +1,135 @@
+package com.linkshortener.repository;
+
+import com.linkshortener.entity.Link;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC writer for bulk imported links. Links use IDENTITY ids, which rules out Hibernate
+ * insert batching, so rows go out as multi-row INSERTs and the ids are read back by
+ * short code, which is unique.
+ */
+@Repository
+public class LinkBatchRepository {
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO links (original_url, short_code, title, description, click_count, is_active, expires_at, "
+            + "password_protected, password_hash, redirect_status, cache_max_age, track_clicks, user_id, "
+            + "created_at, updated_at) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // 15 parameters per row keeps a full statement well under the driver placeholder limit
+    private static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts the links, without their custom aliases, and sets their generated ids.
+     */
+    public void insertAll(List<Link> links) {
+        LocalDateTime now = LocalDateTime.now();
+        for (int from = 0; from < links.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<Link> chunk = links.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, links.size()));
+            String sql = INSERT_PREFIX + String.join(", ", Collections.nCopies(chunk.size(), ROW_PLACEHOLDERS));
+            jdbcTemplate.update(sql, ps -> bindRows(ps, chunk, now));
+            assignIds(chunk);
+        }
+    }
+
+    /**
+     * Sets the custom alias of links whose alias has been reserved.
+     */
+    public void updateAliases(List<Link> links) {
+        jdbcTemplate.batchUpdate("UPDATE links SET custom_alias = ? WHERE id = ?", links, MAX_ROWS_PER_STATEMENT,
+                (ps, link) -> {
+                    ps.setString(1, link.getCustomAlias());
+                    ps.setLong(2, link.getId());
+                });
+    }
+
+    public void updateShortCode(Long id, String shortCode) {
+        jdbcTemplate.update("UPDATE links SET short_code = ? WHERE id = ?", shortCode, id);
+    }
+
+    public void delete(Long id) {
+        jdbcTemplate.update("DELETE FROM links WHERE id = ?", id);
+    }
+
+    private void assignIds(List<Link> links) {
+        Map<String, Link> byShortCode = new HashMap<>();
+        for (Link link : links) {
+            byShortCode.put(link.getShortCode(), link);
+        }
+        String sql = "SELECT id, short_code FROM links WHERE short_code IN ("
+                + String.join(", ", Collections.nCopies(links.size(), "?")) + ")";
+        jdbcTemplate.query(sql, rs -> {
+            byShortCode.get(rs.getString(2)).setId(rs.getLong(1));
+        }, byShortCode.keySet().toArray());
+    }
+
+    private void bindRows(PreparedStatement ps, List<Link> links, LocalDateTime now) throws SQLException {
+        int index = 1;
+        for (Link link : links) {
+            ps.setString(index++, link.getOriginalUrl());
+            ps.setString(index++, link.getShortCode());
+            setString(ps, index++, link.getTitle());
+            setString(ps, index++, link.getDescription());
+            ps.setLong(index++, 0L);
+            ps.setBoolean(index++, true);
+            setTimestamp(ps, index++, link.getExpiresAt());
+            ps.setBoolean(index++, Boolean.TRUE.equals(link.getPasswordProtected()));
+            setString(ps, index++, link.getPasswordHash());
+            setInteger(ps, index++, link.getRedirectStatus());
+            setInteger(ps, index++, link.getCacheMaxAge());
+            if (link.getTrackClicks() == null) {
+                ps.setNull(index++, Types.BOOLEAN);
+            } else {
+                ps.setBoolean(index++, link.getTrackClicks());
+            }
+            if (link.getUser() == null) {
+                ps.setNull(index++, Types.BIGINT);
+            } else {
+                ps.setLong(index++, link.getUser().getId());
+            }
+            ps.setTimestamp(index++, Timestamp.valueOf(now));
+            ps.setTimestamp(index++, Timestamp.valueOf(now));
+            link.setCreatedAt(now);
+        }
+    }
+
+    private void setString(PreparedStatement ps, int index, String value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.VARCHAR);
+        } else {
+            ps.setString(index, value);
+        }
+    }
+
+    private void setInteger(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.INTEGER);
+        } else {
+            ps.setInt(index, value);
+        }
+    }
+
+    private void setTimestamp(PreparedStatement ps, int index, LocalDateTime value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.TIMESTAMP);
+        } else {
+            ps.setTimestamp(index, Timestamp.valueOf(value));
+        }
+    }
+}
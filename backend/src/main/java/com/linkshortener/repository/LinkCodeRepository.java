@@ -0,0 +1,130 @@
+package com.linkshortener.repository;
+
+import com.linkshortener.entity.LinkCode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Writes to the link_codes namespace. Reservation is insert-first: the primary key
+ * rejects a code that is already taken, so there is no check-then-insert race.
+ * Plain JDBC rather than a Spring Data query so that a rejected insert does not mark
+ * the surrounding transaction rollback-only and the caller can try another code.
+ */
+@Repository
+public class LinkCodeRepository {
+
+    private static final int MAX_CODES_PER_QUERY = 500;
+
+    // code_sequences row holding the highest link id whose codes the backfill registered
+    private static final String BACKFILL_WATERMARK = "link_codes_backfill";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Returns false if the code is already taken, by any link and of either kind.
+     */
+    public boolean reserve(String code, Long linkId, LinkCode.Kind kind) {
+        try {
+            jdbcTemplate.update("INSERT INTO link_codes (code, link_id, kind, reserved_at) VALUES (?, ?, ?, ?)",
+                    code, linkId, kind.name(), Timestamp.valueOf(LocalDateTime.now()));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reserves all codes with one multi-row INSERT. All or nothing: if any code is taken the
+     * statement fails with a {@link DuplicateKeyException} and none is reserved.
+     */
+    public void reserveAll(List<LinkCode> codes) {
+        String sql = "INSERT INTO link_codes (code, link_id, kind, reserved_at) VALUES "
+                + String.join(", ", Collections.nCopies(codes.size(), "(?, ?, ?, ?)"));
+        jdbcTemplate.update(sql, ps -> {
+            int index = 1;
+            for (LinkCode code : codes) {
+                ps.setString(index++, code.getCode());
+                ps.setLong(index++, code.getLink().getId());
+                ps.setString(index++, code.getKind().name());
+                ps.setTimestamp(index++, Timestamp.valueOf(code.getReservedAt()));
+            }
+        });
+    }
+
+    /**
+     * The subset of the given codes that is already reserved.
+     */
+    public Set<String> findTaken(Collection<String> codes) {
+        Set<String> taken = new HashSet<>();
+        List<String> all = new ArrayList<>(codes);
+        for (int from = 0; from < all.size(); from += MAX_CODES_PER_QUERY) {
+            List<String> chunk = all.subList(from, Math.min(from + MAX_CODES_PER_QUERY, all.size()));
+            String sql = "SELECT code FROM link_codes WHERE code IN ("
+                    + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+            taken.addAll(jdbcTemplate.queryForList(sql, String.class, chunk.toArray()));
+        }
+        return taken;
+    }
+
+    public void release(String code, Long linkId) {
+        jdbcTemplate.update("DELETE FROM link_codes WHERE code = ? AND link_id = ?", code, linkId);
+    }
+
+    public void releaseAll(Long linkId) {
+        jdbcTemplate.update("DELETE FROM link_codes WHERE link_id = ?", linkId);
+    }
+
+    /**
+     * Registers the codes of links with an id in (afterId, upToId] that are missing from the
+     * namespace: links created before it existed, or by nodes still running the previous
+     * version. Aliases go first so that, as before, an alias wins over an identical short
+     * code. Idempotent.
+     */
+    public int backfill(long afterId, long upToId) {
+        int aliases = jdbcTemplate.update(
+                "INSERT INTO link_codes (code, link_id, kind, reserved_at) " +
+                "SELECT l.custom_alias, l.id, 'ALIAS', CURRENT_TIMESTAMP FROM links l " +
+                "WHERE l.id > ? AND l.id <= ? AND l.custom_alias IS NOT NULL " +
+                "AND NOT EXISTS (SELECT 1 FROM link_codes c WHERE c.code = l.custom_alias)", afterId, upToId);
+        int shortCodes = jdbcTemplate.update(
+                "INSERT INTO link_codes (code, link_id, kind, reserved_at) " +
+                "SELECT l.short_code, l.id, 'SHORT_CODE', CURRENT_TIMESTAMP FROM links l " +
+                "WHERE l.id > ? AND l.id <= ? " +
+                "AND NOT EXISTS (SELECT 1 FROM link_codes c WHERE c.code = l.short_code)", afterId, upToId);
+        return aliases + shortCodes;
+    }
+
+    /**
+     * The highest link id covered by a backfill, on any node; empty before the first one.
+     */
+    public Optional<Long> findBackfillWatermark() {
+        return jdbcTemplate.queryForList("SELECT next_value FROM code_sequences WHERE name = ?", Long.class,
+                BACKFILL_WATERMARK).stream().findFirst();
+    }
+
+    public void saveBackfillWatermark(long linkId) {
+        // Only moves forward, whichever node gets there first
+        int updated = jdbcTemplate.update("UPDATE code_sequences SET next_value = ? WHERE name = ? AND next_value < ?",
+                linkId, BACKFILL_WATERMARK, linkId);
+        if (updated == 0 && findBackfillWatermark().isEmpty()) {
+            try {
+                jdbcTemplate.update("INSERT INTO code_sequences (name, next_value) VALUES (?, ?)", BACKFILL_WATERMARK, linkId);
+            } catch (DuplicateKeyException e) {
+                // Created by another node meanwhile: its watermark is as good as ours
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.linkshortener.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.function.Consumer;
+
+/**
+ * Streams every code of the link_codes namespace (short codes and aliases) without
+ * materializing entities, and the codes of recent links straight from the links table.
+ */
+@Repository
+public class LinkCodeScanRepository {
+
+    private static final int FETCH_SIZE = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public long countCodes() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM link_codes", Long.class);
+        return count != null ? count : 0L;
+    }
+
+    // From links rather than link_codes: links created by older nodes are only registered later
+    public long maxLinkId() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM links", Long.class);
+        return maxId != null ? maxId : 0L;
+    }
+
+    /**
+     * Feeds every code that belongs to a link with an id greater than {@code afterId}.
+     */
+    public void forEachCode(long afterId, Consumer<String> consumer) {
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(FETCH_SIZE);
+        streaming.query("SELECT code FROM link_codes WHERE link_id > ?", rs -> {
+            consumer.accept(rs.getString(1));
+        }, afterId);
+    }
+
+    /**
+     * Feeds the short code and alias of every link with an id greater than {@code afterId},
+     * whether or not they are registered in link_codes yet.
+     */
+    public void forEachLinkCode(long afterId, Consumer<String> consumer) {
+        jdbcTemplate.query("SELECT short_code, custom_alias FROM links WHERE id > ?", rs -> {
+            consumer.accept(rs.getString(1));
+            if (rs.getString(2) != null) {
+                consumer.accept(rs.getString(2));
+            }
+        }, afterId);
+    }
+}
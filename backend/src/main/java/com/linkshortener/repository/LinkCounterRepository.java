@@ -0,0 +1,31 @@
+package com.linkshortener.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies accumulated click deltas to links.click_count. The increment is done by
+ * the database so concurrent flushes from several nodes never lose updates.
+ */
+@Repository
+public class LinkCounterRepository {
+
+    private static final String INCREMENT_SQL = "UPDATE links SET click_count = click_count + ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // All or nothing: a failed flush is retried whole, so no row may have been applied
+    @Transactional
+    public void addClickCounts(Map<Long, Long> deltas) {
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        deltas.forEach((linkId, delta) -> args.add(new Object[]{delta, linkId}));
+        jdbcTemplate.batchUpdate(INCREMENT_SQL, args);
+    }
+}
@@ -0,0 +1,41 @@
+package com.linkshortener.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Deletes a link together with every row keyed by it. Only clicks and link codes reference
+ * links with a foreign key; the rollups, visitor sketches and top values are derived from
+ * the clicks, rebuilt by link id range and written in bulk, so they carry none and are
+ * removed here, in the same transaction as the link.
+ */
+@Repository
+public class LinkDeletionRepository {
+
+    // Deleted in this order, before the link itself
+    private static final List<String> LINK_TABLES = List.of(
+            "link_codes", "clicks", "click_rollups", "click_unique_sketches", "click_top_values");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Deletes the link and its codes and click data; false if it no longer exists. Locks
+     * the link row first: inserting a click takes a shared lock on it for the foreign key
+     * check, so ingestion batches holding clicks of the link commit before the deletes run,
+     * and later ones fail on the foreign key and drop them. Call in a transaction.
+     */
+    public boolean delete(long linkId) {
+        if (jdbcTemplate.queryForList("SELECT id FROM links WHERE id = ? FOR UPDATE", Long.class, linkId).isEmpty()) {
+            return false;
+        }
+        for (String table : LINK_TABLES) {
+            jdbcTemplate.update("DELETE FROM " + table + " WHERE link_id = ?", linkId);
+        }
+        jdbcTemplate.update("DELETE FROM links WHERE id = ?", linkId);
+        return true;
+    }
+}
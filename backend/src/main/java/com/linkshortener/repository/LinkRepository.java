@@ -1,13 +1,17 @@
 package com.linkshortener.repository;
 
+import com.linkshortener.dto.LinkRedirect;
 import com.linkshortener.entity.Link;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,6 +25,26 @@ public interface LinkRepository extends JpaRepository<Link, Long> {
     @Query("SELECT l FROM Link l WHERE l.shortCode = ?1 OR l.customAlias = ?1")
     Optional<Link> findByShortCodeOrCustomAlias(String code);
     
+    // Resolution through the link_codes namespace: one primary-key lookup for short codes and aliases alike
+    @Query("SELECT c.link FROM LinkCode c WHERE c.code = ?1")
+    Optional<Link> findByCode(String code);
+    
+    // Same lookup as findByCode, projected for redirects
+    @Query("SELECT new com.linkshortener.dto.LinkRedirect(l.id, l.originalUrl, l.isActive, l.expiresAt, l.redirectStatus, l.cacheMaxAge, l.trackClicks, " +
+           "CASE WHEN l.passwordProtected = true THEN l.passwordHash ELSE NULL END) " +
+           "FROM LinkCode c JOIN c.link l WHERE c.code = ?1")
+    Optional<LinkRedirect> findRedirectByCode(String code);
+    
+    // Fallback of findRedirectByCode for links not registered in link_codes yet; an alias wins over a short code
+    @Query("SELECT new com.linkshortener.dto.LinkRedirect(l.id, l.originalUrl, l.isActive, l.expiresAt, l.redirectStatus, l.cacheMaxAge, l.trackClicks, " +
+           "CASE WHEN l.passwordProtected = true THEN l.passwordHash ELSE NULL END) " +
+           "FROM Link l WHERE l.customAlias = ?1 OR l.shortCode = ?1 ORDER BY CASE WHEN l.customAlias = ?1 THEN 0 ELSE 1 END")
+    List<LinkRedirect> findRedirectsByLinkColumns(String code);
+    
+    // Only read to check a password: redirects carry a stamp of the hash, never the hash
+    @Query("SELECT l.passwordHash FROM Link l WHERE l.id = ?1")
+    Optional<String> findPasswordHashById(Long id);
+    
     boolean existsByShortCode(String shortCode);
     
     boolean existsByCustomAlias(String customAlias);
@@ -53,9 +77,36 @@ public interface LinkRepository extends JpaRepository<Link, Long> {
     @Query("SELECT l FROM Link l ORDER BY l.clickCount DESC")
     List<Link> findTopLinks(Pageable pageable);
     
+    long countByIdGreaterThan(Long id);
+    
+    // Pairs of link id and owner id; links without an owner are left out
+    @Query("SELECT l.id, l.user.id FROM Link l WHERE l.id IN ?1")
+    List<Object[]> findUserIdsByIdIn(Collection<Long> ids);
+    
     @Query("SELECT l FROM Link l WHERE l.user.id = ?1 AND l.createdAt >= ?2")
     List<Link> findRecentLinksByUser(Long userId, LocalDateTime since);
     
     @Query("SELECT COUNT(l) FROM Link l WHERE l.user.id = ?1")
     long countLinksByUserId(Long userId);
+    
+    /**
+     * Keyset page for exports: links after the given id, in id order, optionally one user's
+     * and optionally only active ones.
+     */
+    @Query("SELECT l FROM Link l WHERE (?1 IS NULL OR l.user.id = ?1) AND (?2 = false OR l.isActive = true) " +
+           "AND l.id > ?3 ORDER BY l.id")
+    List<Link> findExportPage(Long userId, boolean activeOnly, Long afterId, Pageable pageable);
+    
+    /**
+     * The given links, in id order, restricted like {@link #findExportPage}: to one user's
+     * when a user is given, and to active ones when asked.
+     */
+    @Query("SELECT l FROM Link l WHERE l.id IN ?1 AND (?2 IS NULL OR l.user.id = ?2) " +
+           "AND (?3 = false OR l.isActive = true) ORDER BY l.id")
+    List<Link> findAllByIdOrdered(Collection<Long> ids, Long userId, boolean activeOnly);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE Link l SET l.qrCodePath = ?2 WHERE l.id = ?1")
+    int updateQrCodePath(Long id, String qrCodePath);
 }
@@ -0,0 +1,167 @@
+package com.linkshortener.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * Merges values into a table that stores one serialized value per key, such as the visitor
+ * sketches and the top values. Merging is a read-modify-write: the stored rows of a chunk
+ * of keys are read FOR UPDATE, in key order so that concurrent writers lock them in the
+ * same order and cannot deadlock, updated, and the missing rows inserted with one
+ * multi-row INSERT. Call in a transaction: the row locks are held until it ends.
+ */
+final class SerializedRowMerger<K, V> {
+
+    private static final int MAX_ROWS_PER_STATEMENT = 200;
+
+    /**
+     * Reads a key from the key columns of a row, the first of them at {@code column}.
+     */
+    interface KeyReader<K> {
+        K read(ResultSet rs, int column) throws SQLException;
+    }
+
+    private final String table;
+    private final List<String> keyColumns;
+    private final String valueColumn;
+    private final Function<K, List<Object>> keyValues;
+    private final KeyReader<K> keyReader;
+    private final Function<byte[], V> decode;
+    private final Function<V, byte[]> encode;
+    private final BinaryOperator<V> merge;
+
+    /**
+     * @param keyValues the JDBC values of the key columns of a key, in column order
+     * @param merge     folds the second value into the first and returns the result
+     */
+    SerializedRowMerger(String table, List<String> keyColumns, String valueColumn,
+                        Function<K, List<Object>> keyValues, KeyReader<K> keyReader,
+                        Function<byte[], V> decode, Function<V, byte[]> encode, BinaryOperator<V> merge) {
+        this.table = table;
+        this.keyColumns = keyColumns;
+        this.valueColumn = valueColumn;
+        this.keyValues = keyValues;
+        this.keyReader = keyReader;
+        this.decode = decode;
+        this.encode = encode;
+        this.merge = merge;
+    }
+
+    /**
+     * Merges each value into the stored value of its key, creating the rows that do not exist yet.
+     */
+    void mergeAll(JdbcTemplate jdbcTemplate, Map<K, V> values) {
+        List<Map.Entry<K, V>> sorted = new ArrayList<>(values.entrySet());
+        sorted.sort(Comparator.comparing(entry -> keyValues.apply(entry.getKey()), SerializedRowMerger::compareKeys));
+        for (int from = 0; from < sorted.size(); from += MAX_ROWS_PER_STATEMENT) {
+            mergeChunk(jdbcTemplate, sorted.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, sorted.size())));
+        }
+    }
+
+    /**
+     * A comma separated list of {@code count} JDBC placeholders.
+     */
+    static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private void mergeChunk(JdbcTemplate jdbcTemplate, List<Map.Entry<K, V>> chunk) {
+        Map<K, V> pending = new HashMap<>();
+        List<Set<Object>> columnValues = new ArrayList<>();
+        keyColumns.forEach(column -> columnValues.add(new LinkedHashSet<>()));
+        for (Map.Entry<K, V> entry : chunk) {
+            pending.put(entry.getKey(), entry.getValue());
+            List<Object> key = keyValues.apply(entry.getKey());
+            for (int i = 0; i < key.size(); i++) {
+                columnValues.get(i).add(key.get(i));
+            }
+        }
+
+        // Every combination of the chunk's column values is locked, which covers its keys
+        List<String> conditions = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        for (int i = 0; i < keyColumns.size(); i++) {
+            conditions.add(keyColumns.get(i) + " IN (" + placeholders(columnValues.get(i).size()) + ")");
+            params.addAll(columnValues.get(i));
+        }
+        String columns = String.join(", ", keyColumns);
+        List<Object[]> updates = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, " + columns + ", " + valueColumn + " FROM " + table
+                + " WHERE " + String.join(" AND ", conditions) + " ORDER BY " + columns + " FOR UPDATE", rs -> {
+            V value = pending.remove(keyReader.read(rs, 2));
+            if (value != null) {
+                byte[] stored = rs.getBytes(keyColumns.size() + 2);
+                updates.add(new Object[] {encode.apply(merge.apply(decode.apply(stored), value)), rs.getLong(1)});
+            }
+        }, params.toArray());
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE " + table + " SET " + valueColumn + " = ? WHERE id = ?", updates);
+        }
+
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<K, V>> inserts = new ArrayList<>(pending.entrySet());
+        try {
+            insert(jdbcTemplate, inserts);
+        } catch (DuplicateKeyException e) {
+            // Created by another writer since our read: the failed statement changed nothing
+            for (Map.Entry<K, V> entry : inserts) {
+                mergeOne(jdbcTemplate, entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void mergeOne(JdbcTemplate jdbcTemplate, K key, V value) {
+        List<Map.Entry<Long, byte[]>> stored = jdbcTemplate.query(
+                "SELECT id, " + valueColumn + " FROM " + table + " WHERE "
+                        + String.join(" = ? AND ", keyColumns) + " = ? FOR UPDATE",
+                (rs, rowNum) -> Map.entry(rs.getLong(1), rs.getBytes(2)),
+                keyValues.apply(key).toArray());
+        if (stored.isEmpty()) {
+            insert(jdbcTemplate, List.of(Map.entry(key, value)));
+            return;
+        }
+        jdbcTemplate.update("UPDATE " + table + " SET " + valueColumn + " = ? WHERE id = ?",
+                encode.apply(merge.apply(decode.apply(stored.get(0).getValue()), value)), stored.get(0).getKey());
+    }
+
+    private void insert(JdbcTemplate jdbcTemplate, List<Map.Entry<K, V>> rows) {
+        String sql = "INSERT INTO " + table + " (" + String.join(", ", keyColumns) + ", " + valueColumn + ") VALUES "
+                + String.join(", ", Collections.nCopies(rows.size(), "(" + placeholders(keyColumns.size() + 1) + ")"));
+        jdbcTemplate.update(sql, ps -> {
+            int index = 1;
+            for (Map.Entry<K, V> row : rows) {
+                for (Object value : keyValues.apply(row.getKey())) {
+                    ps.setObject(index++, value);
+                }
+                ps.setBytes(index++, encode.apply(row.getValue()));
+            }
+        });
+    }
+
+    // Element by element, like the ORDER BY of the lookup
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareKeys(List<Object> first, List<Object> second) {
+        for (int i = 0; i < first.size(); i++) {
+            int result = ((Comparable) first.get(i)).compareTo(second.get(i));
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+}
@@ -1,25 +1,26 @@
 package com.linkshortener.service;
 
 import com.linkshortener.dto.LinkAnalyticsResponse;
-import com.linkshortener.entity.Click;
+import com.linkshortener.dto.RecentClickStats;
+import com.linkshortener.entity.ClickRollup;
 import com.linkshortener.entity.Link;
+import com.linkshortener.repository.ClickAggregateRepository;
 import com.linkshortener.repository.ClickRepository;
+import com.linkshortener.repository.ClickRollupRepository;
+import com.linkshortener.repository.ClickSketchRepository;
+import com.linkshortener.repository.ClickStatsRepository;
+import com.linkshortener.repository.ClickTopValuesRepository;
 import com.linkshortener.repository.LinkRepository;
-import com.maxmind.geoip2.DatabaseReader;
-import com.maxmind.geoip2.exception.GeoIp2Exception;
-import com.maxmind.geoip2.model.CityResponse;
-import eu.bitwalker.useragentutils.UserAgent;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import jakarta.servlet.http.HttpServletRequest;
-import java.io.File;
-import java.io.IOException;
-import java.net.InetAddress;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -30,38 +31,49 @@ public class AnalyticsService {
     @Autowired
     private ClickRepository clickRepository;
     
+    @Autowired
+    private ClickRollupRepository clickRollupRepository;
+    
+    @Autowired
+    private ClickAggregateRepository clickAggregateRepository;
+    
+    @Autowired
+    private ClickSketchRepository clickSketchRepository;
+    
+    @Autowired
+    private ClickTopValuesRepository clickTopValuesRepository;
+    
+    @Autowired
+    private ClickRollupService clickRollupService;
+    
+    @Autowired
+    private RecentClickBuffer recentClickBuffer;
+    
     @Autowired
     private LinkRepository linkRepository;
     
     @Autowired
-    private LinkService linkService;
+    private ClickIngestionService clickIngestionService;
     
-    @Value("${geoip.database-path:}")
-    private String geoIpDatabasePath;
+    @Autowired
+    private ClickCounterService clickCounterService;
     
-    private DatabaseReader geoIpReader;
+    // "rollups", or "clicks" to aggregate the clicks table on every request
+    @Value("${app.analytics.source:rollups}")
+    private String analyticsSource;
     
-    public void recordClick(Link link, HttpServletRequest request) {
-        Click click = new Click();
-        click.setLink(link);
-        click.setIpAddress(getClientIpAddress(request));
-        click.setUserAgent(request.getHeader("User-Agent"));
-        click.setReferer(request.getHeader("Referer"));
-        
-        // Parse user agent
-        parseUserAgent(click);
-        
-        // Get geographic information
-        getGeographicInfo(click);
-        
-        // Detect if it's a bot
-        detectBot(click);
-        
-        // Save click record
-        clickRepository.save(click);
-        
-        // Update link click count
-        linkService.incrementClickCount(link);
+    /**
+     * Counts the click and captures it for asynchronous enrichment and persistence;
+     * never touches the database.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void recordClick(Long linkId, HttpServletRequest request) {
+        clickCounterService.increment(linkId);
+        clickIngestionService.submit(
+                linkId,
+                getClientIpAddress(request),
+                request.getHeader("User-Agent"),
+                request.getHeader("Referer"));
     }
     
     public LinkAnalyticsResponse getLinkAnalytics(Long linkId, Long userId, int days) {
@@ -79,55 +91,83 @@ public class AnalyticsService {
         analytics.setOriginalUrl(link.getOriginalUrl());
         analytics.setCreatedAt(link.getCreatedAt());
         
-        // Get basic stats
-        List<Click> allClicks = clickRepository.findByLinkIdOrderByClickedAtDesc(linkId);
-        analytics.setTotalClicks((long) allClicks.size());
-        
-        // Calculate unique clicks (by IP address)
-        Set<String> uniqueIps = allClicks.stream()
-                .map(Click::getIpAddress)
-                .collect(Collectors.toSet());
-        analytics.setUniqueClicks((long) uniqueIps.size());
-        
-        // Get last click time
-        if (!allClicks.isEmpty()) {
-            analytics.setLastClickAt(allClicks.get(0).getClickedAt());
-        }
-        
-        // Filter recent clicks
-        List<Click> recentClicks = allClicks.stream()
-                .filter(click -> click.getClickedAt().isAfter(since))
-                .collect(Collectors.toList());
+        // Every stat is aggregated by the database, from the rollups unless they are incomplete
+        ClickStatsRepository stats = getStatsSource();
+        ClickStatsRepository.Totals totals = stats.totals(linkId);
+        analytics.setTotalClicks(totals.clicks());
+        // Distinct IPs do not add up across days: the per-day sketches do, approximately
+        analytics.setUniqueClicks(stats == clickRollupRepository
+                ? clickSketchRepository.union(List.of(linkId), null, null).estimate()
+                : clickAggregateRepository.countUniqueIps(linkId));
+        analytics.setLastClickAt(totals.lastClickAt());
         
         // Daily clicks
-        analytics.setDailyClicks(getDailyClickStats(linkId, since));
+        analytics.setDailyClicks(getDailyClickStats(stats, linkId, since));
         
         // Hourly clicks
-        analytics.setHourlyClicks(getHourlyClickStats(recentClicks));
+        analytics.setHourlyClicks(getHourlyClickStats(stats, linkId, since));
         
         // Geographic stats
-        analytics.setClicksByCountry(getCountryStats(recentClicks));
-        analytics.setClicksByCity(getCityStats(recentClicks));
+        analytics.setClicksByCountry(getCountryStats(stats, linkId, since));
+        analytics.setClicksByCity(getCityStats(stats, linkId, since));
         
         // Technology stats
-        analytics.setClicksByBrowser(getBrowserStats(recentClicks));
-        analytics.setClicksByOS(getOSStats(recentClicks));
-        analytics.setClicksByDevice(getDeviceStats(recentClicks));
+        analytics.setClicksByBrowser(stats.sumByValue(linkId, ClickRollup.Dimension.BROWSER, since, 0).stream()
+                .map(row -> new LinkAnalyticsResponse.BrowserStats(row.value(), row.clicks()))
+                .collect(Collectors.toList()));
+        analytics.setClicksByOS(stats.sumByValue(linkId, ClickRollup.Dimension.OS, since, 0).stream()
+                .map(row -> new LinkAnalyticsResponse.OSStats(row.value(), row.clicks()))
+                .collect(Collectors.toList()));
+        analytics.setClicksByDevice(stats.sumByValue(linkId, ClickRollup.Dimension.DEVICE, since, 0).stream()
+                .map(row -> new LinkAnalyticsResponse.DeviceStats(row.value(), row.clicks()))
+                .collect(Collectors.toList()));
         
         // Referrer stats
-        analytics.setClicksByReferrer(getReferrerStats(recentClicks));
+        analytics.setClicksByReferrer(topValues(stats, linkId, ClickRollup.Dimension.REFERRER, since, 10).stream()
+                .map(row -> new LinkAnalyticsResponse.ReferrerStats(row.value(), row.clicks()))
+                .collect(Collectors.toList()));
         
         // Device type breakdown
-        analytics.setDeviceTypeBreakdown(getDeviceTypeBreakdown(recentClicks));
+        Map<String, Long> mobile = countsByValue(stats, linkId, ClickRollup.Dimension.MOBILE, since);
+        Map<String, Long> breakdown = new HashMap<>();
+        breakdown.put("mobile", mobile.getOrDefault("true", 0L));
+        breakdown.put("desktop", mobile.getOrDefault("false", 0L));
+        analytics.setDeviceTypeBreakdown(breakdown);
         
         // Bot detection stats
-        long botClicks = recentClicks.stream().mapToLong(click -> click.getIsBot() ? 1 : 0).sum();
-        analytics.setBotClicks(botClicks);
-        analytics.setRealClicks((long) recentClicks.size() - botClicks);
+        Map<String, Long> bots = countsByValue(stats, linkId, ClickRollup.Dimension.BOT, since);
+        analytics.setBotClicks(bots.getOrDefault("true", 0L));
+        analytics.setRealClicks(bots.getOrDefault("false", 0L));
         
         return analytics;
     }
     
+    /**
+     * Clicks of the last minutes, per minute up to three hours and per hour beyond, from the
+     * recent-click buffer when it holds the whole range, from the clicks table otherwise.
+     */
+    @Transactional(readOnly = true)
+    public RecentClickStats getRecentLinkAnalytics(Long linkId, Long userId, int minutes) {
+        Optional<Link> linkOpt = linkRepository.findById(linkId);
+        if (linkOpt.isEmpty() || (userId != null && !linkOpt.get().getUser().getId().equals(userId))) {
+            throw new IllegalArgumentException("Link not found or access denied");
+        }
+        if (minutes < 1 || minutes > recentClickBuffer.getWindow().toMinutes()) {
+            throw new IllegalArgumentException("Minutes must be between 1 and " + recentClickBuffer.getWindow().toMinutes());
+        }
+        
+        Duration bucket = Duration.ofMinutes(minutes <= 180 ? 1 : 60);
+        // Whole buckets, so that timeline points start on the minute or the hour
+        LocalDateTime since = LocalDateTime.now().minusMinutes(minutes)
+                .truncatedTo(minutes <= 180 ? ChronoUnit.MINUTES : ChronoUnit.HOURS);
+        RecentClickStats stats = recentClickBuffer.query(new long[] {linkId}, since, bucket);
+        if (stats == null) {
+            stats = getRecentLinkAnalyticsFromDatabase(linkId, since, bucket);
+        }
+        stats.setLinkId(linkId);
+        return stats;
+    }
+    
     public Map<String, Object> getUserDashboardStats(Long userId) {
         Map<String, Object> stats = new HashMap<>();
         
@@ -141,6 +181,7 @@ public class AnalyticsService {
         
         // Recent activity (last 30 days)
         LocalDateTime since = LocalDateTime.now().minusDays(30);
+        stats.put("uniqueVisitors", clickSketchRepository.unionForUser(userId, since.toLocalDate(), null).estimate());
         List<Object[]> dailyClicks = clickRepository.getDailyClicksForUser(userId, since);
         stats.put("dailyClicks", dailyClicks);
         
@@ -185,186 +226,93 @@ public class AnalyticsService {
         return request.getRemoteAddr();
     }
     
-    private void parseUserAgent(Click click) {
-        if (click.getUserAgent() != null) {
-            try {
-                UserAgent userAgent = UserAgent.parseUserAgentString(click.getUserAgent());
-                click.setBrowser(userAgent.getBrowser().getName());
-                click.setOperatingSystem(userAgent.getOperatingSystem().getName());
-                click.setDeviceType(userAgent.getOperatingSystem().getDeviceType().getName());
-                // Check if device type is mobile or tablet
-                boolean isMobile = userAgent.getOperatingSystem().getDeviceType().equals(eu.bitwalker.useragentutils.DeviceType.MOBILE) || 
-                                   userAgent.getOperatingSystem().getDeviceType().equals(eu.bitwalker.useragentutils.DeviceType.TABLET);
-                click.setIsMobile(isMobile);
-            } catch (Exception e) {
-                // Log error but continue
-                System.err.println("Failed to parse user agent: " + e.getMessage());
-            }
-        }
+    private RecentClickStats getRecentLinkAnalyticsFromDatabase(Long linkId, LocalDateTime since, Duration bucket) {
+        LocalDateTime now = LocalDateTime.now();
+        long bucketMillis = bucket.toMillis();
+        long[] timeline = new long[(int) Math.max(1, (Duration.between(since, now).toMillis() + bucketMillis - 1) / bucketMillis)];
+        ClickAggregator aggregator = new ClickAggregator();
+        clickRollupRepository.forEachClickOfLinkSince(linkId, since, click -> {
+            aggregator.accept(click);
+            long offset = Duration.between(since, click.getClickedAt()).toMillis() / bucketMillis;
+            timeline[(int) Math.min(offset, timeline.length - 1)]++;
+        });
+        
+        RecentClickStats stats = new RecentClickStats();
+        stats.setFrom(since);
+        stats.setTo(now);
+        stats.setSource("database");
+        stats.setTotalClicks(aggregator.getTotal());
+        stats.setBotClicks(aggregator.getBots());
+        stats.setMobileClicks(aggregator.getMobile());
+        stats.setBucketMinutes((int) bucket.toMinutes());
+        stats.setTimeline(RecentClickBuffer.toTimeline(timeline, since, bucket));
+        stats.setClicksByCountry(countsOf(aggregator, ClickRollup.Dimension.COUNTRY));
+        stats.setClicksByBrowser(countsOf(aggregator, ClickRollup.Dimension.BROWSER));
+        stats.setClicksByOS(countsOf(aggregator, ClickRollup.Dimension.OS));
+        stats.setClicksByDevice(countsOf(aggregator, ClickRollup.Dimension.DEVICE));
+        return stats;
     }
     
-    private void getGeographicInfo(Click click) {
-        if (click.getIpAddress() != null && !click.getIpAddress().isEmpty()) {
-            try {
-                if (geoIpReader == null && geoIpDatabasePath != null && !geoIpDatabasePath.isEmpty()) {
-                    File database = new File(geoIpDatabasePath);
-                    if (database.exists()) {
-                        geoIpReader = new DatabaseReader.Builder(database).build();
-                    }
-                }
-                
-                if (geoIpReader != null) {
-                    InetAddress ipAddress = InetAddress.getByName(click.getIpAddress());
-                    CityResponse response = geoIpReader.city(ipAddress);
-                    
-                    if (response.getCountry() != null) {
-                        click.setCountryCode(response.getCountry().getIsoCode());
-                        click.setCountryName(response.getCountry().getName());
-                    }
-                    
-                    if (response.getCity() != null) {
-                        click.setCityName(response.getCity().getName());
-                    }
-                }
-            } catch (IOException | GeoIp2Exception e) {
-                // Log error but continue
-                System.err.println("Failed to get geographic info: " + e.getMessage());
-            }
-        }
+    private static Map<String, Long> countsOf(ClickAggregator aggregator, ClickRollup.Dimension dimension) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        aggregator.top(dimension, 0).forEach(row -> counts.put(row.value(), row.clicks()));
+        return counts;
     }
     
-    private void detectBot(Click click) {
-        if (click.getUserAgent() != null) {
-            String userAgent = click.getUserAgent().toLowerCase();
-            String[] botKeywords = {
-                "bot", "crawler", "spider", "scraper", "archiver", "indexer",
-                "google", "bing", "yahoo", "facebook", "twitter", "linkedin",
-                "whatsapp", "telegram", "slack", "discord"
-            };
-            
-            for (String keyword : botKeywords) {
-                if (userAgent.contains(keyword)) {
-                    click.setIsBot(true);
-                    return;
-                }
-            }
+    private ClickStatsRepository getStatsSource() {
+        if ("clicks".equals(analyticsSource) || clickRollupService.isRebuilding()) {
+            return clickAggregateRepository;
         }
-        click.setIsBot(false);
-    }
-    
-    private List<LinkAnalyticsResponse.DailyClickStats> getDailyClickStats(Long linkId, LocalDateTime since) {
-        List<Object[]> rawData = clickRepository.getDailyClicksForLink(linkId, since);
-        return rawData.stream()
-                .map(row -> new LinkAnalyticsResponse.DailyClickStats(
-                        row[0].toString(),
-                        ((Number) row[1]).longValue()
-                ))
-                .collect(Collectors.toList());
+        return clickRollupRepository;
     }
     
-    private List<LinkAnalyticsResponse.HourlyClickStats> getHourlyClickStats(List<Click> clicks) {
-        Map<Integer, Long> hourlyStats = new HashMap<>();
-        for (int i = 0; i < 24; i++) {
-            hourlyStats.put(i, 0L);
+    // Referrers and cities are not rolled up by value: the rollups keep heavy-hitter summaries
+    // of them per day, so the range starts at the beginning of the first day
+    private List<ClickStatsRepository.ValueCount> topValues(ClickStatsRepository stats, Long linkId,
+                                                            ClickRollup.Dimension dimension, LocalDateTime since,
+                                                            int limit) {
+        if (stats == clickRollupRepository) {
+            return clickTopValuesRepository.top(linkId, dimension, since.toLocalDate(), limit);
         }
-        
-        clicks.forEach(click -> {
-            int hour = click.getClickedAt().getHour();
-            hourlyStats.put(hour, hourlyStats.get(hour) + 1);
-        });
-        
-        return hourlyStats.entrySet().stream()
-                .map(entry -> new LinkAnalyticsResponse.HourlyClickStats(entry.getKey(), entry.getValue()))
-                .sorted(Comparator.comparing(LinkAnalyticsResponse.HourlyClickStats::getHour))
-                .collect(Collectors.toList());
-    }
-    
-    private List<LinkAnalyticsResponse.CountryClickStats> getCountryStats(List<Click> clicks) {
-        Map<String, Long> countryStats = clicks.stream()
-                .filter(click -> click.getCountryCode() != null)
-                .collect(Collectors.groupingBy(Click::getCountryCode, Collectors.counting()));
-        
-        return countryStats.entrySet().stream()
-                .map(entry -> {
-                    Click sampleClick = clicks.stream()
-                            .filter(c -> entry.getKey().equals(c.getCountryCode()))
-                            .findFirst()
-                            .orElse(null);
-                    String countryName = sampleClick != null ? sampleClick.getCountryName() : entry.getKey();
-                    return new LinkAnalyticsResponse.CountryClickStats(entry.getKey(), countryName, entry.getValue());
-                })
-                .sorted((a, b) -> b.getClicks().compareTo(a.getClicks()))
-                .collect(Collectors.toList());
+        return stats.sumByValue(linkId, dimension, since, limit);
     }
     
-    private List<LinkAnalyticsResponse.CityClickStats> getCityStats(List<Click> clicks) {
-        Map<String, Long> cityStats = clicks.stream()
-                .filter(click -> click.getCityName() != null)
-                .collect(Collectors.groupingBy(Click::getCityName, Collectors.counting()));
-        
-        return cityStats.entrySet().stream()
-                .map(entry -> {
-                    Click sampleClick = clicks.stream()
-                            .filter(c -> entry.getKey().equals(c.getCityName()))
-                            .findFirst()
-                            .orElse(null);
-                    String countryCode = sampleClick != null ? sampleClick.getCountryCode() : "Unknown";
-                    return new LinkAnalyticsResponse.CityClickStats(entry.getKey(), countryCode, entry.getValue());
-                })
-                .sorted((a, b) -> b.getClicks().compareTo(a.getClicks()))
-                .limit(10)
-                .collect(Collectors.toList());
+    private Map<String, Long> countsByValue(ClickStatsRepository stats, Long linkId, ClickRollup.Dimension dimension,
+                                            LocalDateTime since) {
+        return stats.sumByValue(linkId, dimension, since, 0).stream()
+                .collect(Collectors.toMap(ClickStatsRepository.ValueCount::value, ClickStatsRepository.ValueCount::clicks));
     }
     
-    private List<LinkAnalyticsResponse.BrowserStats> getBrowserStats(List<Click> clicks) {
-        Map<String, Long> browserStats = clicks.stream()
-                .filter(click -> click.getBrowser() != null)
-                .collect(Collectors.groupingBy(Click::getBrowser, Collectors.counting()));
-        
-        return browserStats.entrySet().stream()
-                .map(entry -> new LinkAnalyticsResponse.BrowserStats(entry.getKey(), entry.getValue()))
-                .sorted((a, b) -> b.getClicks().compareTo(a.getClicks()))
+    private List<LinkAnalyticsResponse.DailyClickStats> getDailyClickStats(ClickStatsRepository stats, Long linkId,
+                                                                           LocalDateTime since) {
+        return stats.daily(linkId, since).stream()
+                .map(row -> new LinkAnalyticsResponse.DailyClickStats(row.date(), row.clicks()))
                 .collect(Collectors.toList());
     }
     
-    private List<LinkAnalyticsResponse.OSStats> getOSStats(List<Click> clicks) {
-        Map<String, Long> osStats = clicks.stream()
-                .filter(click -> click.getOperatingSystem() != null)
-                .collect(Collectors.groupingBy(Click::getOperatingSystem, Collectors.counting()));
-        
-        return osStats.entrySet().stream()
-                .map(entry -> new LinkAnalyticsResponse.OSStats(entry.getKey(), entry.getValue()))
-                .sorted((a, b) -> b.getClicks().compareTo(a.getClicks()))
-                .collect(Collectors.toList());
+    private List<LinkAnalyticsResponse.HourlyClickStats> getHourlyClickStats(ClickStatsRepository stats, Long linkId,
+                                                                             LocalDateTime since) {
+        long[] hourlyStats = stats.clicksByHourOfDay(linkId, since);
+        List<LinkAnalyticsResponse.HourlyClickStats> hourly = new ArrayList<>(24);
+        for (int hour = 0; hour < 24; hour++) {
+            hourly.add(new LinkAnalyticsResponse.HourlyClickStats(hour, hourlyStats[hour]));
+        }
+        return hourly;
     }
     
-    private List<LinkAnalyticsResponse.DeviceStats> getDeviceStats(List<Click> clicks) {
-        Map<String, Long> deviceStats = clicks.stream()
-                .filter(click -> click.getDeviceType() != null)
-                .collect(Collectors.groupingBy(Click::getDeviceType, Collectors.counting()));
-        
-        return deviceStats.entrySet().stream()
-                .map(entry -> new LinkAnalyticsResponse.DeviceStats(entry.getKey(), entry.getValue()))
-                .sorted((a, b) -> b.getClicks().compareTo(a.getClicks()))
+    private List<LinkAnalyticsResponse.CountryClickStats> getCountryStats(ClickStatsRepository stats, Long linkId,
+                                                                         LocalDateTime since) {
+        return stats.sumByValue(linkId, ClickRollup.Dimension.COUNTRY, since, 0).stream()
+                .map(row -> new LinkAnalyticsResponse.CountryClickStats(
+                        row.value(), row.label() != null ? row.label() : row.value(), row.clicks()))
                 .collect(Collectors.toList());
     }
     
-    private List<LinkAnalyticsResponse.ReferrerStats> getReferrerStats(List<Click> clicks) {
-        Map<String, Long> referrerStats = clicks.stream()
-                .filter(click -> click.getReferer() != null)
-                .collect(Collectors.groupingBy(Click::getReferer, Collectors.counting()));
-        
-        return referrerStats.entrySet().stream()
-                .map(entry -> new LinkAnalyticsResponse.ReferrerStats(entry.getKey(), entry.getValue()))
-                .sorted((a, b) -> b.getClicks().compareTo(a.getClicks()))
-                .limit(10)
+    private List<LinkAnalyticsResponse.CityClickStats> getCityStats(ClickStatsRepository stats, Long linkId,
+                                                                   LocalDateTime since) {
+        return topValues(stats, linkId, ClickRollup.Dimension.CITY, since, 10).stream()
+                .map(row -> new LinkAnalyticsResponse.CityClickStats(
+                        row.value(), row.label() != null ? row.label() : "Unknown", row.clicks()))
                 .collect(Collectors.toList());
     }
-    
-    private Map<String, Long> getDeviceTypeBreakdown(List<Click> clicks) {
-        Map<String, Long> breakdown = new HashMap<>();
-        breakdown.put("mobile", clicks.stream().mapToLong(click -> click.getIsMobile() ? 1 : 0).sum());
-        breakdown.put("desktop", clicks.size() - breakdown.get("mobile"));
-        return breakdown;
-    }
 }
@@ -0,0 +1,361 @@
+package com.linkshortener.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.linkshortener.dto.BulkLinkResult;
+import com.linkshortener.dto.CreateLinkRequest;
+import com.linkshortener.entity.Link;
+import com.linkshortener.entity.LinkCode;
+import com.linkshortener.entity.User;
+import com.linkshortener.repository.LinkBatchRepository;
+import com.linkshortener.repository.LinkCodeRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk link creation from NDJSON: one {@link CreateLinkRequest} per input line, one
+ * {@link BulkLinkResult} per output line. Lines are processed in chunks; within a chunk,
+ * validation and password hashing run in parallel, links and their codes are written with
+ * multi-row INSERTs in one transaction, and results are flushed before the next chunk is
+ * read. A rejected line never fails the others. Hashing runs on a pool of its own, shared by
+ * all imports, so a large import cannot starve the common fork-join pool. QR codes are not generated up front: the
+ * QR endpoint renders them on first request.
+ */
+@Service
+public class BulkLinkService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkLinkService.class);
+
+    private static final int MAX_SHORT_CODE_ATTEMPTS = 5;
+
+    // A chunk's codes are reserved in one statement, up to two rows per link
+    private static final int MAX_CHUNK_SIZE = 1000;
+
+    @Autowired
+    private LinkService linkService;
+
+    @Autowired
+    private ShortCodeGenerator shortCodeGenerator;
+
+    @Autowired
+    private LinkBatchRepository linkBatchRepository;
+
+    @Autowired
+    private LinkCodeRepository linkCodeRepository;
+
+    @Autowired
+    private LinkCodeFilter linkCodeFilter;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.bulk.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.bulk.max-items:100000}")
+    private int maxItems;
+
+    // 0 means one hashing thread per core; BCrypt is CPU bound
+    @Value("${app.bulk.parallelism:0}")
+    private int parallelism;
+
+    private ObjectReader requestReader;
+    private ObjectWriter resultWriter;
+    private TransactionTemplate chunkTransaction;
+    private ThreadPoolExecutor preparePool;
+
+    @PostConstruct
+    void init() {
+        requestReader = objectMapper.readerFor(CreateLinkRequest.class);
+        resultWriter = objectMapper.writerFor(BulkLinkResult.class);
+        chunkTransaction = new TransactionTemplate(transactionManager);
+        chunkSize = Math.max(1, Math.min(chunkSize, MAX_CHUNK_SIZE));
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        // When concurrent imports fill the queue, the importing thread hashes its own items
+        preparePool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_CHUNK_SIZE), Thread.ofPlatform().daemon(true).name("bulk-prepare-", 0).factory(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    void stop() {
+        preparePool.shutdownNow();
+    }
+
+    /**
+     * Reads NDJSON requests from {@code in} until end of stream and writes one result per
+     * non-blank line to {@code out}. Returns the number of links created.
+     */
+    public int importLinks(InputStream in, OutputStream out, User user) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<Item> chunk = new ArrayList<>(chunkSize);
+        int lineNumber = 0;
+        int items = 0;
+        int created = 0;
+        int rejectedLine = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (++items > maxItems) {
+                rejectedLine = lineNumber;
+                break;
+            }
+            chunk.add(parse(lineNumber, line));
+            if (chunk.size() >= chunkSize) {
+                created += processChunk(chunk, user, out);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            created += processChunk(chunk, user, out);
+        }
+        // After the results of the lines before it, so the output stays in input order
+        if (rejectedLine > 0) {
+            write(out, BulkLinkResult.error(rejectedLine, "Import is limited to " + maxItems + " links"));
+        }
+        out.flush();
+        logger.info("Bulk import: {} of {} links created", created, Math.min(items, maxItems));
+        return created;
+    }
+
+    private Item parse(int lineNumber, String line) {
+        Item item = new Item(lineNumber);
+        try {
+            item.request = requestReader.readValue(line);
+        } catch (IOException e) {
+            item.error = "Malformed JSON";
+            return item;
+        }
+        if (item.request == null) {
+            item.error = "Malformed JSON";
+        }
+        return item;
+    }
+
+    private int processChunk(List<Item> chunk, User user, OutputStream out) throws IOException {
+        // BCrypt dominates the cost of a link, so this is the part worth spreading over cores
+        CompletableFuture.allOf(chunk.stream()
+                .filter(Item::isPending)
+                .map(item -> CompletableFuture.runAsync(() -> prepare(item, user), preparePool))
+                .toArray(CompletableFuture[]::new)).join();
+
+        List<Item> pending = chunk.stream().filter(Item::isPending).collect(Collectors.toList());
+        rejectTakenAliases(pending);
+        pending.removeIf(item -> !item.isPending());
+
+        if (!pending.isEmpty()) {
+            save(pending);
+        }
+
+        int created = 0;
+        for (Item item : chunk) {
+            if (item.isPending()) {
+                Link link = item.link;
+                write(out, BulkLinkResult.created(item.line, link.getId(), link.getShortCode(),
+                        link.getCustomAlias(), linkService.buildShortUrl(link)));
+                created++;
+            } else {
+                write(out, BulkLinkResult.error(item.line, item.error));
+            }
+        }
+        out.flush();
+        return created;
+    }
+
+    /**
+     * Persists the items in one transaction. When it fails, each half is saved on its own,
+     * down to single items, so that a line the database rejects only fails itself.
+     */
+    private void save(List<Item> items) {
+        try {
+            chunkTransaction.executeWithoutResult(status -> persist(items));
+        } catch (RuntimeException e) {
+            if (items.size() == 1) {
+                logger.warn("Bulk import line {} could not be saved: {}", items.get(0).line, e.getMessage());
+                items.get(0).error = "Could not save link";
+                return;
+            }
+            logger.debug("Bulk import of {} links failed, saving them in halves: {}", items.size(), e.getMessage());
+            // Nothing was written: undo what the failed attempt set on the items
+            for (Item item : items) {
+                item.link.setId(null);
+                item.link.setCustomAlias(null);
+                item.error = null;
+            }
+            int half = items.size() / 2;
+            save(items.subList(0, half));
+            save(items.subList(half, items.size()));
+            return;
+        }
+        for (Item item : items) {
+            if (item.isPending()) {
+                linkCodeFilter.add(item.link.getShortCode());
+                linkCodeFilter.add(item.link.getCustomAlias());
+            }
+        }
+    }
+
+    private void prepare(Item item, User user) {
+        Set<ConstraintViolation<CreateLinkRequest>> violations = validator.validate(item.request);
+        if (!violations.isEmpty()) {
+            item.error = violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+            return;
+        }
+        try {
+            item.link = linkService.prepareLink(item.request, user);
+        } catch (IllegalArgumentException e) {
+            item.error = e.getMessage();
+            return;
+        } catch (RuntimeException e) {
+            logger.warn("Bulk import line {} could not be prepared: {}", item.line, e.getMessage());
+            item.error = "Could not save link";
+            return;
+        }
+        String alias = item.request.getCustomAlias();
+        item.alias = alias != null && !alias.trim().isEmpty() ? alias.trim() : null;
+    }
+
+    /**
+     * Rejects aliases repeated within the chunk or already reserved. Only a pre-check: a
+     * concurrent writer can still take an alias before the chunk commits, see {@link #persist}.
+     */
+    private void rejectTakenAliases(List<Item> items) {
+        Set<String> aliases = new HashSet<>();
+        for (Item item : items) {
+            if (item.alias != null && !aliases.add(item.alias)) {
+                item.error = "Custom alias already exists";
+            }
+        }
+        if (aliases.isEmpty()) {
+            return;
+        }
+        Set<String> taken = linkCodeRepository.findTaken(aliases);
+        for (Item item : items) {
+            if (item.isPending() && item.alias != null && taken.contains(item.alias)) {
+                item.error = "Custom alias already exists";
+            }
+        }
+    }
+
+    private void persist(List<Item> items) {
+        List<Link> links = new ArrayList<>(items.size());
+        List<LinkCode> codes = new ArrayList<>(items.size());
+        for (Item item : items) {
+            item.link.setShortCode(shortCodeGenerator.nextCode());
+            links.add(item.link);
+        }
+        linkBatchRepository.insertAll(links);
+        for (Item item : items) {
+            if (item.alias != null) {
+                codes.add(new LinkCode(item.alias, item.link, LinkCode.Kind.ALIAS));
+            }
+            codes.add(new LinkCode(item.link.getShortCode(), item.link, LinkCode.Kind.SHORT_CODE));
+        }
+
+        try {
+            linkCodeRepository.reserveAll(codes);
+            for (Item item : items) {
+                item.link.setCustomAlias(item.alias);
+            }
+        } catch (DuplicateKeyException e) {
+            // Lost a race for some code since the pre-check: fall back to one reservation per code
+            logger.debug("Bulk code reservation conflicted, reserving one by one");
+            for (Item item : items) {
+                reserveIndividually(item);
+            }
+        }
+
+        List<Link> aliased = items.stream()
+                .filter(item -> item.isPending() && item.link.getCustomAlias() != null)
+                .map(item -> item.link)
+                .collect(Collectors.toList());
+        if (!aliased.isEmpty()) {
+            linkBatchRepository.updateAliases(aliased);
+        }
+    }
+
+    private void reserveIndividually(Item item) {
+        Link link = item.link;
+        if (item.alias != null) {
+            if (!linkCodeRepository.reserve(item.alias, link.getId(), LinkCode.Kind.ALIAS)) {
+                item.error = "Custom alias already exists";
+                linkBatchRepository.delete(link.getId());
+                return;
+            }
+            link.setCustomAlias(item.alias);
+        }
+        for (int attempt = 0; attempt < MAX_SHORT_CODE_ATTEMPTS; attempt++) {
+            if (linkCodeRepository.reserve(link.getShortCode(), link.getId(), LinkCode.Kind.SHORT_CODE)) {
+                return;
+            }
+            link.setShortCode(shortCodeGenerator.nextCode());
+            linkBatchRepository.updateShortCode(link.getId(), link.getShortCode());
+        }
+        // Only this link is given up; its alias goes with it
+        logger.warn("Bulk import line {}: no free short code after {} attempts", item.line, MAX_SHORT_CODE_ATTEMPTS);
+        item.error = "Could not reserve a free short code";
+        link.setCustomAlias(null);
+        linkCodeRepository.releaseAll(link.getId());
+        linkBatchRepository.delete(link.getId());
+    }
+
+    private void write(OutputStream out, BulkLinkResult result) throws IOException {
+        out.write(resultWriter.writeValueAsBytes(result));
+        out.write('\n');
+    }
+
+    private static final class Item {
+        final int line;
+        CreateLinkRequest request;
+        Link link;
+        String alias;
+        String error;
+
+        Item(int line) {
+            this.line = line;
+        }
+
+        boolean isPending() {
+            return error == null;
+        }
+    }
+}
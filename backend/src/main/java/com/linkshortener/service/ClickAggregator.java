@@ -0,0 +1,251 @@
+package com.linkshortener.service;
+
+import com.linkshortener.entity.Click;
+import com.linkshortener.entity.ClickRollup;
+import com.linkshortener.repository.ClickStatsRepository;
+import com.linkshortener.util.HyperLogLog;
+import com.linkshortener.util.ReferrerNormalizer;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * Every analytics dimension of a set of clicks, computed in one pass, with a HyperLogLog
+ * sketch of the visitor IPs. Counters are mutable primitives, so counting a click
+ * allocates nothing once its values have been seen. Aggregators over disjoint parts of
+ * the clicks merge into the aggregator of the whole, which is what {@link #collector()}
+ * relies on for parallel streams. The source does not matter: entities from JPA, rows
+ * rebuilt from a JDBC stream or an in-memory buffer. Referrers are counted normalized,
+ * by host unless the aggregator is given another granularity.
+ * Not thread-safe; give each thread its own instance and merge them.
+ */
+public final class ClickAggregator {
+
+    // The dimensions kept as value counts; TOTAL, BOT and MOBILE are plain counters
+    private static final ClickRollup.Dimension[] VALUE_DIMENSIONS = {
+            ClickRollup.Dimension.COUNTRY,
+            ClickRollup.Dimension.CITY,
+            ClickRollup.Dimension.BROWSER,
+            ClickRollup.Dimension.OS,
+            ClickRollup.Dimension.DEVICE,
+            ClickRollup.Dimension.REFERRER
+    };
+
+    /**
+     * Count of one value, with the label of the first click that had it and the time of the
+     * latest.
+     */
+    public static final class Counter {
+        private long count;
+        private String label;
+        private LocalDateTime lastClickAt;
+
+        public long getCount() { return count; }
+        public String getLabel() { return label; }
+        public LocalDateTime getLastClickAt() { return lastClickAt; }
+    }
+
+    private long total;
+    private long bots;
+    private long mobile;
+    private final long[] hourOfDay = new long[24];
+    private LocalDateTime firstClickAt;
+    private LocalDateTime lastClickAt;
+    // Latest click on each side of the BOT and MOBILE counters
+    private LocalDateTime lastBotClickAt;
+    private LocalDateTime lastHumanClickAt;
+    private LocalDateTime lastMobileClickAt;
+    private LocalDateTime lastDesktopClickAt;
+    private final Map<ClickRollup.Dimension, Map<String, Counter>> values = new EnumMap<>(ClickRollup.Dimension.class);
+    // Created with the first IP seen
+    private HyperLogLog visitors;
+    private final ReferrerNormalizer.Granularity referrerGranularity;
+
+    public ClickAggregator() {
+        this(ReferrerNormalizer.Granularity.HOST);
+    }
+
+    public ClickAggregator(ReferrerNormalizer.Granularity referrerGranularity) {
+        this.referrerGranularity = referrerGranularity;
+        for (ClickRollup.Dimension dimension : VALUE_DIMENSIONS) {
+            values.put(dimension, new HashMap<>());
+        }
+    }
+
+    /**
+     * Collects clicks into an aggregator; parallel streams aggregate each split separately
+     * and merge the results.
+     */
+    public static Collector<Click, ClickAggregator, ClickAggregator> collector() {
+        Supplier<ClickAggregator> supplier = ClickAggregator::new;
+        BiConsumer<ClickAggregator, Click> accumulator = ClickAggregator::accept;
+        BinaryOperator<ClickAggregator> combiner = ClickAggregator::merge;
+        return Collector.of(supplier, accumulator, combiner, Function.identity(),
+                Collector.Characteristics.UNORDERED, Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    public void accept(Click click) {
+        total++;
+        LocalDateTime clickedAt = click.getClickedAt();
+        if (Boolean.TRUE.equals(click.getIsBot())) {
+            bots++;
+            lastBotClickAt = latest(lastBotClickAt, clickedAt);
+        } else {
+            lastHumanClickAt = latest(lastHumanClickAt, clickedAt);
+        }
+        if (Boolean.TRUE.equals(click.getIsMobile())) {
+            mobile++;
+            lastMobileClickAt = latest(lastMobileClickAt, clickedAt);
+        } else {
+            lastDesktopClickAt = latest(lastDesktopClickAt, clickedAt);
+        }
+        if (clickedAt != null) {
+            hourOfDay[clickedAt.getHour()]++;
+            if (firstClickAt == null || clickedAt.isBefore(firstClickAt)) {
+                firstClickAt = clickedAt;
+            }
+            if (lastClickAt == null || clickedAt.isAfter(lastClickAt)) {
+                lastClickAt = clickedAt;
+            }
+        }
+        if (click.getIpAddress() != null) {
+            if (visitors == null) {
+                visitors = new HyperLogLog();
+            }
+            visitors.add(click.getIpAddress());
+        }
+        count(ClickRollup.Dimension.COUNTRY, click.getCountryCode(), click.getCountryName(), clickedAt);
+        count(ClickRollup.Dimension.CITY, click.getCityName(), click.getCountryCode(), clickedAt);
+        count(ClickRollup.Dimension.BROWSER, click.getBrowser(), null, clickedAt);
+        count(ClickRollup.Dimension.OS, click.getOperatingSystem(), null, clickedAt);
+        count(ClickRollup.Dimension.DEVICE, click.getDeviceType(), null, clickedAt);
+        count(ClickRollup.Dimension.REFERRER, ReferrerNormalizer.normalize(click.getReferer(), referrerGranularity),
+                null, clickedAt);
+    }
+
+    /**
+     * Adds the counts of {@code other}, which must cover different clicks, and returns this.
+     */
+    public ClickAggregator merge(ClickAggregator other) {
+        total += other.total;
+        bots += other.bots;
+        mobile += other.mobile;
+        for (int hour = 0; hour < hourOfDay.length; hour++) {
+            hourOfDay[hour] += other.hourOfDay[hour];
+        }
+        if (other.firstClickAt != null && (firstClickAt == null || other.firstClickAt.isBefore(firstClickAt))) {
+            firstClickAt = other.firstClickAt;
+        }
+        lastClickAt = latest(lastClickAt, other.lastClickAt);
+        lastBotClickAt = latest(lastBotClickAt, other.lastBotClickAt);
+        lastHumanClickAt = latest(lastHumanClickAt, other.lastHumanClickAt);
+        lastMobileClickAt = latest(lastMobileClickAt, other.lastMobileClickAt);
+        lastDesktopClickAt = latest(lastDesktopClickAt, other.lastDesktopClickAt);
+        if (other.visitors != null) {
+            visitors = (visitors == null ? new HyperLogLog() : visitors).merge(other.visitors);
+        }
+        for (ClickRollup.Dimension dimension : VALUE_DIMENSIONS) {
+            Map<String, Counter> counters = values.get(dimension);
+            other.values.get(dimension).forEach((value, theirs) -> {
+                Counter ours = counters.get(value);
+                if (ours == null) {
+                    ours = new Counter();
+                    ours.label = theirs.label;
+                    counters.put(value, ours);
+                }
+                ours.count += theirs.count;
+                ours.lastClickAt = latest(ours.lastClickAt, theirs.lastClickAt);
+            });
+        }
+        return this;
+    }
+
+    public long getTotal() { return total; }
+    public long getBots() { return bots; }
+    public long getMobile() { return mobile; }
+    public LocalDateTime getFirstClickAt() { return firstClickAt; }
+    public LocalDateTime getLastClickAt() { return lastClickAt; }
+
+    /**
+     * Sketch of the distinct visitor IPs, or null if no click had one.
+     */
+    public HyperLogLog getVisitors() { return visitors; }
+
+    public long estimateUniqueVisitors() {
+        return visitors != null ? visitors.estimate() : 0L;
+    }
+
+    /**
+     * Clicks by hour of day, indexed 0 to 23.
+     */
+    public long[] getHourOfDay() {
+        return hourOfDay.clone();
+    }
+
+    /**
+     * The values seen for a dimension and their counts. TOTAL has the single value "",
+     * BOT and MOBILE the values "true" and "false", like the rollups.
+     */
+    public Map<String, Counter> getCounters(ClickRollup.Dimension dimension) {
+        return switch (dimension) {
+            case TOTAL -> Map.of("", counter(total, lastClickAt));
+            case BOT -> Map.of("true", counter(bots, lastBotClickAt), "false", counter(total - bots, lastHumanClickAt));
+            case MOBILE -> Map.of("true", counter(mobile, lastMobileClickAt),
+                    "false", counter(total - mobile, lastDesktopClickAt));
+            default -> values.get(dimension);
+        };
+    }
+
+    /**
+     * The most clicked values of a dimension, ties by value; all of them when limit is not positive.
+     */
+    public List<ClickStatsRepository.ValueCount> top(ClickRollup.Dimension dimension, int limit) {
+        Set<Map.Entry<String, Counter>> entries = getCounters(dimension).entrySet();
+        List<ClickStatsRepository.ValueCount> result = new ArrayList<>(entries.size());
+        for (Map.Entry<String, Counter> entry : entries) {
+            if (entry.getValue().count > 0) {
+                result.add(new ClickStatsRepository.ValueCount(entry.getKey(), entry.getValue().label, entry.getValue().count));
+            }
+        }
+        result.sort(Comparator.comparingLong(ClickStatsRepository.ValueCount::clicks).reversed()
+                .thenComparing(ClickStatsRepository.ValueCount::value));
+        return limit > 0 && result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    private void count(ClickRollup.Dimension dimension, String value, String label, LocalDateTime clickedAt) {
+        if (value == null) {
+            return;
+        }
+        Counter counter = values.get(dimension).get(value);
+        if (counter == null) {
+            counter = new Counter();
+            counter.label = label;
+            values.get(dimension).put(value, counter);
+        }
+        counter.count++;
+        counter.lastClickAt = latest(counter.lastClickAt, clickedAt);
+    }
+
+    private static Counter counter(long count, LocalDateTime lastClickAt) {
+        Counter counter = new Counter();
+        counter.count = count;
+        counter.lastClickAt = lastClickAt;
+        return counter;
+    }
+
+    // The later of two times, either of which may be null
+    private static LocalDateTime latest(LocalDateTime first, LocalDateTime second) {
+        return first == null || (second != null && second.isAfter(first)) ? second : first;
+    }
+}
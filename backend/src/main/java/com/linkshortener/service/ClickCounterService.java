@@ -0,0 +1,146 @@
+package com.linkshortener.service;
+
+import com.linkshortener.repository.LinkCounterRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind click counters. Each redirect only bumps an in-memory counter;
+ * a scheduled job periodically applies the accumulated deltas to the database in one
+ * JDBC batch. Persisted counts plus {@link #getPendingDelta(Long)} give the live total.
+ */
+@Service
+public class ClickCounterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClickCounterService.class);
+
+    // Counters with nothing to flush for this many rounds are dropped to bound memory
+    private static final int IDLE_FLUSHES_BEFORE_EVICTION = 3;
+
+    // Value of a counter removed from the map; writers that find it start a new counter
+    private static final long RETIRED = Long.MIN_VALUE;
+
+    private static final class PendingCount {
+        final AtomicLong clicks = new AtomicLong();
+        // Only written by the flushing thread; the count itself is never reset
+        volatile long flushed;
+        int idleFlushes;
+
+        long unflushed() {
+            long total = clicks.get();
+            return total == RETIRED ? 0 : total - flushed;
+        }
+
+        /**
+         * Adds unless retired. Retiring and adding are compare-and-sets on the same value,
+         * so a click either lands before the retirement, and prevents it, or after, and fails.
+         */
+        boolean tryAdd(long delta) {
+            for (long total = clicks.get(); total != RETIRED; total = clicks.get()) {
+                if (clicks.compareAndSet(total, total + delta)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean retireIfFlushed() {
+            return clicks.compareAndSet(flushed, RETIRED);
+        }
+    }
+
+    @Autowired
+    private LinkCounterRepository linkCounterRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ConcurrentHashMap<Long, PendingCount> counters = new ConcurrentHashMap<>();
+
+    // Not a monitor: a virtual thread blocked in JDBC while holding one pins its carrier thread
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("clicks.counter.pending.links", counters, Map::size).register(meterRegistry);
+    }
+
+    public void increment(Long linkId) {
+        add(linkId, 1);
+    }
+
+    public void add(Long linkId, long delta) {
+        while (!counters.computeIfAbsent(linkId, id -> new PendingCount()).tryAdd(delta)) {
+            // Retired by the flush and about to leave the map
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Clicks recorded on this node that are not yet reflected in links.click_count.
+     */
+    public long getPendingDelta(Long linkId) {
+        if (linkId == null) {
+            return 0;
+        }
+        PendingCount count = counters.get(linkId);
+        return count != null ? count.unflushed() : 0;
+    }
+
+    @Scheduled(fixedDelayString = "${app.clicks.counter.flush-interval-ms:5000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushPending() {
+        Map<Long, Long> deltas = new HashMap<>();
+        Map<Long, PendingCount> flushedCounts = new HashMap<>();
+
+        counters.forEach((linkId, count) -> {
+            long delta = count.unflushed();
+            if (delta > 0) {
+                count.idleFlushes = 0;
+                deltas.put(linkId, delta);
+                flushedCounts.put(linkId, count);
+            } else if (++count.idleFlushes >= IDLE_FLUSHES_BEFORE_EVICTION) {
+                counters.computeIfPresent(linkId, (id, current) ->
+                        current == count && count.retireIfFlushed() ? null : current);
+            }
+        });
+
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        try {
+            linkCounterRepository.addClickCounts(deltas);
+            deltas.forEach((linkId, delta) -> flushedCounts.get(linkId).flushed += delta);
+        } catch (RuntimeException e) {
+            // Deltas stay pending and are retried on the next flush
+            logger.error("Failed to flush click counts for {} links: {}", deltas.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+}
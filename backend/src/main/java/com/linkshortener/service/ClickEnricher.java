@@ -0,0 +1,121 @@
+package com.linkshortener.service;
+
+import com.linkshortener.entity.Click;
+import com.maxmind.geoip2.DatabaseReader;
+import com.maxmind.geoip2.exception.GeoIp2Exception;
+import com.maxmind.geoip2.model.CityResponse;
+import eu.bitwalker.useragentutils.DeviceType;
+import eu.bitwalker.useragentutils.UserAgent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+
+/**
+ * Derives browser, OS, device, location and bot flags from the raw facts of a click.
+ * Runs on the ingestion workers, never on the redirect thread.
+ */
+@Component
+public class ClickEnricher {
+
+    private static final String[] BOT_KEYWORDS = {
+        "bot", "crawler", "spider", "scraper", "archiver", "indexer",
+        "google", "bing", "yahoo", "facebook", "twitter", "linkedin",
+        "whatsapp", "telegram", "slack", "discord"
+    };
+
+    @Value("${geoip.database-path:}")
+    private String geoIpDatabasePath;
+
+    private DatabaseReader geoIpReader;
+
+    @PostConstruct
+    void openGeoIpDatabase() {
+        if (geoIpDatabasePath == null || geoIpDatabasePath.isEmpty()) {
+            return;
+        }
+        File database = new File(geoIpDatabasePath);
+        if (!database.exists()) {
+            return;
+        }
+        try {
+            // DatabaseReader is thread-safe, one instance is shared by all workers
+            geoIpReader = new DatabaseReader.Builder(database).build();
+        } catch (IOException e) {
+            System.err.println("Failed to open GeoIP database: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void closeGeoIpDatabase() throws IOException {
+        if (geoIpReader != null) {
+            geoIpReader.close();
+        }
+    }
+
+    public void enrich(Click click) {
+        parseUserAgent(click);
+        getGeographicInfo(click);
+        detectBot(click);
+    }
+
+    public void parseUserAgent(Click click) {
+        if (click.getUserAgent() != null) {
+            try {
+                UserAgent userAgent = UserAgent.parseUserAgentString(click.getUserAgent());
+                click.setBrowser(userAgent.getBrowser().getName());
+                click.setOperatingSystem(userAgent.getOperatingSystem().getName());
+                click.setDeviceType(userAgent.getOperatingSystem().getDeviceType().getName());
+                // Check if device type is mobile or tablet
+                DeviceType deviceType = userAgent.getOperatingSystem().getDeviceType();
+                click.setIsMobile(deviceType == DeviceType.MOBILE || deviceType == DeviceType.TABLET);
+            } catch (Exception e) {
+                // Log error but continue
+                System.err.println("Failed to parse user agent: " + e.getMessage());
+            }
+        }
+    }
+
+    public void getGeographicInfo(Click click) {
+        if (geoIpReader == null || click.getIpAddress() == null || click.getIpAddress().isEmpty()) {
+            return;
+        }
+        try {
+            InetAddress ipAddress = InetAddress.getByName(click.getIpAddress());
+            CityResponse response = geoIpReader.city(ipAddress);
+
+            if (response.getCountry() != null) {
+                click.setCountryCode(response.getCountry().getIsoCode());
+                click.setCountryName(response.getCountry().getName());
+            }
+
+            if (response.getCity() != null) {
+                click.setCityName(response.getCity().getName());
+            }
+        } catch (IOException | GeoIp2Exception e) {
+            // Log error but continue
+            System.err.println("Failed to get geographic info: " + e.getMessage());
+        }
+    }
+
+    public void detectBot(Click click) {
+        click.setIsBot(isBot(click.getUserAgent()));
+    }
+
+    public boolean isBot(String userAgentHeader) {
+        if (userAgentHeader == null) {
+            return false;
+        }
+        String userAgent = userAgentHeader.toLowerCase();
+        for (String keyword : BOT_KEYWORDS) {
+            if (userAgent.contains(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
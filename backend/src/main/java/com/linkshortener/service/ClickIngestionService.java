@@ -0,0 +1,352 @@
+package com.linkshortener.service;
+
+import com.linkshortener.entity.Click;
+import com.linkshortener.entity.Link;
+import com.linkshortener.repository.ClickBatchRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
+
+/**
+ * Asynchronous click pipeline. The redirect thread only captures the raw request
+ * facts into a bounded queue; background workers enrich them and persist them with
+ * multi-row inserts, flushing when a batch is full or the flush interval elapses.
+ * Each batch updates the click rollups in the same transaction as its clicks, and goes
+ * to the recent-click buffer and the live click streams once committed.
+ */
+@Service
+public class ClickIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClickIngestionService.class);
+
+    private static final int MAX_HEADER_LENGTH = 255;
+
+    // User agents go to a TEXT column, but a client may send any length
+    private static final int MAX_USER_AGENT_LENGTH = 1024;
+
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+
+    /**
+     * What to do when the queue is full.
+     */
+    public enum OverflowPolicy {
+        /** Reject the incoming click. */
+        DROP_NEWEST,
+        /** Discard the oldest queued click to make room. */
+        DROP_OLDEST,
+        /** Wait up to the offer timeout for room, then reject. */
+        BLOCK
+    }
+
+    /**
+     * Raw facts captured on the request thread.
+     */
+    public record RawClick(long linkId, String ipAddress, String userAgent, String referer,
+                           LocalDateTime clickedAt) {
+    }
+
+    @Autowired
+    private ClickEnricher clickEnricher;
+
+    @Autowired
+    private ClickBatchRepository clickBatchRepository;
+
+    @Autowired
+    private ClickRollupService clickRollupService;
+
+    @Autowired
+    private RecentClickBuffer recentClickBuffer;
+
+    @Autowired
+    private ClickStreamService clickStreamService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.clicks.ingestion.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.clicks.ingestion.workers:2}")
+    private int workerCount;
+
+    @Value("${app.clicks.ingestion.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.clicks.ingestion.flush-interval:1s}")
+    private Duration flushInterval;
+
+    @Value("${app.clicks.ingestion.overflow-policy:DROP_NEWEST}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${app.clicks.ingestion.offer-timeout:50ms}")
+    private Duration offerTimeout;
+
+    @Value("${app.clicks.ingestion.shutdown-timeout:10s}")
+    private Duration shutdownTimeout;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private BlockingQueue<RawClick> queue;
+    private TransactionTemplate batchTransaction;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    private Counter acceptedCounter;
+    private Counter droppedCounter;
+    private Counter writtenCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        batchTransaction = new TransactionTemplate(transactionManager);
+        acceptedCounter = meterRegistry.counter("clicks.ingestion.accepted");
+        droppedCounter = meterRegistry.counter("clicks.ingestion.dropped");
+        writtenCounter = meterRegistry.counter("clicks.ingestion.written");
+        failedCounter = meterRegistry.counter("clicks.ingestion.failed");
+        Gauge.builder("clicks.ingestion.queue.size", queue, BlockingQueue::size).register(meterRegistry);
+
+        running = true;
+        // Workers spend most of their time in JDBC and GeoIP calls: cheap to park when virtual
+        Thread.Builder threadBuilder = virtualThreads
+                ? Thread.ofVirtual().name("click-ingestion-", 0)
+                : Thread.ofPlatform().daemon(true).name("click-ingestion-", 0);
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(threadBuilder.start(this::runWorker));
+        }
+    }
+
+    /**
+     * Stops accepting clicks and lets the workers drain what is already queued.
+     */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        long deadline = System.nanoTime() + shutdownTimeout.toNanos();
+        for (Thread worker : workers) {
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            worker.join(Math.max(remainingMillis, 1));
+        }
+        if (!queue.isEmpty()) {
+            logger.warn("Click ingestion shut down with {} clicks still queued", queue.size());
+        }
+    }
+
+    /**
+     * Captures a click without touching the database. Returns false when the click was dropped.
+     */
+    public boolean submit(long linkId, String ipAddress, String userAgent, String referer) {
+        if (!running) {
+            droppedCounter.increment();
+            return false;
+        }
+
+        RawClick click = new RawClick(linkId, truncate(ipAddress, MAX_HEADER_LENGTH),
+                truncate(userAgent, MAX_USER_AGENT_LENGTH), truncate(referer, MAX_HEADER_LENGTH), LocalDateTime.now());
+        boolean accepted = switch (overflowPolicy) {
+            case DROP_NEWEST -> queue.offer(click);
+            case DROP_OLDEST -> offerDroppingOldest(click);
+            case BLOCK -> offerWithTimeout(click);
+        };
+
+        if (accepted) {
+            acceptedCounter.increment();
+        } else {
+            droppedCounter.increment();
+        }
+        return accepted;
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private boolean offerDroppingOldest(RawClick click) {
+        while (!queue.offer(click)) {
+            if (queue.poll() != null) {
+                droppedCounter.increment();
+            }
+        }
+        return true;
+    }
+
+    private boolean offerWithTimeout(RawClick click) {
+        try {
+            return queue.offer(click, offerTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void runWorker() {
+        List<RawClick> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                fillBatch(batch);
+            } catch (InterruptedException e) {
+                // Shutting down: write what we hold and drain the rest
+                queue.drainTo(batch);
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Blocks for the first click, then keeps collecting until the batch is full
+     * or the flush interval since that first click has elapsed.
+     */
+    private void fillBatch(List<RawClick> batch) throws InterruptedException {
+        RawClick first = queue.poll(flushInterval.toNanos(), TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + flushInterval.toNanos();
+        while (batch.size() < batchSize) {
+            if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || !running) {
+                return;
+            }
+            RawClick next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void writeBatch(List<RawClick> batch) {
+        List<Click> clicks = new ArrayList<>(batch.size());
+        for (RawClick raw : batch) {
+            clicks.add(enrich(raw));
+        }
+
+        Lock lock = clickRollupService.ingestionLock();
+        lock.lock();
+        try {
+            write(clicks);
+        } catch (DataIntegrityViolationException e) {
+            // One bad row fails the whole multi-row INSERT: keep the rest of the batch
+            salvageBatch(clicks);
+        } catch (RuntimeException e) {
+            failBatch(clicks, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Commits clicks with their rollups, retrying deadlocks; the transaction rolls back whole
+     * when it throws.
+     */
+    private void write(List<Click> clicks) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                batchTransaction.executeWithoutResult(status -> {
+                    clickBatchRepository.insertAll(clicks);
+                    clickRollupService.apply(clicks);
+                });
+                break;
+            } catch (ConcurrencyFailureException e) {
+                // Deadlock or lock timeout against another worker
+                if (attempt >= MAX_WRITE_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+        writtenCounter.increment(clicks.size());
+        // Still under the ingestion lock, so the startup load sees each batch once
+        recentClickBuffer.append(clicks);
+        clickStreamService.publish(clicks);
+    }
+
+    /**
+     * Writes what it can of a batch that broke a constraint. Usually a link was deleted while
+     * its clicks were queued: its clicks are left out and the rest is written again. Otherwise
+     * the clicks are written one by one, so only the offending ones are lost.
+     */
+    private void salvageBatch(List<Click> clicks) {
+        Set<Long> existing = clickBatchRepository.findExistingLinkIds(
+                clicks.stream().map(click -> click.getLink().getId()).collect(Collectors.toSet()));
+        List<Click> kept = clicks.stream().filter(click -> existing.contains(click.getLink().getId())).toList();
+        if (kept.size() < clicks.size()) {
+            failedCounter.increment(clicks.size() - kept.size());
+            logger.debug("Left out {} clicks of deleted links", clicks.size() - kept.size());
+            if (kept.isEmpty()) {
+                return;
+            }
+            try {
+                write(kept);
+                return;
+            } catch (DataIntegrityViolationException e) {
+                // Something else is wrong with a row as well
+            } catch (RuntimeException e) {
+                failBatch(kept, e);
+                return;
+            }
+        }
+        for (Click click : kept) {
+            try {
+                write(List.of(click));
+            } catch (RuntimeException e) {
+                failBatch(List.of(click), e);
+            }
+        }
+    }
+
+    private void failBatch(List<Click> clicks, RuntimeException e) {
+        failedCounter.increment(clicks.size());
+        logger.error("Failed to write {} clicks: {}", clicks.size(), e.getMessage());
+    }
+
+    private Click enrich(RawClick raw) {
+        // Reference only: the batch writer reads nothing but the id
+        Link link = new Link();
+        link.setId(raw.linkId());
+
+        Click click = new Click(link, raw.ipAddress(), raw.userAgent());
+        click.setReferer(raw.referer());
+        click.setClickedAt(raw.clickedAt());
+        clickEnricher.enrich(click);
+        return click;
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+}
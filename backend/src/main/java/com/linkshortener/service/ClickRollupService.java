@@ -0,0 +1,302 @@
+package com.linkshortener.service;
+
+import com.linkshortener.entity.Click;
+import com.linkshortener.entity.ClickRollup;
+import com.linkshortener.repository.ClickRollupRepository;
+import com.linkshortener.repository.ClickSketchRepository;
+import com.linkshortener.repository.ClickTopValuesRepository;
+import com.linkshortener.util.HyperLogLog;
+import com.linkshortener.util.ReferrerNormalizer;
+import com.linkshortener.util.SpaceSaving;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Maintains click_rollups: per link, hour and day, the clicks of every value of each
+ * dimension analytics reports on, click_unique_sketches, a HyperLogLog of the visitor
+ * IPs per link and day, and click_top_values, Space-Saving summaries of the referrers and
+ * cities per link and day. Ingestion adds the deltas of each batch in the
+ * transaction that inserts its clicks; the rebuild recomputes them from the clicks table,
+ * a range of link ids at a time, and runs by itself on startup when the table is empty.
+ * Ranges are sized by click count, and a range's aggregates are written out whenever they
+ * cover too many buckets, so a rebuild's memory does not grow with the clicks table; the
+ * clicks of one link always stay in one range.
+ */
+@Service
+public class ClickRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClickRollupService.class);
+
+    private static final int MAX_VALUE_LENGTH = 255;
+
+    // Each bucket holds a 4 KB visitor sketch: write a rebuild range out past this many
+    static final int MAX_REBUILD_BUCKETS = 5_000;
+
+    // Unbounded value sets: summarized in click_top_values instead of one rollup row per value
+    static final Set<ClickRollup.Dimension> SUMMARIZED_DIMENSIONS =
+            EnumSet.of(ClickRollup.Dimension.REFERRER, ClickRollup.Dimension.CITY);
+
+    /**
+     * The hour or day of one link that a set of clicks falls in.
+     */
+    record Bucket(long linkId, ClickRollup.Grain grain, LocalDateTime start) {
+    }
+
+    @Autowired
+    private ClickRollupRepository clickRollupRepository;
+
+    @Autowired
+    private ClickSketchRepository clickSketchRepository;
+
+    @Autowired
+    private ClickTopValuesRepository clickTopValuesRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.analytics.rollups.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    @Value("${app.analytics.rollups.backfill-clicks-per-batch:100000}")
+    private int clicksPerBatch;
+
+    @Value("${app.analytics.referrers.granularity:host}")
+    private String referrerGranularityName;
+
+    @Value("${app.analytics.top-values.capacity:64}")
+    private int topValuesCapacity;
+
+    private ReferrerNormalizer.Granularity referrerGranularity;
+
+    // Ingestion batches hold the read side; a rebuild range holds the write side, so no batch
+    // lands between reading the clicks of a range and replacing its rollups. This only
+    // covers the local node: run a rebuild while the other nodes are not ingesting.
+    private final ReentrantReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private TransactionTemplate rangeTransaction;
+
+    @PostConstruct
+    void init() {
+        rangeTransaction = new TransactionTemplate(transactionManager);
+        clicksPerBatch = Math.max(1, clicksPerBatch);
+        referrerGranularity = ReferrerNormalizer.Granularity.valueOf(referrerGranularityName.toUpperCase(Locale.ROOT));
+        topValuesCapacity = Math.max(1, Math.min(topValuesCapacity, 0xffff));
+    }
+
+    /**
+     * The lock an ingestion batch holds while it writes its clicks and their rollups.
+     */
+    public Lock ingestionLock() {
+        return rebuildLock.readLock();
+    }
+
+    /**
+     * The lock that keeps ingestion batches out while held: no batch is between its
+     * commit and the end of its post-commit work.
+     */
+    public Lock exclusiveLock() {
+        return rebuildLock.writeLock();
+    }
+
+    /**
+     * Adds the clicks to their rollups and sketches; call in the transaction that inserts them.
+     */
+    public void apply(List<Click> clicks) {
+        Map<Bucket, ClickAggregator> buckets = new HashMap<>();
+        for (Click click : clicks) {
+            accumulate(click, buckets);
+        }
+        write(buckets);
+    }
+
+    public boolean isRebuilding() {
+        return rebuilding.get();
+    }
+
+    /**
+     * Starts a rebuild in the background. Returns false if one is already running.
+     */
+    public boolean startRebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread.ofPlatform().daemon(true).name("click-rollup-rebuild").start(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                logger.error("Click rollup rebuild failed: {}", e.getMessage());
+            } finally {
+                rebuilding.set(false);
+            }
+        });
+        return true;
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void backfill() {
+        try {
+            if (backfillOnStartup && clickRollupRepository.isEmpty() && clickRollupRepository.maxClickLinkId() > 0) {
+                logger.info("click_rollups is empty: rebuilding it from clicks");
+                startRebuild();
+            }
+        } catch (RuntimeException e) {
+            logger.error("Click rollup backfill check failed: {}", e.getMessage());
+        }
+    }
+
+    private void rebuild() {
+        long started = System.nanoTime();
+        long maxLinkId = clickRollupRepository.maxClickLinkId();
+        long clicks = 0;
+        long afterId = 0;
+        while (afterId < maxLinkId) {
+            // Up to the link of the clicksPerBatch-th click, or the rest when fewer are left
+            long rangeEnd = clickRollupRepository.findRangeEnd(afterId, clicksPerBatch);
+            long upToId = rangeEnd > 0 ? Math.min(rangeEnd, maxLinkId) : maxLinkId;
+            clicks += rebuildRange(afterId, upToId);
+            afterId = upToId;
+        }
+        logger.info("Rebuilt click rollups from {} clicks of links up to {} in {} ms",
+                clicks, maxLinkId, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private long rebuildRange(long afterId, long upToId) {
+        Lock lock = exclusiveLock();
+        lock.lock();
+        try {
+            Long clicks = rangeTransaction.execute(status -> {
+                clickRollupRepository.deleteByLinkIdRange(afterId, upToId);
+                clickSketchRepository.deleteByLinkIdRange(afterId, upToId);
+                clickTopValuesRepository.deleteByLinkIdRange(afterId, upToId);
+                Map<Bucket, ClickAggregator> buckets = new HashMap<>();
+                long[] count = new long[1];
+                clickRollupRepository.forEachClick(afterId, upToId, click -> {
+                    accumulate(click, buckets);
+                    count[0]++;
+                    // Everything written adds up, so a range can be written in parts
+                    if (buckets.size() >= MAX_REBUILD_BUCKETS) {
+                        write(buckets);
+                        buckets.clear();
+                    }
+                });
+                write(buckets);
+                return count[0];
+            });
+            return clicks != null ? clicks : 0L;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(Map<Bucket, ClickAggregator> buckets) {
+        clickRollupRepository.addAll(toDeltas(buckets));
+        Map<ClickSketchRepository.Key, HyperLogLog> sketches = new HashMap<>();
+        buckets.forEach((bucket, aggregator) -> {
+            if (bucket.grain() == ClickRollup.Grain.DAY && aggregator.getVisitors() != null) {
+                sketches.put(new ClickSketchRepository.Key(bucket.linkId(), bucket.start().toLocalDate()),
+                        aggregator.getVisitors());
+            }
+        });
+        clickSketchRepository.mergeAll(sketches);
+        clickTopValuesRepository.mergeAll(toSummaries(buckets, topValuesCapacity));
+    }
+
+    /**
+     * Aggregates each click into the hour and the day it belongs to.
+     */
+    private void accumulate(Click click, Map<Bucket, ClickAggregator> buckets) {
+        long linkId = click.getLink().getId();
+        LocalDateTime clickedAt = click.getClickedAt();
+        buckets.computeIfAbsent(new Bucket(linkId, ClickRollup.Grain.HOUR, clickedAt.truncatedTo(ChronoUnit.HOURS)),
+                b -> new ClickAggregator(referrerGranularity)).accept(click);
+        buckets.computeIfAbsent(new Bucket(linkId, ClickRollup.Grain.DAY, clickedAt.truncatedTo(ChronoUnit.DAYS)),
+                b -> new ClickAggregator(referrerGranularity)).accept(click);
+    }
+
+    /**
+     * One rollup row per dimension value of each bucket.
+     */
+    static Map<ClickRollupRepository.Key, ClickRollupRepository.Delta> toDeltas(Map<Bucket, ClickAggregator> buckets) {
+        Map<ClickRollupRepository.Key, ClickRollupRepository.Delta> deltas = new HashMap<>();
+        buckets.forEach((bucket, aggregator) -> {
+            for (ClickRollup.Dimension dimension : ClickRollup.Dimension.values()) {
+                if (SUMMARIZED_DIMENSIONS.contains(dimension)) {
+                    continue;
+                }
+                aggregator.getCounters(dimension).forEach((value, counter) -> {
+                    if (counter.getCount() == 0) {
+                        return;
+                    }
+                    ClickRollupRepository.Key key = new ClickRollupRepository.Key(
+                            bucket.linkId(), dimension, bucket.grain(), bucket.start(), truncate(value));
+                    // Values that only differ past the column length share a row
+                    deltas.merge(key, new ClickRollupRepository.Delta(counter.getCount(), counter.getLastClickAt(),
+                            truncate(counter.getLabel())), ClickRollupRepository.Delta::plus);
+                });
+            }
+        });
+        return deltas;
+    }
+
+    /**
+     * One summary per summarized dimension of each day bucket. The batch counts are exact,
+     * so the summary only loses the least clicked values when there are more than it holds.
+     */
+    static Map<ClickTopValuesRepository.Key, SpaceSaving> toSummaries(Map<Bucket, ClickAggregator> buckets,
+                                                                      int capacity) {
+        Map<ClickTopValuesRepository.Key, SpaceSaving> summaries = new HashMap<>();
+        buckets.forEach((bucket, aggregator) -> {
+            if (bucket.grain() != ClickRollup.Grain.DAY) {
+                return;
+            }
+            for (ClickRollup.Dimension dimension : SUMMARIZED_DIMENSIONS) {
+                List<Map.Entry<String, ClickAggregator.Counter>> counters =
+                        new ArrayList<>(aggregator.getCounters(dimension).entrySet());
+                if (counters.isEmpty()) {
+                    continue;
+                }
+                if (counters.size() > capacity) {
+                    // Most clicked first, so the evicted counters are the smallest ones
+                    counters.sort(Comparator.comparingLong(
+                            (Map.Entry<String, ClickAggregator.Counter> e) -> e.getValue().getCount()).reversed());
+                }
+                SpaceSaving summary = new SpaceSaving(capacity);
+                for (Map.Entry<String, ClickAggregator.Counter> entry : counters) {
+                    summary.add(truncate(entry.getKey()), truncate(entry.getValue().getLabel()),
+                            entry.getValue().getCount());
+                }
+                summaries.put(new ClickTopValuesRepository.Key(bucket.linkId(), dimension,
+                        bucket.start().toLocalDate()), summary);
+            }
+        });
+        return summaries;
+    }
+
+    private static String truncate(String value) {
+        return value != null && value.length() > MAX_VALUE_LENGTH ? value.substring(0, MAX_VALUE_LENGTH) : value;
+    }
+}
@@ -0,0 +1,355 @@
+package com.linkshortener.service;
+
+import com.linkshortener.dto.ClickStreamEvent;
+import com.linkshortener.entity.Click;
+import com.linkshortener.entity.Link;
+import com.linkshortener.repository.LinkRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live click deltas over Server-Sent Events. Ingestion workers publish each committed
+ * batch into per-link counters, which only costs a map update per click; once per interval
+ * the counters are drained into one event per subscriber, however many clicks arrived.
+ *
+ * <p>Each subscriber has a bounded queue and its own sender thread, so a slow client only
+ * fills its own queue. When it is full the subscriber is disconnected rather than buffered
+ * without bound; EventSource clients reconnect by themselves and reload their totals.
+ * Each client, a user or else an IP address, may hold a few streams at a time.
+ *
+ * <p>Only the clicks ingested by this node are streamed. Behind a load balancer each
+ * subscriber sees the share of the traffic its node received, so run a single node, or
+ * pin streaming clients to the node taking the clicks, for complete live counts.
+ */
+@Service
+public class ClickStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClickStreamService.class);
+
+    // Owner ids are cached since a link never changes owner; cleared past this size
+    private static final int MAX_CACHED_OWNERS = 100_000;
+    // Cached owner of anonymous and deleted links, so they are looked up once
+    private static final long NO_OWNER = -1L;
+
+    // Queued in place of an event to keep idle connections open through proxies
+    private static final ClickStreamEvent HEARTBEAT = new ClickStreamEvent(null, 0, 0, 0, List.of());
+
+    /**
+     * The clicks a subscriber receives: those of one link, of every link of one user,
+     * or of all links.
+     */
+    public record Scope(Type type, long id) {
+
+        public enum Type {
+            LINK,
+            USER,
+            ALL
+        }
+
+        public static Scope link(long linkId) {
+            return new Scope(Type.LINK, linkId);
+        }
+
+        public static Scope user(long userId) {
+            return new Scope(Type.USER, userId);
+        }
+
+        public static Scope all() {
+            return new Scope(Type.ALL, 0);
+        }
+    }
+
+    private static final class Subscriber {
+        final Scope scope;
+        final String client;
+        final SseEmitter emitter;
+        final BlockingQueue<ClickStreamEvent> queue;
+        volatile boolean closed;
+        // Flush intervals since the last event queued; only touched by the flushing thread
+        long idleIntervals;
+
+        Subscriber(Scope scope, String client, SseEmitter emitter, int bufferSize) {
+            this.scope = scope;
+            this.client = client;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+
+    @Autowired
+    private LinkRepository linkRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.clicks.stream.max-subscribers:1000}")
+    private int maxSubscribers;
+
+    @Value("${app.clicks.stream.max-per-client:4}")
+    private int maxPerClient;
+
+    @Value("${app.clicks.stream.buffer-size:32}")
+    private int bufferSize;
+
+    @Value("${app.clicks.stream.timeout:30m}")
+    private Duration timeout;
+
+    @Value("${app.clicks.stream.interval-ms:1000}")
+    private long intervalMillis;
+
+    @Value("${app.clicks.stream.heartbeat-interval:15s}")
+    private Duration heartbeatInterval;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    // Clicks, bots and mobiles per link since the last flush
+    private final ConcurrentHashMap<Long, long[]> pending = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Long> owners = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> streamsPerClient = new ConcurrentHashMap<>();
+
+    private Thread.Builder senderThreads;
+    private long heartbeatIntervals;
+    private Counter disconnectedCounter;
+
+    @PostConstruct
+    void init() {
+        bufferSize = Math.max(1, bufferSize);
+        heartbeatIntervals = Math.max(1, heartbeatInterval.toMillis() / Math.max(1, intervalMillis));
+        // Senders mostly wait on their queue or a socket write: cheap to park when virtual
+        senderThreads = virtualThreads
+                ? Thread.ofVirtual().name("click-stream-", 0)
+                : Thread.ofPlatform().daemon(true).name("click-stream-", 0);
+        disconnectedCounter = meterRegistry.counter("clicks.stream.disconnected.slow");
+        Gauge.builder("clicks.stream.subscribers", subscribers, Set::size).register(meterRegistry);
+    }
+
+    /**
+     * Streams the clicks of a link to its owner; any user when userId is null.
+     */
+    public SseEmitter subscribeToLink(Long linkId, Long userId) {
+        Optional<Link> link = linkRepository.findById(linkId);
+        if (link.isEmpty() || (userId != null && (link.get().getUser() == null
+                || !link.get().getUser().getId().equals(userId)))) {
+            throw new IllegalArgumentException("Link not found or access denied");
+        }
+        return subscribe(Scope.link(linkId), userClient(userId));
+    }
+
+    /**
+     * Opens a stream for a client, as named by {@link #userClient} or {@link #ipClient}.
+     * Throws IllegalStateException when the subscriber limit is reached, and
+     * TooManyStreamsException when the client already holds its share of streams.
+     */
+    public SseEmitter subscribe(Scope scope, String client) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new IllegalStateException("Too many live click subscribers");
+        }
+        boolean[] admitted = new boolean[1];
+        streamsPerClient.compute(client, (key, streams) -> {
+            int current = streams != null ? streams : 0;
+            admitted[0] = current < maxPerClient;
+            return admitted[0] ? current + 1 : streams;
+        });
+        if (!admitted[0]) {
+            throw new TooManyStreamsException();
+        }
+        SseEmitter emitter = newEmitter();
+        Subscriber subscriber = new Subscriber(scope, client, emitter, bufferSize);
+        emitter.onCompletion(() -> close(subscriber));
+        emitter.onTimeout(() -> close(subscriber));
+        emitter.onError(e -> close(subscriber));
+        // Sent at once so that the client sees the stream open
+        subscriber.queue.offer(HEARTBEAT);
+        subscribers.add(subscriber);
+        senderThreads.start(() -> runSender(subscriber));
+        return emitter;
+    }
+
+    /**
+     * Counts committed clicks towards the next flush. Free when nobody is subscribed.
+     */
+    public void publish(List<Click> clicks) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        for (Click click : clicks) {
+            boolean bot = Boolean.TRUE.equals(click.getIsBot());
+            boolean mobile = Boolean.TRUE.equals(click.getIsMobile());
+            pending.compute(click.getLink().getId(), (linkId, counts) -> {
+                long[] updated = counts != null ? counts : new long[3];
+                updated[0]++;
+                updated[1] += bot ? 1 : 0;
+                updated[2] += mobile ? 1 : 0;
+                return updated;
+            });
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public static String userClient(Long userId) {
+        return "user:" + userId;
+    }
+
+    /**
+     * The remote address is the proxy's own unless forwarded headers are trusted with
+     * server.forward-headers-strategy; client-supplied headers are not read here.
+     */
+    public static String ipClient(String remoteAddress) {
+        return "ip:" + remoteAddress;
+    }
+
+    /**
+     * Thrown when a client opens more streams than app.clicks.stream.max-per-client.
+     */
+    public static class TooManyStreamsException extends IllegalStateException {
+
+        public TooManyStreamsException() {
+            super("Too many live click streams for this client");
+        }
+    }
+
+    SseEmitter newEmitter() {
+        return new SseEmitter(timeout.toMillis());
+    }
+
+    /**
+     * Coalesces the clicks counted since the last flush into one event per subscriber.
+     */
+    @Scheduled(fixedDelayString = "${app.clicks.stream.interval-ms:1000}")
+    public void flush() {
+        Map<Long, long[]> deltas = new HashMap<>();
+        for (Long linkId : pending.keySet()) {
+            long[] counts = pending.remove(linkId);
+            if (counts != null) {
+                deltas.put(linkId, counts);
+            }
+        }
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        if (!deltas.isEmpty() && subscribers.stream().anyMatch(s -> s.scope.type() == Scope.Type.USER)) {
+            resolveOwners(deltas.keySet());
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (Subscriber subscriber : subscribers) {
+            ClickStreamEvent event = eventFor(subscriber.scope, deltas, now);
+            if (event == null) {
+                if (++subscriber.idleIntervals < heartbeatIntervals) {
+                    continue;
+                }
+                event = HEARTBEAT;
+            }
+            subscriber.idleIntervals = 0;
+            if (!subscriber.queue.offer(event)) {
+                logger.debug("Disconnecting slow live click subscriber {}", subscriber.scope);
+                disconnectedCounter.increment();
+                close(subscriber);
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    private ClickStreamEvent eventFor(Scope scope, Map<Long, long[]> deltas, LocalDateTime now) {
+        List<ClickStreamEvent.LinkDelta> links = new ArrayList<>();
+        long clicks = 0;
+        long bots = 0;
+        long mobile = 0;
+        for (Map.Entry<Long, long[]> entry : deltas.entrySet()) {
+            long linkId = entry.getKey();
+            boolean matches = switch (scope.type()) {
+                case LINK -> linkId == scope.id();
+                case USER -> owners.getOrDefault(linkId, NO_OWNER) == scope.id();
+                case ALL -> true;
+            };
+            if (!matches) {
+                continue;
+            }
+            long[] counts = entry.getValue();
+            links.add(new ClickStreamEvent.LinkDelta(linkId, counts[0], counts[1], counts[2]));
+            clicks += counts[0];
+            bots += counts[1];
+            mobile += counts[2];
+        }
+        return links.isEmpty() ? null : new ClickStreamEvent(now, clicks, bots, mobile, links);
+    }
+
+    private void resolveOwners(Set<Long> linkIds) {
+        List<Long> missing = linkIds.stream().filter(id -> !owners.containsKey(id)).toList();
+        if (missing.isEmpty()) {
+            return;
+        }
+        if (owners.size() + missing.size() > MAX_CACHED_OWNERS) {
+            owners.clear();
+        }
+        try {
+            for (Object[] row : linkRepository.findUserIdsByIdIn(missing)) {
+                owners.put((Long) row[0], (Long) row[1]);
+            }
+            // Left out: anonymous or deleted, which stays so
+            for (Long linkId : missing) {
+                owners.putIfAbsent(linkId, NO_OWNER);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not resolve link owners for live clicks: {}", e.getMessage());
+        }
+    }
+
+    private void runSender(Subscriber subscriber) {
+        try {
+            while (!subscriber.closed) {
+                ClickStreamEvent event = subscriber.queue.poll(1, TimeUnit.SECONDS);
+                if (event == null) {
+                    continue;
+                }
+                if (event == HEARTBEAT) {
+                    subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else {
+                    subscriber.emitter.send(SseEmitter.event().name("clicks").data(event));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Client gone: the emitter reports it to the container, which completes it
+            logger.debug("Live click subscriber {} closed: {}", subscriber.scope, e.getMessage());
+        } finally {
+            close(subscriber);
+        }
+    }
+
+    private void close(Subscriber subscriber) {
+        subscriber.closed = true;
+        // Called by the sender and the emitter callbacks alike: release the client's slot once
+        if (subscribers.remove(subscriber)) {
+            streamsPerClient.computeIfPresent(subscriber.client, (key, streams) -> streams > 1 ? streams - 1 : null);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.linkshortener.service;
+
+import com.linkshortener.entity.User;
+import com.linkshortener.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+/**
+ * Maps the authenticated principal of a request to its user. Principals are named by
+ * username or email, as at sign-in. Anonymous requests, and principals with no matching
+ * user, resolve to null and get the anonymous scope.
+ */
+@Service
+public class CurrentUserService {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    public User getUser(Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return userRepository.findByUsernameOrEmail(authentication.getName()).orElse(null);
+    }
+
+    public Long getUserId(Authentication authentication) {
+        User user = getUser(authentication);
+        return user != null ? user.getId() : null;
+    }
+}
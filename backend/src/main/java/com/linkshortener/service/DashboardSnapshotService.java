@@ -0,0 +1,144 @@
+package com.linkshortener.service;
+
+import com.linkshortener.dto.DashboardStats;
+import com.linkshortener.entity.Link;
+import com.linkshortener.repository.ClickRollupRepository;
+import com.linkshortener.repository.ClickSketchRepository;
+import com.linkshortener.repository.ClickStatsRepository;
+import com.linkshortener.repository.LinkCodeScanRepository;
+import com.linkshortener.repository.LinkRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the dashboard stats materialized, so that serving them costs the same whatever
+ * the size of the tables. A full refresh, once a day and every full-refresh interval,
+ * computes what only changes with the day, links and clicks before today and the daily
+ * series of the past days, and the unique visitors: their union reads one sketch per
+ * link and day, too many to merge on every refresh, so the figure is as old as the full
+ * refresh. Every refresh in between only reads today's rollups, the links with an id
+ * past the full refresh and the top links by their indexed click count.
+ *
+ * <p>Everything comes from the rollups and sketches, so a refresh is skipped while they
+ * are being rebuilt and the previous snapshot is served meanwhile. Links deleted since
+ * the last full refresh are still counted until the next one.
+ */
+@Service
+public class DashboardSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardSnapshotService.class);
+
+    private static final int DAILY_DAYS = 7;
+    private static final int TOP_LINKS = 5;
+
+    @Autowired
+    private ClickRollupRepository clickRollupRepository;
+
+    @Autowired
+    private ClickSketchRepository clickSketchRepository;
+
+    @Autowired
+    private LinkRepository linkRepository;
+
+    @Autowired
+    private LinkCodeScanRepository linkCodeScanRepository;
+
+    @Autowired
+    private ClickRollupService clickRollupService;
+
+    @Value("${app.dashboard.full-refresh-interval:1h}")
+    private Duration fullRefreshInterval;
+
+    @Value("${app.dashboard.unique-visitors-days:30}")
+    private int uniqueVisitorsDays;
+
+    private volatile DashboardStats snapshot = DashboardStats.empty();
+
+    // Figures of the last full refresh; only touched by refresh()
+    private LocalDateTime baseTime;
+    private long baseLinks;
+    private long baseMaxLinkId;
+    private long clicksBeforeToday;
+    private List<DashboardStats.DailyClicks> pastDays = List.of();
+    private long uniqueVisitors;
+
+    public DashboardStats getSnapshot() {
+        return snapshot;
+    }
+
+    @Scheduled(fixedDelayString = "${app.dashboard.refresh-interval-ms:10000}")
+    public synchronized void refresh() {
+        if (clickRollupService.isRebuilding()) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime today = now.toLocalDate().atStartOfDay();
+            if (baseTime == null || baseTime.isBefore(today) || baseTime.plus(fullRefreshInterval).isBefore(now)) {
+                fullRefresh(now);
+            }
+
+            long links = baseLinks + linkRepository.countByIdGreaterThan(baseMaxLinkId);
+            long clicksToday = clickRollupRepository.sumAllLinks(today, null);
+
+            List<DashboardStats.DailyClicks> daily = new ArrayList<>(pastDays);
+            daily.add(new DashboardStats.DailyClicks(today.toLocalDate().toString(), clicksToday));
+
+            long[] hours = clickRollupRepository.hourlyAllLinks(today);
+            List<DashboardStats.HourlyClicks> hourly = new ArrayList<>(hours.length);
+            for (int hour = 0; hour < hours.length; hour++) {
+                hourly.add(new DashboardStats.HourlyClicks(hour + "h", hours[hour]));
+            }
+
+            List<DashboardStats.TopLink> topLinks = new ArrayList<>(TOP_LINKS);
+            for (Link link : linkRepository.findTopLinks(PageRequest.of(0, TOP_LINKS))) {
+                topLinks.add(new DashboardStats.TopLink(link.getId(), link.getShortCode(), link.getOriginalUrl(),
+                        link.getTitle(), link.getClickCount(), link.getCreatedAt()));
+            }
+
+            snapshot = new DashboardStats(now, links, clicksBeforeToday + clicksToday, clicksToday,
+                    uniqueVisitors, daily, hourly, topLinks);
+        } catch (RuntimeException e) {
+            logger.warn("Dashboard snapshot refresh failed, serving the previous one: {}", e.getMessage());
+        }
+    }
+
+    private void fullRefresh(LocalDateTime now) {
+        long started = System.nanoTime();
+        LocalDateTime today = now.toLocalDate().atStartOfDay();
+
+        // Link ids only grow: links created since are those past the max id, found by primary key
+        baseLinks = linkRepository.count();
+        baseMaxLinkId = linkCodeScanRepository.maxLinkId();
+        clicksBeforeToday = clickRollupRepository.sumAllLinks(null, today);
+
+        // Days without clicks have no rollup rows: fill them in with zeros
+        Map<String, Long> byDate = clickRollupRepository.dailyAllLinks(today.minusDays(DAILY_DAYS - 1)).stream()
+                .collect(Collectors.toMap(ClickStatsRepository.DayCount::date, ClickStatsRepository.DayCount::clicks));
+        List<DashboardStats.DailyClicks> days = new ArrayList<>(DAILY_DAYS - 1);
+        for (int daysAgo = DAILY_DAYS - 1; daysAgo > 0; daysAgo--) {
+            String date = today.minusDays(daysAgo).toLocalDate().toString();
+            days.add(new DashboardStats.DailyClicks(date, byDate.getOrDefault(date, 0L)));
+        }
+        pastDays = days;
+
+        LocalDate firstVisitorDay = today.toLocalDate().minusDays(Math.max(1, uniqueVisitorsDays) - 1L);
+        uniqueVisitors = clickSketchRepository.unionAll(firstVisitorDay, null).estimate();
+        baseTime = now;
+        logger.debug("Dashboard full refresh took {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+}
@@ -0,0 +1,128 @@
+package com.linkshortener.service;
+
+import com.linkshortener.dto.LinkRedirect;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Short-lived proof that the visitor already entered the password of a protected link,
+ * so that following redirects skip BCrypt. A grant is {@code <expiry>.<signature>} where
+ * the signature is an HMAC over the link id, the expiry and the stamp of the link's current
+ * password hash: setting a new password (even the same one, BCrypt salts differ) invalidates
+ * every grant issued before.
+ */
+@Service
+public class LinkAccessGrantService {
+
+    public static final String GRANT_PARAMETER = "grant";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private static final String COOKIE_PREFIX = "link_grant_";
+
+    @Value("${app.link-grant.secret:${jwt.secret}}")
+    private String secret;
+
+    @Value("${app.link-grant.ttl:30m}")
+    private Duration ttl;
+
+    private Mac prototype;
+
+    @PostConstruct
+    void init() throws GeneralSecurityException {
+        // Derive a dedicated key so the grant and JWT signatures never share one
+        byte[] key = MessageDigest.getInstance("SHA-256")
+                .digest(("link-grant:" + secret).getBytes(StandardCharsets.UTF_8));
+        prototype = Mac.getInstance(HMAC_ALGORITHM);
+        prototype.init(new SecretKeySpec(key, HMAC_ALGORITHM));
+    }
+
+    public String issue(LinkRedirect link) {
+        long expiresAt = Instant.now().plus(ttl).getEpochSecond();
+        return expiresAt + "." + sign(link, expiresAt);
+    }
+
+    public boolean isValid(LinkRedirect link, String grant) {
+        if (grant == null || !link.requiresPassword()) {
+            return false;
+        }
+        int separator = grant.indexOf('.');
+        if (separator <= 0) {
+            return false;
+        }
+        long expiresAt;
+        try {
+            expiresAt = Long.parseLong(grant.substring(0, separator));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (expiresAt < Instant.now().getEpochSecond()) {
+            return false;
+        }
+        byte[] expected = sign(link, expiresAt).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = grant.substring(separator + 1).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    /**
+     * True if the request carries a valid grant for this link, as a cookie or a {@code grant} parameter.
+     */
+    public boolean hasValidGrant(LinkRedirect link, HttpServletRequest request) {
+        if (isValid(link, request.getParameter(GRANT_PARAMETER))) {
+            return true;
+        }
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            String name = cookieName(link);
+            for (Cookie cookie : cookies) {
+                if (name.equals(cookie.getName()) && isValid(link, cookie.getValue())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public ResponseCookie grantCookie(LinkRedirect link, String grant, boolean secure) {
+        return ResponseCookie.from(cookieName(link), grant)
+                .path("/")
+                .maxAge(ttl)
+                .httpOnly(true)
+                .secure(secure)
+                .sameSite("Lax")
+                .build();
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    private String cookieName(LinkRedirect link) {
+        return COOKIE_PREFIX + link.id();
+    }
+
+    private String sign(LinkRedirect link, long expiresAt) {
+        Mac mac;
+        try {
+            mac = (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("HMAC implementation is not cloneable", e);
+        }
+        String payload = link.id() + ":" + expiresAt + ":" + link.passwordStamp();
+        byte[] signature = mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+    }
+}
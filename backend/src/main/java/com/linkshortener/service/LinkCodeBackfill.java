@@ -0,0 +1,66 @@
+package com.linkshortener.service;
+
+import com.linkshortener.repository.LinkCodeRepository;
+import com.linkshortener.repository.LinkCodeScanRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Registers the codes of links created before the link_codes namespace existed, or by
+ * nodes still running the previous version. The first run ever covers the whole links
+ * table; after that each run only covers the links past the shared watermark, so it is
+ * cheap enough to repeat while a rolling deploy has old nodes creating links. Runs on
+ * startup before the link filter's first build, which reads its codes from link_codes.
+ */
+@Component
+public class LinkCodeBackfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(LinkCodeBackfill.class);
+
+    // Re-cover a few ids below the watermark: identity values may commit out of order
+    private static final long LOOKBACK = 1000;
+
+    @Autowired
+    private LinkCodeRepository linkCodeRepository;
+
+    @Autowired
+    private LinkCodeScanRepository linkCodeScanRepository;
+
+    @EventListener(ApplicationStartedEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onApplicationStarted() {
+        backfill();
+    }
+
+    @Scheduled(initialDelayString = "${app.link-codes.backfill-interval-ms:10000}",
+               fixedDelayString = "${app.link-codes.backfill-interval-ms:10000}")
+    public void backfill() {
+        try {
+            long maxId = linkCodeScanRepository.maxLinkId();
+            long afterId = linkCodeRepository.findBackfillWatermark()
+                    .map(watermark -> Math.max(0, watermark - LOOKBACK))
+                    .orElse(0L);
+            if (maxId <= afterId) {
+                return;
+            }
+            int inserted = linkCodeRepository.backfill(afterId, maxId);
+            linkCodeRepository.saveBackfillWatermark(maxId);
+            if (inserted > 0) {
+                logger.info("Registered {} existing codes in link_codes", inserted);
+            }
+        } catch (DuplicateKeyException e) {
+            // Another node registered the same codes concurrently; the next run catches up
+            logger.debug("Link code backfill raced with another node: {}", e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Link code backfill failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.linkshortener.service;
+
+import com.linkshortener.repository.LinkCodeScanRepository;
+import com.linkshortener.util.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Probabilistic set of every short code and custom alias, consulted before the
+ * database so that lookups of codes that were never issued (scanners, typos)
+ * are answered without a query.
+ *
+ * <p>Codes created on this node are added immediately; codes created on other nodes
+ * are picked up by a frequent incremental scan on the link id, which also reads the
+ * links table so that links of nodes that do not register their codes in link_codes
+ * yet (during a rolling deploy) are not rejected. A Bloom filter cannot
+ * forget, so deleted or renamed codes stay "maybe present" until the next full rebuild.
+ * Until the first build completes every code is reported as maybe present.
+ */
+@Service
+public class LinkCodeFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(LinkCodeFilter.class);
+
+    // Re-scan a few ids below the high-water mark: identity values may commit out of order
+    private static final long INCREMENTAL_LOOKBACK = 1000;
+
+    @Autowired
+    private LinkCodeScanRepository linkCodeScanRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.link-filter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.link-filter.expected-insertions:1000000}")
+    private long expectedInsertions;
+
+    @Value("${app.link-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    private volatile BloomFilter filter;
+    private volatile BloomFilter building;
+    private volatile long highWaterMark;
+
+    // Local additions, replayed into a rebuilt filter in case the rebuild scan missed their commit
+    private final Map<String, Long> recentCodes = new ConcurrentHashMap<>();
+    private volatile long previousRebuildStartedAt;
+
+    // Not a monitor: the rebuild streams the whole table and would pin a virtual carrier thread
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private Counter maybePresentCounter;
+    private Counter absentCounter;
+    private Counter falsePositiveCounter;
+
+    @PostConstruct
+    void registerMetrics() {
+        maybePresentCounter = meterRegistry.counter("link.filter.checks", "result", "maybe");
+        absentCounter = meterRegistry.counter("link.filter.checks", "result", "absent");
+        falsePositiveCounter = meterRegistry.counter("link.filter.false.positives");
+        Gauge.builder("link.filter.expected.fpp", this, LinkCodeFilter::expectedFalsePositiveRate)
+                .register(meterRegistry);
+        Gauge.builder("link.filter.observed.fpp", this, LinkCodeFilter::observedFalsePositiveRate)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void onApplicationStarted() {
+        rebuild();
+    }
+
+    public boolean mightContain(String code) {
+        BloomFilter current = filter;
+        if (!enabled || current == null) {
+            return true;
+        }
+        if (current.mightContain(code)) {
+            maybePresentCounter.increment();
+            return true;
+        }
+        absentCounter.increment();
+        return false;
+    }
+
+    public void add(String code) {
+        if (code == null) {
+            return;
+        }
+        recentCodes.put(code, System.currentTimeMillis());
+        // Write the in-progress filter first: if it is already swapped in, filter is the new one
+        BloomFilter next = building;
+        if (next != null) {
+            next.put(code);
+        }
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(code);
+        }
+    }
+
+    /**
+     * Called when a code passed the filter but does not exist in the database.
+     */
+    public void recordFalsePositive() {
+        falsePositiveCounter.increment();
+    }
+
+    @Scheduled(initialDelayString = "${app.link-filter.refresh-interval-ms:2000}",
+               fixedDelayString = "${app.link-filter.refresh-interval-ms:2000}")
+    public void refresh() {
+        if (!enabled || filter == null || building != null) {
+            return;
+        }
+        try {
+            long maxId = linkCodeScanRepository.maxLinkId();
+            if (maxId <= highWaterMark) {
+                return;
+            }
+            BloomFilter current = filter;
+            long afterId = Math.max(0, highWaterMark - INCREMENTAL_LOOKBACK);
+            linkCodeScanRepository.forEachCode(afterId, current::put);
+            linkCodeScanRepository.forEachLinkCode(afterId, current::put);
+            highWaterMark = maxId;
+        } catch (RuntimeException e) {
+            logger.warn("Incremental link filter refresh failed: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.link-filter.rebuild-interval-ms:3600000}",
+               fixedDelayString = "${app.link-filter.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        rebuildLock.lock();
+        try {
+            rebuildFilter();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void rebuildFilter() {
+        long startedAt = System.currentTimeMillis();
+        try {
+            long maxId = linkCodeScanRepository.maxLinkId();
+            // Leave headroom for growth until the next rebuild
+            long capacity = Math.max(expectedInsertions, linkCodeScanRepository.countCodes() * 2);
+            BloomFilter next = new BloomFilter(capacity, falsePositiveRate);
+            building = next;
+            linkCodeScanRepository.forEachCode(0, next::put);
+            recentCodes.keySet().forEach(next::put);
+
+            filter = next;
+            building = null;
+            highWaterMark = maxId;
+
+            // Keep local additions for at least one full rebuild cycle
+            long cutoff = previousRebuildStartedAt;
+            recentCodes.values().removeIf(addedAt -> addedAt < cutoff);
+            previousRebuildStartedAt = startedAt;
+
+            logger.info("Link filter rebuilt with {} codes ({} bits, {} hashes) in {} ms",
+                    next.getInsertions(), next.getBitCount(), next.getHashCount(),
+                    System.currentTimeMillis() - startedAt);
+        } catch (RuntimeException e) {
+            building = null;
+            logger.error("Link filter rebuild failed, keeping the previous filter: {}", e.getMessage());
+        }
+    }
+
+    public boolean isReady() {
+        return filter != null;
+    }
+
+    public double expectedFalsePositiveRate() {
+        BloomFilter current = filter;
+        return current != null ? current.expectedFalsePositiveRate() : 0.0;
+    }
+
+    /**
+     * False positives over all lookups of codes that do not exist.
+     */
+    public double observedFalsePositiveRate() {
+        double falsePositives = falsePositiveCounter.count();
+        double negatives = falsePositives + absentCounter.count();
+        return negatives > 0 ? falsePositives / negatives : 0.0;
+    }
+}
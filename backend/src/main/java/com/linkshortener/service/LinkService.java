@@ -1,23 +1,32 @@
 package com.linkshortener.service;
 
+import com.linkshortener.config.CacheConfig;
 import com.linkshortener.dto.CreateLinkRequest;
+import com.linkshortener.dto.LinkRedirect;
 import com.linkshortener.dto.LinkResponse;
 import com.linkshortener.entity.Link;
+import com.linkshortener.entity.LinkCode;
 import com.linkshortener.entity.User;
+import com.linkshortener.repository.LinkCodeRepository;
+import com.linkshortener.repository.LinkDeletionRepository;
 import com.linkshortener.repository.LinkRepository;
-import org.apache.commons.lang3.RandomStringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -25,40 +34,78 @@ import java.util.stream.Collectors;
 @Transactional
 public class LinkService {
     
+    private static final int MAX_SHORT_CODE_ATTEMPTS = 5;
+    
     @Autowired
     private LinkRepository linkRepository;
     
     @Autowired
-    private QRCodeService qrCodeService;
+    private QRCodeGenerationService qrCodeGenerationService;
     
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    @Autowired
+    private CacheManager cacheManager;
+    
+    @Autowired
+    private ClickCounterService clickCounterService;
+    
+    @Autowired
+    private LinkCodeFilter linkCodeFilter;
+    
+    @Autowired
+    private ShortCodeGenerator shortCodeGenerator;
+    
+    @Autowired
+    private LinkCodeRepository linkCodeRepository;
+
+    @Autowired
+    private LinkDeletionRepository linkDeletionRepository;
+    
     @Value("${app.base-url}")
     private String baseUrl;
     
-    @Value("${app.short-url-length:8}")
-    private int shortUrlLength;
-    
     public LinkResponse createLink(CreateLinkRequest request, User user) {
-        Link link = new Link();
-        link.setOriginalUrl(request.getOriginalUrl());
-        link.setTitle(request.getTitle());
-        link.setDescription(request.getDescription());
-        link.setExpiresAt(request.getExpiresAt());
-        link.setUser(user);
+        Link link = prepareLink(request, user);
+        link.setShortCode(shortCodeGenerator.nextCode());
         
-        // Handle custom alias or generate short code
+        link = linkRepository.save(link);
+        
+        // Claim the codes in the shared namespace; the alias is only set once it is ours
         if (request.getCustomAlias() != null && !request.getCustomAlias().trim().isEmpty()) {
             String customAlias = request.getCustomAlias().trim();
-            if (linkRepository.existsByCustomAlias(customAlias)) {
+            if (!linkCodeRepository.reserve(customAlias, link.getId(), LinkCode.Kind.ALIAS)) {
                 throw new IllegalArgumentException("Custom alias already exists");
             }
             link.setCustomAlias(customAlias);
-            link.setShortCode(generateUniqueShortCode());
-        } else {
-            link.setShortCode(generateUniqueShortCode());
         }
+        reserveShortCode(link);
+        linkCodeFilter.add(link.getShortCode());
+        linkCodeFilter.add(link.getCustomAlias());
+        
+        // The QR code file is rendered in the background; until then it is served on demand
+        qrCodeGenerationService.scheduleAfterCommit(link.getId(), buildShortUrl(link));
+        
+        return convertToResponse(link);
+    }
+    
+    public LinkResponse createAnonymousLink(CreateLinkRequest request) {
+        return createLink(request, null);
+    }
+    
+    /**
+     * Builds an unsaved link from a request, without short code or alias. Hashes the
+     * password, so it is the expensive part of creating a link and safe to run in parallel.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Link prepareLink(CreateLinkRequest request, User user) {
+        Link link = new Link();
+        link.setOriginalUrl(request.getOriginalUrl());
+        link.setTitle(request.getTitle());
+        link.setDescription(request.getDescription());
+        link.setExpiresAt(request.getExpiresAt());
+        link.setUser(user);
         
         // Handle password protection
         if (request.getPassword() != null && !request.getPassword().trim().isEmpty()) {
@@ -66,32 +113,49 @@ public class LinkService {
             link.setPasswordHash(passwordEncoder.encode(request.getPassword()));
         }
         
-        link = linkRepository.save(link);
+        applyRedirectPolicy(link, request);
+        return link;
+    }
+    
+    /**
+     * Resolves a short code or custom alias for redirecting, with one primary-key lookup.
+     * Cache hits do not open a transaction.
+     */
+    @Cacheable(value = CacheConfig.LINKS_CACHE, key = "#code", unless = "#result == null")
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public Optional<LinkRedirect> findByCode(String code) {
+        // Codes that were never issued are rejected without a query
+        if (!linkCodeFilter.mightContain(code)) {
+            return Optional.empty();
+        }
         
-        // Generate QR code asynchronously
-        try {
-            String qrCodePath = qrCodeService.generateQRCode(buildShortUrl(link), link.getId());
-            link.setQrCodePath(qrCodePath);
-            link = linkRepository.save(link);
-        } catch (Exception e) {
-            // Log error but don't fail the link creation
-            System.err.println("Failed to generate QR code: " + e.getMessage());
+        Optional<LinkRedirect> match = linkRepository.findRedirectByCode(code);
+        if (match.isEmpty()) {
+            // Created by a node that predates link_codes, and not backfilled yet
+            match = linkRepository.findRedirectsByLinkColumns(code).stream().findFirst();
+        }
+        if (match.isEmpty()) {
+            linkCodeFilter.recordFalsePositive();
+            return Optional.empty();
         }
         
-        return convertToResponse(link);
-    }
-    
-    public LinkResponse createAnonymousLink(CreateLinkRequest request) {
-        return createLink(request, null);
+        // Check if link is active and not expired
+        LinkRedirect redirect = match.get();
+        if (!redirect.isAvailable()) {
+            return Optional.empty();
+        }
+        
+        return Optional.of(redirect);
     }
     
-    @Cacheable(value = "links", key = "#code")
-    public Optional<Link> findByCode(String code) {
-        // Try to find by custom alias first, then by short code
-        Optional<Link> link = linkRepository.findByCustomAlias(code);
-        if (link.isEmpty()) {
-            link = linkRepository.findByShortCode(code);
-        }
+    /**
+     * Loads the full entity behind a code, for the few endpoints that need more than the redirect target.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Link> findLinkByCode(String code) {
+        Optional<Link> link = linkRepository.findByCode(code)
+                .or(() -> linkRepository.findByCustomAlias(code))
+                .or(() -> linkRepository.findByShortCode(code));
         
         // Check if link is active and not expired
         if (link.isPresent()) {
@@ -108,10 +172,17 @@ public class LinkService {
         return linkRepository.findById(id);
     }
     
-    @CacheEvict(value = "links", key = "#link.shortCode")
+    /**
+     * Counts a click in memory; the cached link is left untouched and the
+     * delta reaches the database with the next counter flush.
+     */
     public void incrementClickCount(Link link) {
-        link.incrementClickCount();
-        linkRepository.save(link);
+        clickCounterService.increment(link.getId());
+    }
+    
+    public long getClickCount(Link link) {
+        long persisted = link.getClickCount() != null ? link.getClickCount() : 0L;
+        return persisted + clickCounterService.getPendingDelta(link.getId());
     }
     
     public Page<LinkResponse> getUserLinks(Long userId, Pageable pageable) {
@@ -149,7 +220,6 @@ public class LinkService {
         return Optional.empty();
     }
     
-    @CacheEvict(value = "links", key = "#link.shortCode")
     public LinkResponse updateLink(Long id, CreateLinkRequest request, Long userId) {
         Optional<Link> optionalLink = linkRepository.findById(id);
         if (optionalLink.isEmpty() || 
@@ -158,21 +228,28 @@ public class LinkService {
         }
         
         Link link = optionalLink.get();
+        evictCachedCodes(link.getShortCode(), link.getCustomAlias());
         link.setOriginalUrl(request.getOriginalUrl());
         link.setTitle(request.getTitle());
         link.setDescription(request.getDescription());
         link.setExpiresAt(request.getExpiresAt());
         
-        // Handle custom alias update
-        if (request.getCustomAlias() != null && !request.getCustomAlias().trim().isEmpty()) {
-            String customAlias = request.getCustomAlias().trim();
-            if (!customAlias.equals(link.getCustomAlias()) && 
-                linkRepository.existsByCustomAlias(customAlias)) {
-                throw new IllegalArgumentException("Custom alias already exists");
+        // Handle custom alias update: claim the new alias before giving up the old one
+        String customAlias = request.getCustomAlias() != null && !request.getCustomAlias().trim().isEmpty()
+                ? request.getCustomAlias().trim() : null;
+        if (!Objects.equals(customAlias, link.getCustomAlias())) {
+            if (customAlias != null) {
+                if (!linkCodeRepository.reserve(customAlias, link.getId(), LinkCode.Kind.ALIAS)) {
+                    throw new IllegalArgumentException("Custom alias already exists");
+                }
+                linkCodeFilter.add(customAlias);
+            }
+            if (link.getCustomAlias() != null) {
+                linkCodeRepository.release(link.getCustomAlias(), link.getId());
             }
             link.setCustomAlias(customAlias);
-        } else {
-            link.setCustomAlias(null);
+            // The short URL encoded in the QR code changed
+            qrCodeGenerationService.scheduleAfterCommit(link.getId(), buildShortUrl(link));
         }
         
         // Handle password update
@@ -184,22 +261,25 @@ public class LinkService {
             link.setPasswordHash(null);
         }
         
+        applyRedirectPolicy(link, request);
+        
         link = linkRepository.save(link);
         return convertToResponse(link);
     }
     
-    @CacheEvict(value = "links", key = "#shortCode")
     public void deleteLink(Long id, Long userId) {
         Optional<Link> link = linkRepository.findById(id);
         if (link.isPresent() && link.get().getUser() != null && 
             link.get().getUser().getId().equals(userId)) {
-            linkRepository.delete(link.get());
+            if (!linkDeletionRepository.delete(id)) {
+                throw new IllegalArgumentException("Link not found or access denied");
+            }
+            evictCachedCodes(link.get().getShortCode(), link.get().getCustomAlias());
         } else {
             throw new IllegalArgumentException("Link not found or access denied");
         }
     }
     
-    @CacheEvict(value = "links", key = "#shortCode")
     public void toggleLinkStatus(Long id, Long userId) {
         Optional<Link> optionalLink = linkRepository.findById(id);
         if (optionalLink.isEmpty() || 
@@ -208,6 +288,7 @@ public class LinkService {
         }
         
         Link link = optionalLink.get();
+        evictCachedCodes(link.getShortCode(), link.getCustomAlias());
         link.setIsActive(!link.getIsActive());
         linkRepository.save(link);
     }
@@ -219,22 +300,73 @@ public class LinkService {
                 .collect(Collectors.toList());
     }
     
-    public boolean verifyLinkPassword(Link link, String password) {
-        if (!link.getPasswordProtected() || link.getPasswordHash() == null) {
+    public boolean verifyLinkPassword(LinkRedirect link, String password) {
+        if (!link.requiresPassword()) {
             return true;
         }
-        return passwordEncoder.matches(password, link.getPasswordHash());
+        if (password == null) {
+            return false;
+        }
+        return linkRepository.findPasswordHashById(link.id())
+                .map(hash -> passwordEncoder.matches(password, hash))
+                .orElse(false);
     }
     
-    private String generateUniqueShortCode() {
-        String shortCode;
-        do {
-            shortCode = RandomStringUtils.randomAlphanumeric(shortUrlLength);
-        } while (linkRepository.existsByShortCode(shortCode));
-        return shortCode;
+    /**
+     * Evicts the given codes from both cache tiers once the current transaction
+     * commits, so a concurrent redirect cannot re-cache the pre-update row.
+     */
+    private void evictCachedCodes(String... codes) {
+        Cache cache = cacheManager.getCache(CacheConfig.LINKS_CACHE);
+        if (cache == null) {
+            return;
+        }
+        
+        Runnable eviction = () -> {
+            for (String code : codes) {
+                if (code != null) {
+                    cache.evict(code);
+                }
+            }
+        };
+        
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        } else {
+            eviction.run();
+        }
+    }
+    
+    /**
+     * Registers the generated short code. Generated codes are unique among themselves, but
+     * an existing alias may already spell the same code: draw another one in that case.
+     */
+    private void reserveShortCode(Link link) {
+        for (int attempt = 0; attempt < MAX_SHORT_CODE_ATTEMPTS; attempt++) {
+            if (linkCodeRepository.reserve(link.getShortCode(), link.getId(), LinkCode.Kind.SHORT_CODE)) {
+                return;
+            }
+            link.setShortCode(shortCodeGenerator.nextCode());
+        }
+        throw new IllegalStateException("Could not reserve a free short code");
     }
     
-    private String buildShortUrl(Link link) {
+    private void applyRedirectPolicy(Link link, CreateLinkRequest request) {
+        if (request.getRedirectStatus() != null
+                && !LinkRedirect.REDIRECT_STATUSES.contains(request.getRedirectStatus())) {
+            throw new IllegalArgumentException("Redirect status must be 301, 302, 307 or 308");
+        }
+        link.setRedirectStatus(request.getRedirectStatus());
+        link.setCacheMaxAge(request.getCacheMaxAge());
+        link.setTrackClicks(request.getTrackClicks());
+    }
+    
+    public String buildShortUrl(Link link) {
         String code = link.getCustomAlias() != null ? link.getCustomAlias() : link.getShortCode();
         return baseUrl + "/" + code;
     }
@@ -248,16 +380,19 @@ public class LinkService {
         response.setShortUrl(buildShortUrl(link));
         response.setTitle(link.getTitle());
         response.setDescription(link.getDescription());
-        response.setClickCount(link.getClickCount());
+        response.setClickCount(getClickCount(link));
         response.setIsActive(link.getIsActive());
         response.setExpiresAt(link.getExpiresAt());
         response.setPasswordProtected(link.getPasswordProtected());
+        response.setRedirectStatus(link.getRedirectStatus() != null
+                ? link.getRedirectStatus() : LinkRedirect.DEFAULT_REDIRECT_STATUS);
+        response.setCacheMaxAge(link.getCacheMaxAge() != null ? link.getCacheMaxAge() : 0);
+        response.setTrackClicks(!Boolean.FALSE.equals(link.getTrackClicks()));
         response.setCreatedAt(link.getCreatedAt());
         response.setUpdatedAt(link.getUpdatedAt());
         
-        if (link.getQrCodePath() != null) {
-            response.setQrCodeUrl(baseUrl + "/api/qr/" + link.getId());
-        }
+        // Served on demand until the background file exists
+        response.setQrCodeUrl(baseUrl + "/api/qr/" + link.getId());
         
         return response;
     }
@@ -0,0 +1,264 @@
+package com.linkshortener.service;
+
+import com.linkshortener.entity.Link;
+import com.linkshortener.repository.LinkRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams the QR codes of many links as a ZIP archive. Links are loaded a page at a time
+ * and rendered on a fixed pool, with a bounded window of renders in flight; entries are
+ * written in link order as soon as they are ready. Memory use is bounded by the window,
+ * whatever the number of links. The archive ends with a manifest.csv of every requested
+ * link and its outcome; the original URL is only listed for the caller's own links.
+ */
+@Service
+public class QRCodeExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(QRCodeExportService.class);
+
+    private static final int PAGE_SIZE = 500;
+
+    private static final String MANIFEST_HEADER = "link_id,code,short_url,original_url,status\n";
+
+    @Autowired
+    private QRCodeService qrCodeService;
+
+    @Autowired
+    private LinkRepository linkRepository;
+
+    @Autowired
+    private LinkService linkService;
+
+    // 0 means one render thread per core; rendering is CPU bound
+    @Value("${app.qr-code.export.parallelism:0}")
+    private int parallelism;
+
+    @Value("${app.qr-code.export.max-links:10000}")
+    private int maxLinks;
+
+    private ExecutorService renderPool;
+    private int window;
+
+    private record Rendered(Link link, String code, String shortUrl, byte[] data) {
+    }
+
+    @PostConstruct
+    void start() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        renderPool = Executors.newFixedThreadPool(threads, Thread.ofPlatform().daemon(true).name("qr-export-", 0).factory());
+        // Enough queued work to keep every thread busy while the writer drains the head
+        window = threads * 2;
+    }
+
+    @PreDestroy
+    void stop() {
+        renderPool.shutdownNow();
+    }
+
+    public int getMaxLinks() {
+        return maxLinks;
+    }
+
+    /**
+     * Exports the given links, or, when {@code linkIds} is empty, all the links in scope, at
+     * most {@link #getMaxLinks()}. The scope is the links of {@code userId} (all users when
+     * null), only active ones if {@code activeOnly}; given links outside it are reported as
+     * not found. Returns the number of images written.
+     */
+    public int export(List<Long> linkIds, Long userId, boolean activeOnly, int size, QRCodeService.Format format,
+                      OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        Pipeline pipeline = new Pipeline(zip, size, format, userId);
+        try {
+            if (linkIds != null && !linkIds.isEmpty()) {
+                exportById(linkIds, userId, activeOnly, pipeline);
+            } else {
+                exportByOwner(userId, activeOnly, pipeline);
+            }
+            pipeline.drain();
+        } finally {
+            pipeline.cancel();
+        }
+        zip.putNextEntry(new ZipEntry("manifest.csv"));
+        zip.write(pipeline.manifest.toString().getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+        zip.finish();
+        out.flush();
+        logger.info("QR export: {} images, {} links not exported", pipeline.written, pipeline.skipped);
+        return pipeline.written;
+    }
+
+    private void exportById(List<Long> linkIds, Long userId, boolean activeOnly, Pipeline pipeline) throws IOException {
+        List<Long> ids = new ArrayList<>(new TreeSet<>(linkIds));
+        if (ids.size() > maxLinks) {
+            ids = ids.subList(0, maxLinks);
+        }
+        Set<Long> found = new HashSet<>();
+        for (int from = 0; from < ids.size(); from += PAGE_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + PAGE_SIZE, ids.size()));
+            for (Link link : linkRepository.findAllByIdOrdered(chunk, userId, activeOnly)) {
+                found.add(link.getId());
+                pipeline.add(link);
+            }
+        }
+        pipeline.drain();
+        for (Long id : ids) {
+            if (!found.contains(id)) {
+                pipeline.manifestRow(id, "", "", "", "not_found");
+                pipeline.skipped++;
+            }
+        }
+    }
+
+    private void exportByOwner(Long userId, boolean activeOnly, Pipeline pipeline) throws IOException {
+        long afterId = 0;
+        int exported = 0;
+        while (exported < maxLinks) {
+            List<Link> page = linkRepository.findExportPage(userId, activeOnly, afterId,
+                    PageRequest.of(0, Math.min(PAGE_SIZE, maxLinks - exported)));
+            if (page.isEmpty()) {
+                break;
+            }
+            for (Link link : page) {
+                pipeline.add(link);
+            }
+            exported += page.size();
+            afterId = page.get(page.size() - 1).getId();
+        }
+    }
+
+    private Rendered render(Link link, int size, QRCodeService.Format format) {
+        String code = link.getCustomAlias() != null ? link.getCustomAlias() : link.getShortCode();
+        String shortUrl = linkService.buildShortUrl(link);
+        try {
+            return new Rendered(link, code, shortUrl, qrCodeService.renderQRCode(shortUrl, size, format));
+        } catch (Exception e) {
+            logger.warn("QR export: failed to render link {}: {}", link.getId(), e.getMessage());
+            return new Rendered(link, code, shortUrl, null);
+        }
+    }
+
+    /**
+     * Ordered render window feeding the archive.
+     */
+    private final class Pipeline {
+        final ZipOutputStream zip;
+        final int size;
+        final QRCodeService.Format format;
+        // Whose original URLs may be listed; nobody's when null
+        final Long ownerId;
+        final Deque<Future<Rendered>> inFlight = new ArrayDeque<>();
+        final StringBuilder manifest = new StringBuilder(MANIFEST_HEADER);
+        int written;
+        int skipped;
+
+        Pipeline(ZipOutputStream zip, int size, QRCodeService.Format format, Long ownerId) {
+            this.zip = zip;
+            this.size = size;
+            this.format = format;
+            this.ownerId = ownerId;
+        }
+
+        void add(Link link) throws IOException {
+            inFlight.add(renderPool.submit(() -> render(link, size, format)));
+            if (inFlight.size() >= window) {
+                writeNext();
+            }
+        }
+
+        void drain() throws IOException {
+            while (!inFlight.isEmpty()) {
+                writeNext();
+            }
+        }
+
+        void cancel() {
+            Future<Rendered> pending;
+            while ((pending = inFlight.poll()) != null) {
+                pending.cancel(true);
+            }
+        }
+
+        private void writeNext() throws IOException {
+            Rendered rendered;
+            try {
+                rendered = inFlight.poll().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("QR export interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IOException("QR export failed", e.getCause());
+            }
+            Link link = rendered.link();
+            if (rendered.data() == null) {
+                manifestRow(link.getId(), rendered.code(), rendered.shortUrl(), originalUrlFor(link), "error");
+                skipped++;
+                return;
+            }
+            writeEntry(rendered.code() + "." + format.getExtension(), rendered.data());
+            manifestRow(link.getId(), rendered.code(), rendered.shortUrl(), originalUrlFor(link), "ok");
+            written++;
+        }
+
+        private String originalUrlFor(Link link) {
+            boolean owned = ownerId != null && link.getUser() != null && ownerId.equals(link.getUser().getId());
+            return owned ? link.getOriginalUrl() : "";
+        }
+
+        private void writeEntry(String name, byte[] data) throws IOException {
+            ZipEntry entry = new ZipEntry(name);
+            if (format == QRCodeService.Format.PNG) {
+                // PNG is already deflated: store it rather than compress it again
+                CRC32 crc = new CRC32();
+                crc.update(data);
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(data.length);
+                entry.setCompressedSize(data.length);
+                entry.setCrc(crc.getValue());
+            }
+            zip.putNextEntry(entry);
+            zip.write(data);
+            zip.closeEntry();
+        }
+
+        void manifestRow(Long id, String code, String shortUrl, String originalUrl, String status) {
+            manifest.append(id).append(',')
+                    .append(code).append(',')
+                    .append(shortUrl).append(',')
+                    .append(csv(originalUrl)).append(',')
+                    .append(status).append('\n');
+        }
+
+        private String csv(String value) {
+            if (value == null || value.isEmpty()) {
+                return "";
+            }
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+    }
+}
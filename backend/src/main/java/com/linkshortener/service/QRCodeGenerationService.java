@@ -0,0 +1,141 @@
+package com.linkshortener.service;
+
+import com.linkshortener.repository.LinkRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders QR code files off the request path. Jobs go to a bounded pool; when the queue
+ * is full a job is dropped, which is harmless because the QR endpoint renders on demand
+ * and schedules the file again. The link's qr_code_path is set once the file exists.
+ */
+@Service
+public class QRCodeGenerationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(QRCodeGenerationService.class);
+
+    @Autowired
+    private QRCodeService qrCodeService;
+
+    @Autowired
+    private LinkRepository linkRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.qr-code.generation.workers:2}")
+    private int workerCount;
+
+    @Value("${app.qr-code.generation.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${app.qr-code.generation.shutdown-timeout:10s}")
+    private Duration shutdownTimeout;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private ThreadPoolExecutor executor;
+
+    // Short URL to render per link with a queued job; a job takes its entry when it starts,
+    // so repeated requests while queued coalesce and the latest URL wins
+    private final Map<Long, String> queued = new ConcurrentHashMap<>();
+
+    private Counter generatedCounter;
+    private Counter droppedCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    void start() {
+        generatedCounter = meterRegistry.counter("qr.generation.generated");
+        droppedCounter = meterRegistry.counter("qr.generation.dropped");
+        failedCounter = meterRegistry.counter("qr.generation.failed");
+
+        Thread.Builder threadBuilder = virtualThreads
+                ? Thread.ofVirtual().name("qr-generation-", 0)
+                : Thread.ofPlatform().daemon(true).name("qr-generation-", 0);
+        executor = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadBuilder.factory(), new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder("qr.generation.queue.size", executor, e -> e.getQueue().size()).register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            logger.warn("QR code generation shut down with {} jobs still queued", executor.getQueue().size());
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Schedules the QR code of a link once the current transaction commits, so the worker
+     * never looks for a link that is not visible yet, or that was rolled back.
+     */
+    public void scheduleAfterCommit(Long linkId, String shortUrl) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    schedule(linkId, shortUrl);
+                }
+            });
+        } else {
+            schedule(linkId, shortUrl);
+        }
+    }
+
+    /**
+     * Queues the QR code of a link, or updates the URL of the job already queued for it.
+     * Returns false if the job was dropped.
+     */
+    public boolean schedule(Long linkId, String shortUrl) {
+        if (queued.put(linkId, shortUrl) != null) {
+            return true;
+        }
+        try {
+            executor.execute(() -> generate(linkId));
+            return true;
+        } catch (RejectedExecutionException e) {
+            queued.remove(linkId);
+            droppedCounter.increment();
+            return false;
+        }
+    }
+
+    private void generate(Long linkId) {
+        String shortUrl = queued.remove(linkId);
+        if (shortUrl == null) {
+            return;
+        }
+        try {
+            String qrCodePath = qrCodeService.generateQRCode(shortUrl, linkId);
+            if (linkRepository.updateQrCodePath(linkId, qrCodePath) == 0) {
+                // Deleted in the meantime
+                qrCodeService.deleteQRCode(qrCodePath);
+            }
+            generatedCounter.increment();
+        } catch (Exception e) {
+            failedCounter.increment();
+            logger.warn("Failed to generate QR code for link {}: {}", linkId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.linkshortener.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.linkshortener.entity.Link;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * QR images by link, size and format, rendered on demand and kept in a cache bounded by
+ * total bytes. The key includes the short URL, so an alias change simply misses and the stale
+ * entry ages out. Rendering is deterministic, so the ETag is derived from the key alone
+ * and a conditional request can be answered without touching the image.
+ */
+@Service
+public class QRCodeImageService {
+
+    public static final String CACHE_NAME = "qrCodes";
+
+    // Approximate per-entry cost of the key, the array header and the cache node
+    private static final int ENTRY_OVERHEAD_BYTES = 200;
+
+    /**
+     * A rendered image with its strong ETag.
+     */
+    public record Image(byte[] data, String etag, QRCodeService.Format format) {
+    }
+
+    private record Key(Long linkId, String shortUrl, int size, QRCodeService.Format format) {
+    }
+
+    @Autowired
+    private QRCodeService qrCodeService;
+
+    @Autowired
+    private LinkService linkService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.qr-code.cache.max-size:32MB}")
+    private DataSize maxSize;
+
+    @Value("${app.qr-code.cache.ttl:1h}")
+    private Duration ttl;
+
+    private Cache<Key, Image> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Key key, Image image) -> image.data().length + ENTRY_OVERHEAD_BYTES)
+                .expireAfterAccess(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * The ETag the image of this link, size and format has, without rendering it.
+     */
+    public String etag(Link link, int size, QRCodeService.Format format) {
+        return etag(key(link, size, format));
+    }
+
+    public Image getImage(Link link, int size, QRCodeService.Format format) {
+        return cache.get(key(link, size, format), this::load);
+    }
+
+    private Key key(Link link, int size, QRCodeService.Format format) {
+        return new Key(link.getId(), linkService.buildShortUrl(link), size, format);
+    }
+
+    private Image load(Key key) {
+        try {
+            byte[] data = qrCodeService.renderQRCode(key.shortUrl(), key.size(), key.format());
+            return new Image(data, etag(key), key.format());
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to render QR code for link " + key.linkId(), e);
+        }
+    }
+
+    private static String etag(Key key) {
+        return "\"" + QRCodeService.fingerprint(key.shortUrl(), key.size(), key.format()) + "\"";
+    }
+}
@@ -8,14 +8,49 @@ import com.google.zxing.qrcode.QRCodeWriter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 
 @Service
 public class QRCodeService {
     
+    public static final int MIN_SIZE = 64;
+    
+    public static final int MAX_SIZE = 2048;
+    
+    /**
+     * Output formats. Rendering is deterministic: the same URL, size and format always
+     * give the same bytes.
+     */
+    public enum Format {
+        PNG("image/png", "png"),
+        SVG("image/svg+xml", "svg");
+        
+        private final String contentType;
+        private final String extension;
+        
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+        
+        public String getContentType() { return contentType; }
+        public String getExtension() { return extension; }
+    }
+    
+    // Bump when the rendering changes, so clients do not keep images under a stale ETag
+    private static final String RENDER_VERSION = "1";
+    
     @Value("${app.qr-code-size:300}")
     private int qrCodeSize;
     
@@ -29,23 +64,75 @@ public class QRCodeService {
         }
         
         // Generate QR code
-        QRCodeWriter qrCodeWriter = new QRCodeWriter();
-        BitMatrix bitMatrix = qrCodeWriter.encode(url, BarcodeFormat.QR_CODE, qrCodeSize, qrCodeSize);
+        BitMatrix bitMatrix = encode(url, qrCodeSize);
         
-        // Save QR code as PNG file
-        String fileName = "qr_" + linkId + ".png";
+        // Save QR code as PNG file, named after what it encodes so a stale file is never served
+        String fileName = storedFileName(linkId, url);
         Path qrCodePath = qrCodeDirectory.resolve(fileName);
-        MatrixToImageWriter.writeToPath(bitMatrix, "PNG", qrCodePath);
+        // Write aside and rename, so a concurrent reader never sees a partial file
+        Path tempPath = Files.createTempFile(qrCodeDirectory, fileName, ".tmp");
+        try {
+            MatrixToImageWriter.writeToPath(bitMatrix, "PNG", tempPath);
+            Files.move(tempPath, qrCodePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+        deleteSupersededFiles(qrCodeDirectory, linkId, fileName);
         
         return qrCodePath.toString();
     }
     
-    public byte[] getQRCode(String filePath) throws IOException {
-        Path path = Paths.get(filePath);
-        if (Files.exists(path)) {
+    /**
+     * The stored PNG of a link if it exists and encodes the given short URL, else null. The
+     * file is read whole (it is a few KB), so a regeneration deleting it afterwards cannot
+     * cut a response short; one deleting it before is just a miss.
+     */
+    public byte[] readStoredQRCode(Long linkId, String qrCodePath, String url) throws IOException {
+        if (qrCodePath == null) {
+            return null;
+        }
+        Path path = Paths.get(qrCodePath);
+        if (!path.getFileName().toString().equals(storedFileName(linkId, url))) {
+            return null;
+        }
+        try {
             return Files.readAllBytes(path);
+        } catch (NoSuchFileException e) {
+            return null;
         }
-        return null;
+    }
+    
+    /**
+     * Identifies the bytes rendered for a URL, size and format. Rendering is deterministic,
+     * so this is a valid strong validator for the image.
+     */
+    public static String fingerprint(String url, int size, Format format) {
+        String input = RENDER_VERSION + "|" + url + "|" + size + "|" + format;
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(input.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 22);
+    }
+    
+    /**
+     * Renders the QR code in memory. PNG output is byte-identical to the generated file
+     * for the same URL at the default size.
+     */
+    public byte[] renderQRCode(String url, int size, Format format) throws WriterException, IOException {
+        if (format == Format.SVG) {
+            // Unscaled matrix, one unit per module; the viewBox scales it to the requested size
+            return toSvg(encode(url, 0), size).getBytes(StandardCharsets.UTF_8);
+        }
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        MatrixToImageWriter.writeToStream(encode(url, size), "PNG", png);
+        return png.toByteArray();
+    }
+    
+    public int getDefaultSize() {
+        return qrCodeSize;
     }
     
     public void deleteQRCode(String filePath) {
@@ -59,4 +146,54 @@ public class QRCodeService {
             System.err.println("Failed to delete QR code file: " + e.getMessage());
         }
     }
+    
+    private String storedFileName(Long linkId, String url) {
+        return "qr_" + linkId + "_" + fingerprint(url, qrCodeSize, Format.PNG) + ".png";
+    }
+    
+    private void deleteSupersededFiles(Path qrCodeDirectory, Long linkId, String currentFileName) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(qrCodeDirectory, "qr_" + linkId + "_*.png")) {
+            for (Path file : files) {
+                if (!file.getFileName().toString().equals(currentFileName)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            // Log error but don't throw exception
+            System.err.println("Failed to delete superseded QR code files: " + e.getMessage());
+        }
+    }
+    
+    private BitMatrix encode(String url, int size) throws WriterException {
+        QRCodeWriter qrCodeWriter = new QRCodeWriter();
+        return qrCodeWriter.encode(url, BarcodeFormat.QR_CODE, size, size);
+    }
+    
+    private String toSvg(BitMatrix matrix, int size) {
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+        StringBuilder path = new StringBuilder();
+        for (int y = 0; y < height; y++) {
+            int x = 0;
+            while (x < width) {
+                if (!matrix.get(x, y)) {
+                    x++;
+                    continue;
+                }
+                // One rectangle per horizontal run of dark modules
+                int start = x;
+                while (x < width && matrix.get(x, y)) {
+                    x++;
+                }
+                int run = x - start;
+                path.append('M').append(start).append(' ').append(y)
+                        .append('h').append(run).append("v1h-").append(run).append('z');
+            }
+        }
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + size + "\" height=\"" + size
+                + "\" viewBox=\"0 0 " + width + " " + height + "\" shape-rendering=\"crispEdges\">"
+                + "<rect width=\"100%\" height=\"100%\" fill=\"#FFFFFF\"/>"
+                + "<path fill=\"#000000\" d=\"" + path + "\"/></svg>\n";
+    }
 }
@@ -0,0 +1,31 @@
+package com.linkshortener.service;
+
+import com.linkshortener.repository.LinkRepository;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Random alphanumeric codes, checked against existing links one attempt at a time.
+ */
+@Component
+@ConditionalOnProperty(value = "app.short-code.generator", havingValue = "random")
+public class RandomShortCodeGenerator implements ShortCodeGenerator {
+
+    @Autowired
+    private LinkRepository linkRepository;
+
+    @Value("${app.short-url-length:8}")
+    private int shortUrlLength;
+
+    @Override
+    public String nextCode() {
+        String shortCode;
+        do {
+            shortCode = RandomStringUtils.randomAlphanumeric(shortUrlLength);
+        } while (linkRepository.existsByShortCode(shortCode));
+        return shortCode;
+    }
+}
@@ -0,0 +1,360 @@
+package com.linkshortener.service;
+
+import com.linkshortener.dto.RecentClickStats;
+import com.linkshortener.entity.Click;
+import com.linkshortener.repository.ClickRollupRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * The clicks of the last window (24 hours by default) held in memory as columns of
+ * primitives: click time, link id, and dictionary ids of the country, browser, OS and
+ * device, plus a flags byte for bots and mobiles. About 25 bytes a click and a fixed
+ * number of clicks, so the memory budget is set up front; when clicks arrive faster
+ * than it holds, the oldest are overwritten and queries reaching back past them go to
+ * the database instead. A query is one scan over the arrays into counters indexed by
+ * dictionary id, with no per-click objects.
+ *
+ * <p>Fed by the ingestion workers after each batch commits, and loaded from the clicks
+ * table on startup. Each node only sees the clicks it ingests, so it is off by default:
+ * enable it on a single node; with several nodes recent analytics come from the database.
+ */
+@Service
+public class RecentClickBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecentClickBuffer.class);
+
+    private static final byte FLAG_BOT = 1;
+    private static final byte FLAG_MOBILE = 2;
+
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    // Dictionary ids are shorts; values past this many share the "unknown" id 0
+    private static final int MAX_DICTIONARY_SIZE = Short.MAX_VALUE;
+
+    /**
+     * String values of one dimension, numbered in order of first appearance from 1; 0 is null.
+     */
+    private static final class Dictionary {
+        private final Map<String, Short> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>(List.of(""));
+
+        short idOf(String value) {
+            if (value == null) {
+                return 0;
+            }
+            Short id = ids.get(value);
+            if (id == null) {
+                if (values.size() >= MAX_DICTIONARY_SIZE) {
+                    return 0;
+                }
+                id = (short) values.size();
+                ids.put(value, id);
+                values.add(value);
+            }
+            return id;
+        }
+
+        int size() {
+            return values.size();
+        }
+
+        String valueOf(int id) {
+            return values.get(id);
+        }
+    }
+
+    @Autowired
+    private ClickRollupRepository clickRollupRepository;
+
+    @Autowired
+    private ClickRollupService clickRollupService;
+
+    @Value("${app.analytics.recent.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.analytics.recent.max-clicks:1000000}")
+    private int capacity;
+
+    @Value("${app.analytics.recent.window:24h}")
+    private Duration window;
+
+    // Appends hold the write side, queries the read side
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] clickedAt;
+    private long[] linkIds;
+    private short[] countries;
+    private short[] browsers;
+    private short[] operatingSystems;
+    private short[] devices;
+    private byte[] flags;
+
+    private final Dictionary countryDictionary = new Dictionary();
+    private final Dictionary browserDictionary = new Dictionary();
+    private final Dictionary osDictionary = new Dictionary();
+    private final Dictionary deviceDictionary = new Dictionary();
+
+    // Index of the next write, and number of clicks held
+    private int head;
+    private int size;
+    // Latest click time overwritten so far: queries must start after it
+    private long evictedUpTo = Long.MIN_VALUE;
+    // Start of what the buffer holds all clicks from; MAX_VALUE until loaded
+    private long coveredFrom = Long.MAX_VALUE;
+    // Set once loaded; appends are dropped until then
+    private volatile boolean live;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        capacity = Math.max(1, capacity);
+        clickedAt = new long[capacity];
+        linkIds = new long[capacity];
+        countries = new short[capacity];
+        browsers = new short[capacity];
+        operatingSystems = new short[capacity];
+        devices = new short[capacity];
+        flags = new byte[capacity];
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    /**
+     * Loads the clicks of the window from the database in the background, without holding up
+     * ingestion: the clicks committed before the load starts are read unlocked, then ingestion
+     * is paused only to read the few committed since and to start taking appends, so each
+     * batch is either loaded or appended, never both.
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        Thread.ofPlatform().daemon(true).name("recent-click-load").start(() -> {
+            try {
+                long started = System.nanoTime();
+                LocalDateTime from = LocalDateTime.now().minus(window);
+                long loadedUpTo = withIngestionPaused(clickRollupRepository::maxClickId);
+                loadClicks(from, 0L, loadedUpTo);
+                withIngestionPaused(() -> {
+                    // Nothing is being written: every click past loadedUpTo is committed
+                    loadClicks(from, loadedUpTo, Long.MAX_VALUE);
+                    markCovered(from);
+                    return null;
+                });
+                logger.info("Loaded {} recent clicks in {} ms", size(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            } catch (RuntimeException e) {
+                logger.error("Loading recent clicks failed: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Adds committed clicks, overwriting the oldest when full.
+     */
+    public void append(List<Click> clicks) {
+        // Until loaded, the clicks being committed are picked up by the load instead
+        if (!enabled || clicks.isEmpty() || !live) {
+            return;
+        }
+        write(clicks);
+    }
+
+    /**
+     * Stats of the clicks of the given links since a time, in timeline buckets of the given
+     * size; null when the buffer does not hold every click of that range.
+     */
+    public RecentClickStats query(long[] links, LocalDateTime since, Duration bucket) {
+        if (!enabled) {
+            return null;
+        }
+        long[] sortedLinks = links.clone();
+        Arrays.sort(sortedLinks);
+        LocalDateTime now = LocalDateTime.now();
+        long from = toMillis(since);
+        long bucketMillis = Math.max(1, bucket.toMillis());
+        long[] timeline = new long[(int) Math.max(1, (toMillis(now) - from + bucketMillis - 1) / bucketMillis)];
+
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            if (from < coveredFrom || from <= evictedUpTo) {
+                return null;
+            }
+            long total = 0;
+            long bots = 0;
+            long mobile = 0;
+            long[] byCountry = new long[countryDictionary.size()];
+            long[] byBrowser = new long[browserDictionary.size()];
+            long[] byOs = new long[osDictionary.size()];
+            long[] byDevice = new long[deviceDictionary.size()];
+            for (int i = 0; i < size; i++) {
+                long time = clickedAt[i];
+                if (time < from || !contains(sortedLinks, linkIds[i])) {
+                    continue;
+                }
+                total++;
+                bots += flags[i] & FLAG_BOT;
+                mobile += (flags[i] & FLAG_MOBILE) >> 1;
+                timeline[(int) Math.min((time - from) / bucketMillis, timeline.length - 1)]++;
+                byCountry[countries[i]]++;
+                byBrowser[browsers[i]]++;
+                byOs[operatingSystems[i]]++;
+                byDevice[devices[i]]++;
+            }
+
+            RecentClickStats stats = new RecentClickStats();
+            stats.setFrom(since);
+            stats.setTo(now);
+            stats.setSource("memory");
+            stats.setTotalClicks(total);
+            stats.setBotClicks(bots);
+            stats.setMobileClicks(mobile);
+            stats.setBucketMinutes((int) bucket.toMinutes());
+            stats.setTimeline(toTimeline(timeline, since, bucket));
+            stats.setClicksByCountry(toMap(byCountry, countryDictionary));
+            stats.setClicksByBrowser(toMap(byBrowser, browserDictionary));
+            stats.setClicksByOS(toMap(byOs, osDictionary));
+            stats.setClicksByDevice(toMap(byDevice, deviceDictionary));
+            return stats;
+        } finally {
+            read.unlock();
+        }
+    }
+
+    /**
+     * Number of clicks held.
+     */
+    public int size() {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            return size;
+        } finally {
+            read.unlock();
+        }
+    }
+
+    static List<RecentClickStats.TimelinePoint> toTimeline(long[] counts, LocalDateTime since, Duration bucket) {
+        List<RecentClickStats.TimelinePoint> timeline = new ArrayList<>(counts.length);
+        for (int i = 0; i < counts.length; i++) {
+            timeline.add(new RecentClickStats.TimelinePoint(since.plus(bucket.multipliedBy(i)), counts[i]));
+        }
+        return timeline;
+    }
+
+    private void write(List<Click> clicks) {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            for (Click click : clicks) {
+                if (size == capacity) {
+                    evictedUpTo = Math.max(evictedUpTo, clickedAt[head]);
+                } else {
+                    size++;
+                }
+                clickedAt[head] = toMillis(click.getClickedAt());
+                linkIds[head] = click.getLink().getId();
+                countries[head] = countryDictionary.idOf(click.getCountryCode());
+                browsers[head] = browserDictionary.idOf(click.getBrowser());
+                operatingSystems[head] = osDictionary.idOf(click.getOperatingSystem());
+                devices[head] = deviceDictionary.idOf(click.getDeviceType());
+                flags[head] = (byte) ((Boolean.TRUE.equals(click.getIsBot()) ? FLAG_BOT : 0)
+                        | (Boolean.TRUE.equals(click.getIsMobile()) ? FLAG_MOBILE : 0));
+                head = head + 1 == capacity ? 0 : head + 1;
+            }
+        } finally {
+            write.unlock();
+        }
+    }
+
+    // Appends the clicks of the window with an id in (afterId, upToId]
+    private void loadClicks(LocalDateTime from, long afterId, long upToId) {
+        List<Click> batch = new ArrayList<>(LOAD_BATCH_SIZE);
+        clickRollupRepository.forEachClickSince(from, afterId, upToId, click -> {
+            batch.add(click);
+            if (batch.size() == LOAD_BATCH_SIZE) {
+                write(batch);
+                batch.clear();
+            }
+        });
+        write(batch);
+    }
+
+    private <T> T withIngestionPaused(Supplier<T> action) {
+        Lock ingestion = clickRollupService.exclusiveLock();
+        ingestion.lock();
+        try {
+            return action.get();
+        } finally {
+            ingestion.unlock();
+        }
+    }
+
+    // Called with ingestion paused
+    private void markCovered(LocalDateTime from) {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            coveredFrom = toMillis(from);
+            live = true;
+        } finally {
+            write.unlock();
+        }
+    }
+
+    // Most clicked first; the unknown id 0 is left out, like nulls in the other analytics
+    private static Map<String, Long> toMap(long[] counts, Dictionary dictionary) {
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 1; id < counts.length; id++) {
+            if (counts[id] > 0) {
+                ids.add(id);
+            }
+        }
+        ids.sort((a, b) -> Long.compare(counts[b], counts[a]));
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (int id : ids) {
+            map.put(dictionary.valueOf(id), counts[id]);
+        }
+        return map;
+    }
+
+    private static boolean contains(long[] sorted, long value) {
+        return sorted.length == 1 ? sorted[0] == value : Arrays.binarySearch(sorted, value) >= 0;
+    }
+
+    // Local click times are only compared with each other: read them as UTC for a cheap epoch
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
@@ -0,0 +1,111 @@
+package com.linkshortener.service;
+
+import com.linkshortener.entity.CodeSequence;
+import com.linkshortener.repository.CodeSequenceRepository;
+import com.linkshortener.util.ShortCodeCodec;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Codes derived from a monotonic id, so they are unique by construction and need no
+ * existence check. Each node leases a block of ids from the {@code code_sequences} row
+ * in its own short transaction and hands them out from memory; ids left in a block
+ * when the node stops are simply skipped.
+ *
+ * <p>The permutation key must not change once codes have been issued: a new key maps
+ * future ids onto codes that may already be taken.
+ */
+@Component
+@ConditionalOnProperty(value = "app.short-code.generator", havingValue = "sequence", matchIfMissing = true)
+public class SequenceShortCodeGenerator implements ShortCodeGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SequenceShortCodeGenerator.class);
+
+    static final String SEQUENCE_NAME = "short_code";
+
+    @Autowired
+    private CodeSequenceRepository codeSequenceRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Differs from the legacy random codes (app.short-url-length) so the two never collide
+    @Value("${app.short-code.length:7}")
+    private int length;
+
+    @Value("${app.short-code.scramble:true}")
+    private boolean scramble;
+
+    @Value("${app.short-code.key:linkshortener}")
+    private String key;
+
+    @Value("${app.short-code.block-size:100}")
+    private int blockSize;
+
+    private ShortCodeCodec codec;
+    private TransactionTemplate leaseTransaction;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private long nextId;
+    private long blockEnd;
+
+    @PostConstruct
+    void init() {
+        codec = new ShortCodeCodec(length, key, scramble);
+        leaseTransaction = new TransactionTemplate(transactionManager);
+        leaseTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public String nextCode() {
+        long id;
+        lock.lock();
+        try {
+            if (nextId >= blockEnd) {
+                nextId = leaseBlock();
+                blockEnd = nextId + blockSize;
+            }
+            id = nextId++;
+        } finally {
+            lock.unlock();
+        }
+        if (id >= codec.getCapacity()) {
+            throw new IllegalStateException("All " + codec.getCapacity() + " short codes of length " + length
+                    + " are used, increase app.short-code.length");
+        }
+        return codec.encode(id);
+    }
+
+    /**
+     * Reserves [start, start + blockSize) and returns start. Runs in its own transaction
+     * so the row lock is held only for the lease, never for the caller's transaction.
+     */
+    private long leaseBlock() {
+        try {
+            return leaseTransaction.execute(status -> reserve());
+        } catch (DataIntegrityViolationException e) {
+            // Another node created the sequence row at the same time; it exists now
+            return leaseTransaction.execute(status -> reserve());
+        }
+    }
+
+    private long reserve() {
+        CodeSequence sequence = codeSequenceRepository.findForUpdate(SEQUENCE_NAME)
+                .orElseGet(() -> codeSequenceRepository.saveAndFlush(new CodeSequence(SEQUENCE_NAME, 1L)));
+        long start = sequence.getNextValue();
+        sequence.setNextValue(start + blockSize);
+        logger.debug("Leased short code ids {} to {}", start, start + blockSize - 1);
+        return start;
+    }
+}
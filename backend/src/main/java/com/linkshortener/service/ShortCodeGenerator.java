@@ -0,0 +1,13 @@
+package com.linkshortener.service;
+
+/**
+ * Source of short codes for new links. Select the implementation with
+ * {@code app.short-code.generator} ({@code sequence} or {@code random}).
+ */
+public interface ShortCodeGenerator {
+
+    /**
+     * Returns a short code that no other link has been given by this generator.
+     */
+    String nextCode();
+}
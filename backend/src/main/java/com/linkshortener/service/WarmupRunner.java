@@ -0,0 +1,136 @@
+package com.linkshortener.service;
+
+import com.linkshortener.entity.Click;
+import com.linkshortener.entity.Link;
+import com.linkshortener.repository.LinkRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Startup warm-up: loads the most clicked links into the "links" cache, then runs the
+ * redirect lookup and click enrichment code on synthetic input so the JIT compiles them
+ * before real traffic arrives. Runners complete before Spring Boot switches readiness to
+ * ACCEPTING_TRAFFIC, so /actuator/health/readiness reports OUT_OF_SERVICE until this is done.
+ * Both phases share one time budget; warm-up never fails the startup.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class WarmupRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarmupRunner.class);
+
+    private static final String[] SAMPLE_USER_AGENTS = {
+        "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36",
+        "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.1 Safari/605.1.15",
+        "Mozilla/5.0 (iPhone; CPU iPhone OS 17_1 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.1 Mobile/15E148 Safari/604.1",
+        "Mozilla/5.0 (Linux; Android 14; Pixel 8) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Mobile Safari/537.36",
+        "Mozilla/5.0 (X11; Linux x86_64; rv:121.0) Gecko/20100101 Firefox/121.0",
+        "Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)",
+        "facebookexternalhit/1.1 (+http://www.facebook.com/externalhit_uatext.php)",
+        "curl/8.4.0"
+    };
+
+    private static final String[] SAMPLE_IPS = {"8.8.8.8", "1.1.1.1", "81.2.69.142", "127.0.0.1"};
+
+    @Autowired
+    private LinkRepository linkRepository;
+
+    @Autowired
+    private LinkService linkService;
+
+    @Autowired
+    private ClickEnricher clickEnricher;
+
+    @Value("${app.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.warmup.top-links:1000}")
+    private int topLinks;
+
+    @Value("${app.warmup.iterations:20000}")
+    private int iterations;
+
+    @Value("${app.warmup.time-budget:30s}")
+    private Duration timeBudget;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + timeBudget.toNanos();
+        try {
+            List<String> codes = preloadTopLinks(deadline);
+            int lookups = exerciseRedirectLookup(codes, deadline);
+            int enrichments = exerciseClickEnrichment(deadline);
+            logger.info("Warm-up done in {} ms: {} links cached, {} synthetic lookups, {} synthetic enrichments{}",
+                    Duration.ofNanos(System.nanoTime() - start).toMillis(), codes.size(), lookups, enrichments,
+                    System.nanoTime() > deadline ? " (time budget exhausted)" : "");
+        } catch (RuntimeException e) {
+            logger.warn("Warm-up aborted after {} ms: {}",
+                    Duration.ofNanos(System.nanoTime() - start).toMillis(), e.getMessage());
+        }
+    }
+
+    /**
+     * Resolves the most clicked links through findByCode so they land in the cache exactly
+     * as a redirect would have put them, under both the short code and the alias.
+     */
+    private List<String> preloadTopLinks(long deadline) {
+        List<String> codes = new ArrayList<>();
+        if (topLinks <= 0) {
+            return codes;
+        }
+        for (Link link : linkRepository.findTopLinks(PageRequest.of(0, topLinks))) {
+            if (System.nanoTime() > deadline) {
+                break;
+            }
+            if (linkService.findByCode(link.getShortCode()).isPresent()) {
+                codes.add(link.getShortCode());
+            }
+            if (link.getCustomAlias() != null && linkService.findByCode(link.getCustomAlias()).isPresent()) {
+                codes.add(link.getCustomAlias());
+            }
+        }
+        return codes;
+    }
+
+    /**
+     * Cache hits on the preloaded codes. Unknown codes are left out: they would skew the
+     * link filter's observed false-positive rate.
+     */
+    private int exerciseRedirectLookup(List<String> codes, long deadline) {
+        if (codes.isEmpty()) {
+            return 0;
+        }
+        int i = 0;
+        for (; i < iterations && System.nanoTime() < deadline; i++) {
+            linkService.findByCode(codes.get(i % codes.size()));
+        }
+        return i;
+    }
+
+    private int exerciseClickEnrichment(long deadline) {
+        int i = 0;
+        for (; i < iterations && System.nanoTime() < deadline; i++) {
+            Click click = new Click();
+            click.setUserAgent(SAMPLE_USER_AGENTS[i % SAMPLE_USER_AGENTS.length]);
+            click.setIpAddress(SAMPLE_IPS[i % SAMPLE_IPS.length]);
+            clickEnricher.enrich(click);
+        }
+        return i;
+    }
+}
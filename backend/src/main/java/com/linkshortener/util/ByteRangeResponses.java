@@ -0,0 +1,65 @@
+package com.linkshortener.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+/**
+ * Answers Range requests for a body already in memory. Spring MVC serves ranges of a
+ * {@link org.springframework.core.io.Resource} body itself (206 and multipart/byteranges);
+ * this decides when the whole body is sent instead: no Range, a malformed one, which HTTP
+ * allows, or an If-Range that does not match the current ETag, which Spring leaves to the
+ * handler. Unsatisfiable ranges get an empty 416, where Spring would send the whole body.
+ */
+public final class ByteRangeResponses {
+
+    private ByteRangeResponses() {
+    }
+
+    /**
+     * {@code body} with the given headers, which should carry the content type; Accept-Ranges
+     * and, if given, the ETag are added.
+     */
+    public static ResponseEntity<?> of(byte[] body, HttpHeaders headers, String etag, HttpServletRequest request) {
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (etag != null) {
+            headers.setETag(etag);
+        }
+        String range = request.getHeader(HttpHeaders.RANGE);
+        List<HttpRange> ranges = range != null && ifRangeMatches(request, etag) ? parse(range) : List.of();
+        if (ranges.isEmpty()) {
+            headers.setContentLength(body.length);
+            return new ResponseEntity<>(body, headers, HttpStatus.OK);
+        }
+        ByteArrayResource resource = new ByteArrayResource(body);
+        try {
+            HttpRange.toResourceRegions(ranges, resource);
+        } catch (IllegalArgumentException e) {
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + body.length);
+            return new ResponseEntity<>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        }
+        return new ResponseEntity<>(resource, headers, HttpStatus.OK);
+    }
+
+    private static List<HttpRange> parse(String range) {
+        try {
+            return HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * If-Range with anything but the current strong ETag means the client's copy is stale,
+     * so it gets the whole body instead of a range.
+     */
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        return ifRange == null || (etag != null && etag.equals(ifRange.trim()));
+    }
+}
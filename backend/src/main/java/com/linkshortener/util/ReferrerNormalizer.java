@@ -0,0 +1,75 @@
+package com.linkshortener.util;
+
+import java.net.URI;
+import java.util.Locale;
+
+/**
+ * Reduces Referer headers to the part worth counting. Full URLs carry query strings and
+ * fragments that make nearly every value unique; HOST keeps the host without "www.",
+ * PATH keeps the host and path.
+ */
+public final class ReferrerNormalizer {
+
+    public enum Granularity {
+        HOST,
+        PATH
+    }
+
+    private ReferrerNormalizer() {
+    }
+
+    /**
+     * The normalized referrer, or null if there is nothing left to count.
+     */
+    public static String normalize(String referer, Granularity granularity) {
+        if (referer == null || referer.isBlank()) {
+            return null;
+        }
+        String value = referer.trim();
+        int cut = indexOfAny(value, '?', '#');
+        if (cut >= 0) {
+            value = value.substring(0, cut);
+        }
+
+        String host;
+        String path;
+        try {
+            URI uri = new URI(value);
+            host = uri.getHost();
+            path = uri.getRawPath();
+        } catch (Exception e) {
+            host = null;
+            path = null;
+        }
+        if (host == null) {
+            // Not an absolute URI: keep what precedes the first slash after any scheme
+            int start = value.indexOf("://");
+            String rest = start >= 0 ? value.substring(start + 3) : value;
+            int slash = rest.indexOf('/');
+            host = slash >= 0 ? rest.substring(0, slash) : rest;
+            path = slash >= 0 ? rest.substring(slash) : "";
+        }
+
+        host = host.toLowerCase(Locale.ROOT);
+        if (host.startsWith("www.")) {
+            host = host.substring(4);
+        }
+        if (host.isEmpty()) {
+            return null;
+        }
+        if (granularity == Granularity.HOST || path == null || path.isEmpty() || path.equals("/")) {
+            return host;
+        }
+        return host + (path.endsWith("/") ? path.substring(0, path.length() - 1) : path);
+    }
+
+    private static int indexOfAny(String value, char first, char second) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == first || c == second) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
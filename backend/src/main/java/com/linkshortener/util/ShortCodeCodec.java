@@ -0,0 +1,147 @@
+package com.linkshortener.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Maps sequence numbers to Base62 short codes and back.
+ *
+ * <p>Scrambled codes have a fixed length and go through a keyed Feistel permutation
+ * of [0, 62^length) first, so consecutive ids give unrelated-looking codes while the
+ * mapping stays a bijection: distinct ids can never produce the same code. Unscrambled
+ * codes are the plain Base62 digits of the id, without padding.
+ */
+public class ShortCodeCodec {
+
+    public static final int MIN_LENGTH = 4;
+
+    // 62^10 is the largest power of 62 that fits in a long
+    public static final int MAX_LENGTH = 10;
+
+    private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+    private static final int BASE = 62;
+
+    private static final int ROUNDS = 8;
+
+    private final int length;
+    private final boolean scramble;
+    private final long capacity;
+    private final long leftSize;
+    private final long rightSize;
+    private final long[] roundKeys = new long[ROUNDS];
+
+    public ShortCodeCodec(int length, String key, boolean scramble) {
+        if (length < MIN_LENGTH || length > MAX_LENGTH) {
+            throw new IllegalArgumentException("Short code length must be between " + MIN_LENGTH
+                    + " and " + MAX_LENGTH);
+        }
+        this.length = length;
+        this.scramble = scramble;
+        this.capacity = pow62(length);
+        this.rightSize = pow62(length / 2);
+        this.leftSize = capacity / rightSize;
+        deriveRoundKeys(key);
+    }
+
+    /**
+     * Number of distinct ids, and codes, available at this length.
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public String encode(long id) {
+        if (id < 0 || id >= capacity) {
+            throw new IllegalArgumentException("Id " + id + " does not fit in " + length + " Base62 digits");
+        }
+        return scramble ? toBase62(permute(id), length) : toBase62(id, 1);
+    }
+
+    public long decode(String code) {
+        long value = 0;
+        for (int i = 0; i < code.length(); i++) {
+            int digit = ALPHABET.indexOf(code.charAt(i));
+            if (digit < 0) {
+                throw new IllegalArgumentException("Not a Base62 code: " + code);
+            }
+            value = value * BASE + digit;
+        }
+        return scramble ? unpermute(value) : value;
+    }
+
+    long permute(long value) {
+        long left = value / rightSize;
+        long right = value % rightSize;
+        for (int round = 0; round < ROUNDS; round++) {
+            // Alternate halves; adding a keyed function of the other half is invertible by subtraction
+            if (round % 2 == 0) {
+                left = Math.floorMod(left + roundFunction(round, right, leftSize), leftSize);
+            } else {
+                right = Math.floorMod(right + roundFunction(round, left, rightSize), rightSize);
+            }
+        }
+        return left * rightSize + right;
+    }
+
+    long unpermute(long value) {
+        long left = value / rightSize;
+        long right = value % rightSize;
+        for (int round = ROUNDS - 1; round >= 0; round--) {
+            if (round % 2 == 0) {
+                left = Math.floorMod(left - roundFunction(round, right, leftSize), leftSize);
+            } else {
+                right = Math.floorMod(right - roundFunction(round, left, rightSize), rightSize);
+            }
+        }
+        return left * rightSize + right;
+    }
+
+    private long roundFunction(int round, long half, long modulus) {
+        long hash = roundKeys[round] ^ (half * 0x9e3779b97f4a7c15L);
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return Math.floorMod(hash, modulus);
+    }
+
+    private void deriveRoundKeys(String key) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-512").digest(key.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-512 not available", e);
+        }
+        for (int round = 0; round < ROUNDS; round++) {
+            long roundKey = 0;
+            for (int i = 0; i < 8; i++) {
+                roundKey = roundKey << 8 | (digest[round * 8 + i] & 0xff);
+            }
+            roundKeys[round] = roundKey;
+        }
+    }
+
+    private static String toBase62(long value, int minLength) {
+        char[] digits = new char[MAX_LENGTH];
+        int position = digits.length;
+        do {
+            digits[--position] = ALPHABET.charAt((int) (value % BASE));
+            value /= BASE;
+        } while (value > 0);
+        while (digits.length - position < minLength) {
+            digits[--position] = ALPHABET.charAt(0);
+        }
+        return new String(digits, position, digits.length - position);
+    }
+
+    private static long pow62(int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= BASE;
+        }
+        return result;
+    }
+}
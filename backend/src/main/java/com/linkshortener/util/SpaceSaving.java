@@ -0,0 +1,201 @@
+package com.linkshortener.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving heavy-hitter summary: the most frequent values of a stream in a fixed
+ * number of counters. A value not tracked replaces the least counted one and inherits its
+ * count as error, so each reported count overestimates the true count by at most its error,
+ * and at most total/capacity. Any value more frequent than total/capacity is guaranteed to be
+ * tracked. Summaries merge (Agarwal et al., "Mergeable Summaries") with the same guarantee
+ * over the union of their streams. Not thread-safe.
+ */
+public class SpaceSaving {
+
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private static final byte FORMAT_V1 = 1;
+
+    /**
+     * A tracked value: estimated count, overestimation bound, and the label it was first seen with.
+     */
+    public record Entry(String value, String label, long count, long error) {
+    }
+
+    private static final class Counter {
+        final String value;
+        final String label;
+        long count;
+        long error;
+
+        Counter(String value, String label, long count, long error) {
+            this.value = value;
+            this.label = label;
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    private final int capacity;
+    private final Map<String, Counter> counters;
+    private long total;
+
+    public SpaceSaving() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1 || capacity > 0xffff) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 65535");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    public void add(String value, String label) {
+        add(value, label, 1);
+    }
+
+    /**
+     * Counts {@code count} occurrences of a value at once.
+     */
+    public void add(String value, String label, long count) {
+        if (value == null || count <= 0) {
+            return;
+        }
+        total += count;
+        Counter counter = counters.get(value);
+        if (counter != null) {
+            counter.count += count;
+            return;
+        }
+        if (counters.size() < capacity) {
+            counters.put(value, new Counter(value, label, count, 0));
+            return;
+        }
+        // Capacity is small: a scan for the minimum is cheaper than maintaining an ordered structure
+        Counter min = minCounter();
+        counters.remove(min.value);
+        counters.put(value, new Counter(value, label, min.count + count, min.count));
+    }
+
+    /**
+     * Folds {@code other} into this summary, which then summarizes both streams. A value
+     * missing from a full summary may have occurred up to that summary's minimum count.
+     */
+    public SpaceSaving merge(SpaceSaving other) {
+        long ourFloor = counters.size() >= capacity ? minCounter().count : 0;
+        long theirFloor = other.counters.size() >= other.capacity ? other.minCounter().count : 0;
+
+        Map<String, Counter> merged = new HashMap<>(counters.size() + other.counters.size());
+        for (Counter ours : counters.values()) {
+            Counter theirs = other.counters.get(ours.value);
+            merged.put(ours.value, theirs != null
+                    ? new Counter(ours.value, ours.label, ours.count + theirs.count, ours.error + theirs.error)
+                    : new Counter(ours.value, ours.label, ours.count + theirFloor, ours.error + theirFloor));
+        }
+        for (Counter theirs : other.counters.values()) {
+            if (!counters.containsKey(theirs.value)) {
+                merged.put(theirs.value,
+                        new Counter(theirs.value, theirs.label, theirs.count + ourFloor, theirs.error + ourFloor));
+            }
+        }
+
+        List<Counter> kept = new ArrayList<>(merged.values());
+        if (kept.size() > capacity) {
+            kept.sort(Comparator.comparingLong((Counter c) -> c.count).reversed());
+            kept = kept.subList(0, capacity);
+        }
+        counters.clear();
+        for (Counter counter : kept) {
+            counters.put(counter.value, counter);
+        }
+        total += other.total;
+        return this;
+    }
+
+    /**
+     * The {@code k} values with the highest estimated counts, most counted first, ties by value.
+     */
+    public List<Entry> top(int k) {
+        return counters.values().stream()
+                .sorted(Comparator.comparingLong((Counter c) -> c.count).reversed().thenComparing(c -> c.value))
+                .limit(k)
+                .map(c -> new Entry(c.value, c.label, c.count, c.error))
+                .toList();
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + counters.size() * 48);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_V1);
+            out.writeShort(capacity);
+            out.writeLong(total);
+            out.writeShort(counters.size());
+            for (Counter counter : counters.values()) {
+                out.writeUTF(counter.value);
+                out.writeBoolean(counter.label != null);
+                if (counter.label != null) {
+                    out.writeUTF(counter.label);
+                }
+                out.writeLong(counter.count);
+                out.writeLong(counter.error);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static SpaceSaving fromBytes(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte format = in.readByte();
+            if (format != FORMAT_V1) {
+                throw new IllegalArgumentException("Unknown summary format " + format);
+            }
+            SpaceSaving summary = new SpaceSaving(in.readUnsignedShort());
+            summary.total = in.readLong();
+            int size = in.readUnsignedShort();
+            for (int i = 0; i < size; i++) {
+                String value = in.readUTF();
+                String label = in.readBoolean() ? in.readUTF() : null;
+                summary.counters.put(value, new Counter(value, label, in.readLong(), in.readLong()));
+            }
+            return summary;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Counter minCounter() {
+        Counter min = null;
+        for (Counter counter : counters.values()) {
+            if (min == null || counter.count < min.count) {
+                min = counter;
+            }
+        }
+        return min;
+    }
+}
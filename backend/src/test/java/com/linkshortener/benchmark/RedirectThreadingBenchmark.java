@@ -0,0 +1,171 @@
+package com.linkshortener.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Closed-loop load comparison of the platform-thread and virtual-thread modes.
+ * Start two instances against the same database, one per mode, then run:
+ *
+ * <pre>
+ * VIRTUAL_THREADS_ENABLED=false java -jar target/*.jar --server.port=8081
+ * VIRTUAL_THREADS_ENABLED=true  java -jar target/*.jar --server.port=8082
+ *
+ * ./mvnw test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.linkshortener.benchmark.RedirectThreadingBenchmark \
+ *     -Dexec.args="--platform=http://localhost:8081 --virtual=http://localhost:8082 \
+ *                  --paths=/abc123,/api/analytics/42 --concurrency=1000 --duration=30 --warmup=5"
+ * </pre>
+ *
+ * Each of the {@code concurrency} clients issues requests back to back over the given
+ * paths; redirects are not followed. The interesting cases are concurrency above
+ * {@code server.tomcat.threads.max} (200 by default) on endpoints that block on JDBC,
+ * e.g. cache misses or analytics. Run with the Hikari pool sized for the load, otherwise
+ * both modes queue on connections and converge.
+ */
+public class RedirectThreadingBenchmark {
+
+    private record Result(String label, long requests, long errors, Map<Integer, Long> statuses,
+                          long[] latenciesNanos, double seconds) {
+
+        double throughput() {
+            return requests / seconds;
+        }
+
+        double percentileMillis(double percentile) {
+            if (latenciesNanos.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.min(latenciesNanos.length - 1, Math.ceil(percentile * latenciesNanos.length) - 1);
+            return latenciesNanos[Math.max(index, 0)] / 1_000_000.0;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        List<String> paths = Arrays.asList(options.getOrDefault("paths", "/").split(","));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "500"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "5"));
+
+        List<Result> results = new ArrayList<>();
+        for (String mode : List.of("platform", "virtual")) {
+            String baseUrl = options.get(mode);
+            if (baseUrl == null) {
+                continue;
+            }
+            System.out.printf("%s: warming up %s for %d s%n", mode, baseUrl, warmupSeconds);
+            run(mode, baseUrl, paths, concurrency, warmupSeconds);
+            System.out.printf("%s: measuring with %d clients for %d s%n", mode, concurrency, durationSeconds);
+            results.add(run(mode, baseUrl, paths, concurrency, durationSeconds));
+        }
+
+        if (results.isEmpty()) {
+            System.err.println("Usage: --platform=<url> and/or --virtual=<url> [--paths=/a,/b] "
+                    + "[--concurrency=500] [--duration=30] [--warmup=5]");
+            System.exit(1);
+        }
+        report(results);
+    }
+
+    private static Result run(String label, String baseUrl, List<String> paths, int concurrency,
+                              int durationSeconds) throws Exception {
+        List<URI> uris = paths.stream().map(path -> URI.create(baseUrl + path)).toList();
+        AtomicInteger errors = new AtomicInteger();
+        Map<Integer, Long> statuses = new HashMap<>();
+
+        // Virtual threads on the client side so the driver itself is never the ceiling
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient httpClient = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .followRedirects(HttpClient.Redirect.NEVER)
+                     .connectTimeout(Duration.ofSeconds(5))
+                     .executor(clients)
+                     .build()) {
+
+            long start = System.nanoTime();
+            long deadline = start + Duration.ofSeconds(durationSeconds).toNanos();
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int c = 0; c < concurrency; c++) {
+                int offset = c;
+                futures.add(clients.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    Map<Integer, Long> localStatuses = new HashMap<>();
+                    for (int i = offset; System.nanoTime() < deadline; i++) {
+                        HttpRequest request = HttpRequest.newBuilder(uris.get(i % uris.size()))
+                                .timeout(Duration.ofSeconds(30))
+                                .GET()
+                                .build();
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                            localStatuses.merge(response.statusCode(), 1L, Long::sum);
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - sent;
+                    }
+                    synchronized (statuses) {
+                        localStatuses.forEach((status, n) -> statuses.merge(status, n, Long::sum));
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+
+            List<long[]> perClient = new ArrayList<>();
+            for (Future<long[]> future : futures) {
+                perClient.add(future.get());
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            long[] all = perClient.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+            return new Result(label, all.length, errors.get(), statuses, all, seconds);
+        }
+    }
+
+    private static void report(List<Result> results) {
+        System.out.println();
+        System.out.printf("%-10s %12s %10s %10s %10s %10s %8s  %s%n",
+                "mode", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "errors", "statuses");
+        for (Result result : results) {
+            System.out.printf("%-10s %12.1f %10.2f %10.2f %10.2f %10.2f %8d  %s%n",
+                    result.label(), result.throughput(),
+                    result.percentileMillis(0.50), result.percentileMillis(0.95),
+                    result.percentileMillis(0.99), result.percentileMillis(1.0),
+                    result.errors(), result.statuses());
+        }
+        if (results.size() == 2 && results.get(0).throughput() > 0) {
+            System.out.printf("%nvirtual/platform throughput: %.2fx%n",
+                    results.get(1).throughput() / results.get(0).throughput());
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int separator = arg.indexOf('=');
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        return options;
+    }
+}
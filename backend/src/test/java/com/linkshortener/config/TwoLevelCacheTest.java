@@ -0,0 +1,105 @@
+package com.linkshortener.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class TwoLevelCacheTest {
+
+    private ConcurrentMapCache local;
+    private ConcurrentMapCache remote;
+    private StringRedisTemplate redisTemplate;
+    private CacheInvalidationBroadcaster broadcaster;
+    private TwoLevelCache cache;
+
+    @BeforeEach
+    void setUp() {
+        local = new ConcurrentMapCache("links");
+        remote = new ConcurrentMapCache("links");
+        redisTemplate = mock(StringRedisTemplate.class);
+        broadcaster = new CacheInvalidationBroadcaster(redisTemplate);
+        cache = new TwoLevelCache("links", local, remote, broadcaster, "expired"::equals);
+    }
+
+    @Test
+    public void testEvictionFromAnotherNodeOnlyDropsTheLocalCopy() {
+        // Given
+        cache.put("abc123", "target");
+        cache.put("other", "target");
+        new CacheInvalidationBroadcaster(redisTemplate).evicted("links", "abc123");
+
+        // When
+        broadcaster.onMessage(message(lastPublished()), null);
+
+        // Then
+        assertNull(local.get("abc123"));
+        assertNotNull(local.get("other"));
+        assertNotNull(remote.get("abc123"));
+    }
+
+    @Test
+    public void testOwnEvictionMessagesAreIgnored() {
+        // Given
+        cache.evict("abc123");
+        String published = lastPublished();
+        cache.put("abc123", "target");
+
+        // When
+        broadcaster.onMessage(message(published), null);
+
+        // Then
+        assertNotNull(local.get("abc123"));
+    }
+
+    @Test
+    public void testBroadcastFailureDoesNotFailTheEviction() {
+        // Given
+        cache.put("abc123", "target");
+        doThrow(new IllegalStateException("Redis down")).when(redisTemplate)
+                .convertAndSend(eq(CacheInvalidationBroadcaster.CHANNEL), anyString());
+
+        // When
+        cache.evict("abc123");
+
+        // Then
+        assertNull(local.get("abc123"));
+        assertNull(remote.get("abc123"));
+        assertEquals(1, cache.getRemoteErrors());
+    }
+
+    @Test
+    public void testStaleEntryIsAMissInBothTiers() {
+        // Given
+        cache.put("abc123", "expired");
+        remote.put("def456", "expired");
+
+        // When / Then
+        assertNull(cache.get("abc123"));
+        assertNull(cache.get("def456"));
+        assertNull(local.get("abc123"));
+        assertNull(remote.get("abc123"));
+        assertNull(remote.get("def456"));
+        verify(redisTemplate, never()).convertAndSend(eq(CacheInvalidationBroadcaster.CHANNEL), anyString());
+    }
+
+    private String lastPublished() {
+        ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate, atLeastOnce()).convertAndSend(eq(CacheInvalidationBroadcaster.CHANNEL), body.capture());
+        return body.getValue();
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(CacheInvalidationBroadcaster.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
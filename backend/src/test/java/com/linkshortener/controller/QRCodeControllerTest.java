@@ -0,0 +1,120 @@
+package com.linkshortener.controller;
+
+import com.linkshortener.entity.User;
+import com.linkshortener.repository.UserRepository;
+import com.linkshortener.service.CurrentUserService;
+import com.linkshortener.service.QRCodeExportService;
+import com.linkshortener.service.QRCodeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+public class QRCodeControllerTest {
+
+    private MockMvc mockMvc;
+    private QRCodeExportService qrCodeExportService;
+
+    @BeforeEach
+    void setUp() {
+        QRCodeController controller = new QRCodeController();
+        QRCodeService qrCodeService = mock(QRCodeService.class);
+        qrCodeExportService = mock(QRCodeExportService.class);
+        UserRepository userRepository = mock(UserRepository.class);
+        CurrentUserService currentUserService = new CurrentUserService();
+        User alice = new User("alice", "alice@example.com", "secret");
+        alice.setId(7L);
+        when(userRepository.findByUsernameOrEmail("alice")).thenReturn(Optional.of(alice));
+        when(qrCodeService.getDefaultSize()).thenReturn(300);
+        when(qrCodeExportService.getMaxLinks()).thenReturn(100);
+
+        ReflectionTestUtils.setField(currentUserService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(controller, "qrCodeService", qrCodeService);
+        ReflectionTestUtils.setField(controller, "qrCodeExportService", qrCodeExportService);
+        ReflectionTestUtils.setField(controller, "currentUserService", currentUserService);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .addPlaceholderValue("cors.allowed-origins", "http://localhost:3000")
+                .build();
+    }
+
+    @Test
+    public void testAnonymousExportIsLimitedToActiveLinks() throws Exception {
+        // When
+        perform(export("{\"linkIds\":[1,2],\"activeOnly\":false}"));
+
+        // Then
+        verify(qrCodeExportService).export(eq(List.of(1L, 2L)), isNull(), eq(true), eq(300),
+                eq(QRCodeService.Format.PNG), any());
+    }
+
+    @Test
+    public void testAuthenticatedExportIsScopedToTheUser() throws Exception {
+        // When
+        perform(export("{\"linkIds\":[1,2]}").principal(authenticated("alice")));
+
+        // Then
+        verify(qrCodeExportService).export(eq(List.of(1L, 2L)), eq(7L), eq(false), eq(300),
+                eq(QRCodeService.Format.PNG), any());
+    }
+
+    @Test
+    public void testAuthenticatedExportHonoursActiveOnly() throws Exception {
+        // When
+        perform(export("{\"activeOnly\":true,\"format\":\"svg\"}").principal(authenticated("alice")));
+
+        // Then
+        verify(qrCodeExportService).export(isNull(), eq(7L), eq(true), eq(300),
+                eq(QRCodeService.Format.SVG), any());
+    }
+
+    @Test
+    public void testUnknownPrincipalGetsTheAnonymousScope() throws Exception {
+        // When
+        perform(export("{\"linkIds\":[1]}").principal(authenticated("mallory")));
+
+        // Then
+        verify(qrCodeExportService).export(eq(List.of(1L)), isNull(), eq(true), eq(300),
+                eq(QRCodeService.Format.PNG), any());
+    }
+
+    @Test
+    public void testTooManyLinksIsABadRequest() throws Exception {
+        // Given
+        when(qrCodeExportService.getMaxLinks()).thenReturn(1);
+
+        // When / Then
+        mockMvc.perform(export("{\"linkIds\":[1,2]}"))
+                .andExpect(status().isBadRequest());
+        verify(qrCodeExportService, never()).export(any(), any(), anyBoolean(), anyInt(), any(), any());
+    }
+
+    private void perform(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+    }
+
+    private static MockHttpServletRequestBuilder export(String body) {
+        return post("/api/qr/export").contentType(MediaType.APPLICATION_JSON).content(body);
+    }
+
+    private static UsernamePasswordAuthenticationToken authenticated(String name) {
+        return new UsernamePasswordAuthenticationToken(name, null, List.of());
+    }
+}
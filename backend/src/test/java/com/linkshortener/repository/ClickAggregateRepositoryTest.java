@@ -0,0 +1,107 @@
+package com.linkshortener.repository;
+
+import com.linkshortener.entity.Click;
+import com.linkshortener.entity.ClickRollup;
+import com.linkshortener.entity.Link;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(ClickAggregateRepository.class)
+@TestPropertySource(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+public class ClickAggregateRepositoryTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    @Autowired
+    private ClickAggregateRepository clickAggregateRepository;
+
+    @Autowired
+    private LinkRepository linkRepository;
+
+    @Autowired
+    private ClickRepository clickRepository;
+
+    private Link link;
+
+    @BeforeEach
+    void setUp() {
+        link = new Link();
+        link.setOriginalUrl("https://example.com");
+        link.setShortCode("abc123");
+        link = linkRepository.save(link);
+    }
+
+    @Test
+    public void testTotalsAndDailyCounts() {
+        // Given: 2 clicks on the first day and 1 the next
+        click(DAY.plusHours(9), "Chrome", null);
+        click(DAY.plusHours(23).plusMinutes(10), "Chrome", null);
+        click(DAY.plusHours(25), "Firefox", null);
+
+        // When
+        ClickStatsRepository.Totals totals = clickAggregateRepository.totals(link.getId());
+        List<ClickStatsRepository.DayCount> daily = clickAggregateRepository.daily(link.getId(), DAY.plusHours(12));
+
+        // Then: the day since falls in is counted whole
+        assertEquals(3, totals.clicks());
+        assertEquals(DAY.plusHours(25), totals.lastClickAt());
+        assertEquals(List.of(new ClickStatsRepository.DayCount("2024-03-01", 2),
+                new ClickStatsRepository.DayCount("2024-03-02", 1)), daily);
+    }
+
+    @Test
+    public void testHourWindowStartsAtTheHourOfSinceLikeTheRollups() {
+        // Given
+        click(DAY.plusHours(22).plusMinutes(50), "Chrome", null);
+        click(DAY.plusHours(23).plusMinutes(10), "Chrome", null);
+        click(DAY.plusHours(23).plusMinutes(40), "Firefox", null);
+
+        // When
+        LocalDateTime since = DAY.plusHours(23).plusMinutes(30);
+        long[] hours = clickAggregateRepository.clicksByHourOfDay(link.getId(), since);
+        List<ClickStatsRepository.ValueCount> browsers =
+                clickAggregateRepository.sumByValue(link.getId(), ClickRollup.Dimension.BROWSER, since, 0);
+
+        // Then: the click at 23:10 counts, the one at 22:50 does not
+        assertEquals(0, hours[22]);
+        assertEquals(2, hours[23]);
+        assertEquals(List.of(
+                new ClickStatsRepository.ValueCount("Chrome", null, 1),
+                new ClickStatsRepository.ValueCount("Firefox", null, 1)), browsers);
+    }
+
+    @Test
+    public void testReferrersAreNormalizedBeforeTheyAreCounted() {
+        // Given
+        click(DAY.plusHours(1), null, "https://www.example.org/a?utm_source=x");
+        click(DAY.plusHours(2), null, "https://example.org/b");
+        click(DAY.plusHours(3), null, "https://news.example.net/");
+
+        // When
+        List<ClickStatsRepository.ValueCount> referrers =
+                clickAggregateRepository.sumByValue(link.getId(), ClickRollup.Dimension.REFERRER, DAY, 1);
+
+        // Then
+        assertEquals(List.of(new ClickStatsRepository.ValueCount("example.org", null, 2)), referrers);
+    }
+
+    private void click(LocalDateTime clickedAt, String browser, String referer) {
+        Click click = new Click();
+        click.setLink(link);
+        click.setIpAddress("10.0.0.1");
+        click.setBrowser(browser);
+        click.setReferer(referer);
+        click.setClickedAt(clickedAt);
+        clickRepository.saveAndFlush(click);
+    }
+}
@@ -0,0 +1,128 @@
+package com.linkshortener.repository;
+
+import com.linkshortener.entity.Click;
+import com.linkshortener.entity.ClickRollup;
+import com.linkshortener.entity.Link;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(ClickRollupRepository.class)
+@TestPropertySource(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+public class ClickRollupRepositoryTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    @Autowired
+    private ClickRollupRepository clickRollupRepository;
+
+    @Autowired
+    private LinkRepository linkRepository;
+
+    @Autowired
+    private ClickRepository clickRepository;
+
+    @Test
+    public void testAddAllIncrementsExistingRowsAndInsertsNewOnes() {
+        // Given
+        ClickRollupRepository.Key chrome = key(ClickRollup.Dimension.BROWSER, ClickRollup.Grain.DAY, DAY, "Chrome");
+        ClickRollupRepository.Key firefox = key(ClickRollup.Dimension.BROWSER, ClickRollup.Grain.DAY, DAY, "Firefox");
+        clickRollupRepository.addAll(Map.of(chrome, delta(2, DAY.plusHours(9))));
+
+        // When
+        clickRollupRepository.addAll(Map.of(
+                chrome, delta(3, DAY.plusHours(8)),
+                firefox, delta(1, DAY.plusHours(10))));
+
+        // Then
+        List<ClickStatsRepository.ValueCount> browsers =
+                clickRollupRepository.sumByValue(1L, ClickRollup.Dimension.BROWSER, DAY, 0);
+        assertEquals(List.of(
+                new ClickStatsRepository.ValueCount("Chrome", null, 5),
+                new ClickStatsRepository.ValueCount("Firefox", null, 1)), browsers);
+    }
+
+    @Test
+    public void testReadsCombineDailyAndHourlyRows() {
+        // Given: 4 clicks on the first day, 2 of them at 23:00, and 1 the next day at 01:00
+        clickRollupRepository.addAll(Map.of(
+                key(ClickRollup.Dimension.TOTAL, ClickRollup.Grain.DAY, DAY, ""), delta(4, DAY.plusHours(23)),
+                key(ClickRollup.Dimension.TOTAL, ClickRollup.Grain.HOUR, DAY.plusHours(23), ""), delta(2, DAY.plusHours(23)),
+                key(ClickRollup.Dimension.TOTAL, ClickRollup.Grain.DAY, DAY.plusDays(1), ""), delta(1, DAY.plusHours(25)),
+                key(ClickRollup.Dimension.TOTAL, ClickRollup.Grain.HOUR, DAY.plusHours(25), ""), delta(1, DAY.plusHours(25))));
+
+        // When
+        List<ClickStatsRepository.DayCount> daily = clickRollupRepository.daily(1L, DAY);
+        long[] hours = clickRollupRepository.clicksByHourOfDay(1L, DAY.plusHours(23).plusMinutes(30));
+        ClickStatsRepository.Totals totals = clickRollupRepository.totals(1L);
+
+        // Then: the partial hour the window starts in is counted whole
+        assertEquals(List.of(new ClickStatsRepository.DayCount("2024-03-01", 4),
+                new ClickStatsRepository.DayCount("2024-03-02", 1)), daily);
+        assertEquals(2, hours[23]);
+        assertEquals(1, hours[1]);
+        assertEquals(5, totals.clicks());
+        assertEquals(DAY.plusHours(25), totals.lastClickAt());
+        assertEquals(3, clickRollupRepository.sumByValue(1L, ClickRollup.Dimension.TOTAL,
+                DAY.plusHours(23), 0).get(0).clicks());
+    }
+
+    @Test
+    public void testRebuildRangesFollowTheClicks() {
+        // Given: 3 clicks on the first link, 1 on the second, 2 on the third
+        Link first = link("aaa111");
+        Link second = link("bbb222");
+        Link third = link("ccc333");
+        saveClicks(first, 3);
+        saveClicks(second, 1);
+        saveClicks(third, 2);
+
+        // When / Then
+        assertEquals(first.getId(), clickRollupRepository.findRangeEnd(0L, 2));
+        assertEquals(second.getId(), clickRollupRepository.findRangeEnd(0L, 4));
+        assertEquals(third.getId(), clickRollupRepository.findRangeEnd(first.getId(), 3));
+        assertEquals(0L, clickRollupRepository.findRangeEnd(first.getId(), 4));
+
+        List<Click> streamed = new ArrayList<>();
+        clickRollupRepository.forEachClick(first.getId(), third.getId(), streamed::add);
+        assertEquals(3, streamed.size());
+        assertEquals(third.getId(), clickRollupRepository.maxClickLinkId());
+    }
+
+    private Link link(String shortCode) {
+        Link link = new Link();
+        link.setOriginalUrl("https://example.com/" + shortCode);
+        link.setShortCode(shortCode);
+        return linkRepository.save(link);
+    }
+
+    private void saveClicks(Link link, int count) {
+        for (int i = 0; i < count; i++) {
+            Click click = new Click();
+            click.setLink(link);
+            click.setIpAddress("10.0.0." + i);
+            click.setClickedAt(DAY.plusMinutes(i));
+            clickRepository.save(click);
+        }
+        clickRepository.flush();
+    }
+
+    private static ClickRollupRepository.Key key(ClickRollup.Dimension dimension, ClickRollup.Grain grain,
+                                                 LocalDateTime bucketStart, String value) {
+        return new ClickRollupRepository.Key(1L, dimension, grain, bucketStart, value);
+    }
+
+    private static ClickRollupRepository.Delta delta(long clicks, LocalDateTime lastClickAt) {
+        return new ClickRollupRepository.Delta(clicks, lastClickAt, null);
+    }
+}
@@ -0,0 +1,84 @@
+package com.linkshortener.repository;
+
+import com.linkshortener.entity.Link;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(LinkBatchRepository.class)
+@TestPropertySource(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+public class LinkBatchRepositoryTest {
+
+    @Autowired
+    private LinkBatchRepository linkBatchRepository;
+
+    @Autowired
+    private LinkRepository linkRepository;
+
+    @Test
+    public void testInsertAllAssignsTheGeneratedIds() {
+        // Given: more links than fit in one statement
+        List<Link> links = new ArrayList<>();
+        for (int i = 0; i < 501; i++) {
+            links.add(link("https://example.com/" + i, "code" + i));
+        }
+
+        // When
+        linkBatchRepository.insertAll(links);
+
+        // Then
+        for (Link link : List.of(links.get(0), links.get(499), links.get(500))) {
+            Link stored = linkRepository.findById(link.getId()).orElseThrow();
+            assertEquals(link.getShortCode(), stored.getShortCode());
+            assertEquals(link.getOriginalUrl(), stored.getOriginalUrl());
+            assertTrue(stored.getIsActive());
+            assertEquals(0L, stored.getClickCount());
+            assertNull(stored.getCustomAlias());
+        }
+    }
+
+    @Test
+    public void testShortCodeUpdateAndDelete() {
+        // Given
+        Link first = link("https://a.example", "aaa111");
+        Link second = link("https://b.example", "bbb222");
+        linkBatchRepository.insertAll(List.of(first, second));
+
+        // When
+        linkBatchRepository.updateShortCode(second.getId(), "ccc333");
+        linkBatchRepository.delete(first.getId());
+
+        // Then
+        assertTrue(linkRepository.findById(first.getId()).isEmpty());
+        assertEquals("ccc333", linkRepository.findById(second.getId()).orElseThrow().getShortCode());
+    }
+
+    @Test
+    public void testUpdateAliases() {
+        // Given
+        Link link = link("https://a.example", "aaa111");
+        linkBatchRepository.insertAll(List.of(link));
+
+        // When
+        link.setCustomAlias("mine");
+        linkBatchRepository.updateAliases(List.of(link));
+
+        // Then
+        assertEquals(link.getId(), linkRepository.findByCustomAlias("mine").orElseThrow().getId());
+    }
+
+    private static Link link(String url, String shortCode) {
+        Link link = new Link();
+        link.setOriginalUrl(url);
+        link.setShortCode(shortCode);
+        return link;
+    }
+}
@@ -0,0 +1,85 @@
+package com.linkshortener.repository;
+
+import com.linkshortener.entity.Click;
+import com.linkshortener.entity.Link;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(LinkDeletionRepository.class)
+@TestPropertySource(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+public class LinkDeletionRepositoryTest {
+
+    @Autowired
+    private LinkDeletionRepository linkDeletionRepository;
+
+    @Autowired
+    private LinkRepository linkRepository;
+
+    @Autowired
+    private ClickRepository clickRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testDeletesTheLinkWithEveryRowKeyedByIt() {
+        // Given: two links with codes, a click and derived rows each
+        long deleted = linkWithClickData("aaa111");
+        long kept = linkWithClickData("bbb222");
+
+        // When
+        boolean result = linkDeletionRepository.delete(deleted);
+
+        // Then
+        assertTrue(result);
+        for (String table : new String[] {"link_codes", "clicks", "click_rollups", "click_unique_sketches", "click_top_values"}) {
+            assertEquals(0, count(table, deleted), table);
+            assertEquals(1, count(table, kept), table);
+        }
+        assertFalse(linkRepository.existsById(deleted));
+        assertTrue(linkRepository.existsById(kept));
+    }
+
+    @Test
+    public void testMissingLinkIsReported() {
+        // When / Then
+        assertFalse(linkDeletionRepository.delete(999L));
+    }
+
+    private long linkWithClickData(String shortCode) {
+        Link link = new Link();
+        link.setOriginalUrl("https://example.com/" + shortCode);
+        link.setShortCode(shortCode);
+        link = linkRepository.saveAndFlush(link);
+        Click click = new Click();
+        click.setLink(link);
+        click.setIpAddress("10.0.0.1");
+        click.setClickedAt(LocalDateTime.of(2024, 3, 1, 9, 0));
+        clickRepository.saveAndFlush(click);
+
+        long id = link.getId();
+        jdbcTemplate.update("INSERT INTO link_codes (code, link_id, kind, reserved_at) VALUES (?, ?, 'SHORT_CODE', ?)",
+                shortCode, id, click.getClickedAt());
+        jdbcTemplate.update("INSERT INTO click_rollups (link_id, dimension, grain, bucket_start, dim_value, clicks, "
+                + "last_click_at) VALUES (?, 'TOTAL', 'DAY', ?, '', 1, ?)", id, click.getClickedAt(), click.getClickedAt());
+        jdbcTemplate.update("INSERT INTO click_unique_sketches (link_id, click_date, sketch) VALUES (?, DATE '2024-03-01', ?)",
+                id, new byte[] {1});
+        jdbcTemplate.update("INSERT INTO click_top_values (link_id, dimension, click_date, summary) "
+                + "VALUES (?, 'BROWSER', DATE '2024-03-01', ?)", id, new byte[] {1});
+        return id;
+    }
+
+    private int count(String table, long linkId) {
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE link_id = ?", Integer.class, linkId);
+        return rows != null ? rows : 0;
+    }
+}
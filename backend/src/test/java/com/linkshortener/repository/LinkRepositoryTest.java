@@ -0,0 +1,77 @@
+package com.linkshortener.repository;
+
+import com.linkshortener.entity.Link;
+import com.linkshortener.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@TestPropertySource(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+public class LinkRepositoryTest {
+
+    @Autowired
+    private LinkRepository linkRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User alice;
+    private Link aliceActive;
+    private Link aliceInactive;
+    private Link bobActive;
+    private Link anonymousActive;
+
+    @BeforeEach
+    void setUp() {
+        alice = userRepository.save(new User("alice", "alice@example.com", "secret-password"));
+        User bob = userRepository.save(new User("bob", "bob@example.com", "secret-password"));
+        aliceActive = save("aaa111", alice, true);
+        aliceInactive = save("aaa222", alice, false);
+        bobActive = save("bbb111", bob, true);
+        anonymousActive = save("ccc111", null, true);
+    }
+
+    @Test
+    public void testFindAllByIdOrderedKeepsOnlyTheUsersLinks() {
+        // When
+        List<Link> links = linkRepository.findAllByIdOrdered(allIds(), alice.getId(), false);
+
+        // Then
+        assertEquals(List.of(aliceActive.getId(), aliceInactive.getId()), ids(links));
+    }
+
+    @Test
+    public void testFindAllByIdOrderedActiveOnly() {
+        // When
+        List<Link> mine = linkRepository.findAllByIdOrdered(allIds(), alice.getId(), true);
+        List<Link> anyone = linkRepository.findAllByIdOrdered(allIds(), null, true);
+
+        // Then
+        assertEquals(List.of(aliceActive.getId()), ids(mine));
+        assertEquals(List.of(aliceActive.getId(), bobActive.getId(), anonymousActive.getId()), ids(anyone));
+    }
+
+    private Link save(String shortCode, User user, boolean active) {
+        Link link = new Link();
+        link.setOriginalUrl("https://example.com/" + shortCode);
+        link.setShortCode(shortCode);
+        link.setUser(user);
+        link.setIsActive(active);
+        return linkRepository.save(link);
+    }
+
+    private List<Long> allIds() {
+        return ids(List.of(aliceActive, aliceInactive, bobActive, anonymousActive));
+    }
+
+    private static List<Long> ids(List<Link> links) {
+        return links.stream().map(Link::getId).toList();
+    }
+}
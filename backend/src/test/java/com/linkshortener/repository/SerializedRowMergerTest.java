@@ -0,0 +1,78 @@
+package com.linkshortener.repository;
+
+import com.linkshortener.entity.ClickRollup;
+import com.linkshortener.util.HyperLogLog;
+import com.linkshortener.util.SpaceSaving;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({ClickTopValuesRepository.class, ClickSketchRepository.class})
+@TestPropertySource(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+public class SerializedRowMergerTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    @Autowired
+    private ClickTopValuesRepository clickTopValuesRepository;
+
+    @Autowired
+    private ClickSketchRepository clickSketchRepository;
+
+    @Test
+    public void testMergeFoldsIntoStoredSummariesAndCreatesTheOthers() {
+        // Given
+        ClickTopValuesRepository.Key referrers = new ClickTopValuesRepository.Key(1L, ClickRollup.Dimension.REFERRER, DAY);
+        ClickTopValuesRepository.Key cities = new ClickTopValuesRepository.Key(1L, ClickRollup.Dimension.CITY, DAY);
+        clickTopValuesRepository.mergeAll(Map.of(referrers, summary("google.com", 3)));
+
+        // When: one stored key, one new key of the same link and day
+        clickTopValuesRepository.mergeAll(Map.of(
+                referrers, summary("google.com", 2),
+                cities, summary("Paris", 1)));
+
+        // Then
+        assertEquals(List.of(new ClickStatsRepository.ValueCount("google.com", null, 5)),
+                clickTopValuesRepository.top(1L, ClickRollup.Dimension.REFERRER, DAY, 10));
+        assertEquals(List.of(new ClickStatsRepository.ValueCount("Paris", null, 1)),
+                clickTopValuesRepository.top(1L, ClickRollup.Dimension.CITY, DAY, 10));
+    }
+
+    @Test
+    public void testSketchMergeUnionsVisitors() {
+        // Given
+        ClickSketchRepository.Key key = new ClickSketchRepository.Key(1L, DAY);
+        clickSketchRepository.mergeAll(Map.of(key, sketch("10.0.0.1", "10.0.0.2")));
+
+        // When
+        clickSketchRepository.mergeAll(Map.of(key, sketch("10.0.0.2", "10.0.0.3"),
+                new ClickSketchRepository.Key(2L, DAY), sketch("10.0.0.4")));
+
+        // Then
+        assertEquals(3, clickSketchRepository.union(List.of(1L), DAY, DAY).estimate());
+        assertEquals(4, clickSketchRepository.unionAll(DAY, null).estimate());
+    }
+
+    private static SpaceSaving summary(String value, long count) {
+        SpaceSaving summary = new SpaceSaving();
+        summary.add(value, null, count);
+        return summary;
+    }
+
+    private static HyperLogLog sketch(String... ips) {
+        HyperLogLog sketch = new HyperLogLog();
+        for (String ip : ips) {
+            sketch.add(ip);
+        }
+        return sketch;
+    }
+}
@@ -0,0 +1,223 @@
+package com.linkshortener.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.linkshortener.dto.BulkLinkResult;
+import com.linkshortener.dto.CreateLinkRequest;
+import com.linkshortener.entity.Link;
+import com.linkshortener.repository.LinkBatchRepository;
+import com.linkshortener.repository.LinkCodeRepository;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class BulkLinkServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private BulkLinkService service;
+    private LinkService linkService;
+    private LinkBatchRepository linkBatchRepository;
+    private LinkCodeRepository linkCodeRepository;
+
+    @BeforeEach
+    void setUp() {
+        service = new BulkLinkService();
+        linkService = mock(LinkService.class);
+        linkBatchRepository = mock(LinkBatchRepository.class);
+        linkCodeRepository = mock(LinkCodeRepository.class);
+        ShortCodeGenerator shortCodeGenerator = mock(ShortCodeGenerator.class);
+
+        AtomicInteger codes = new AtomicInteger();
+        when(shortCodeGenerator.nextCode()).thenAnswer(invocation -> "code" + codes.incrementAndGet());
+        when(linkService.prepareLink(any(CreateLinkRequest.class), any())).thenAnswer(invocation -> {
+            Link link = new Link();
+            link.setOriginalUrl(invocation.<CreateLinkRequest>getArgument(0).getOriginalUrl());
+            return link;
+        });
+        when(linkService.buildShortUrl(any(Link.class))).thenAnswer(invocation ->
+                "http://localhost/" + invocation.<Link>getArgument(0).getShortCode());
+        AtomicLong ids = new AtomicLong();
+        doAnswer(invocation -> {
+            invocation.<List<Link>>getArgument(0).forEach(link -> link.setId(ids.incrementAndGet()));
+            return null;
+        }).when(linkBatchRepository).insertAll(anyList());
+
+        ReflectionTestUtils.setField(service, "linkService", linkService);
+        ReflectionTestUtils.setField(service, "shortCodeGenerator", shortCodeGenerator);
+        ReflectionTestUtils.setField(service, "linkBatchRepository", linkBatchRepository);
+        ReflectionTestUtils.setField(service, "linkCodeRepository", linkCodeRepository);
+        ReflectionTestUtils.setField(service, "linkCodeFilter", mock(LinkCodeFilter.class));
+        ReflectionTestUtils.setField(service, "validator", Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(service, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(service, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+        ReflectionTestUtils.setField(service, "maxItems", 100);
+        ReflectionTestUtils.setField(service, "parallelism", 2);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    public void testLimitErrorComesAfterTheLinesBeforeIt() throws IOException {
+        // Given: the limit falls in the middle of a chunk
+        ReflectionTestUtils.setField(service, "maxItems", 3);
+        String input = lines("https://a.example", "https://b.example", "https://c.example", "https://d.example");
+
+        // When
+        List<BulkLinkResult> results = new ArrayList<>();
+        int created = importLinks(input, results);
+
+        // Then
+        assertEquals(3, created);
+        assertEquals(List.of(1, 2, 3, 4), results.stream().map(BulkLinkResult::line).toList());
+        assertEquals(BulkLinkResult.CREATED, results.get(2).status());
+        assertEquals("Import is limited to 3 links", results.get(3).error());
+    }
+
+    @Test
+    public void testRejectedLinesDoNotFailTheOthers() throws IOException {
+        // Given
+        String input = "{\"originalUrl\":\"https://a.example\"}\n"
+                + "not json\n"
+                + "\n"
+                + "{\"originalUrl\":\"ftp://b.example\"}\n"
+                + "{\"originalUrl\":\"https://c.example\"}\n";
+
+        // When
+        List<BulkLinkResult> results = new ArrayList<>();
+        int created = importLinks(input, results);
+
+        // Then: blank lines are skipped but keep their number
+        assertEquals(2, created);
+        assertEquals(List.of(1, 2, 4, 5), results.stream().map(BulkLinkResult::line).toList());
+        assertEquals("Malformed JSON", results.get(1).error());
+        assertEquals("URL must start with http:// or https://", results.get(2).error());
+        assertEquals("http://localhost/" + results.get(3).shortCode(), results.get(3).shortUrl());
+    }
+
+    @Test
+    public void testUnexpectedPrepareFailureOnlyFailsItsLine() throws IOException {
+        // Given
+        when(linkService.prepareLink(argThat(request -> request != null
+                && request.getOriginalUrl().contains("broken")), any()))
+                .thenThrow(new IllegalStateException("encoder unavailable"));
+        String input = lines("https://a.example", "https://broken.example");
+
+        // When
+        List<BulkLinkResult> results = new ArrayList<>();
+        int created = importLinks(input, results);
+
+        // Then
+        assertEquals(1, created);
+        assertEquals(BulkLinkResult.CREATED, results.get(0).status());
+        assertEquals("Could not save link", results.get(1).error());
+    }
+
+    @Test
+    public void testLinkWithoutAFreeShortCodeIsDroppedAlone() throws IOException {
+        // Given: the bulk reservation conflicts, and then one link never finds a free short code
+        doThrow(new DuplicateKeyException("taken")).when(linkCodeRepository).reserveAll(anyList());
+        when(linkCodeRepository.reserve(anyString(), anyLong(), any())).thenAnswer(invocation ->
+                invocation.<Long>getArgument(1) != 2L);
+        String input = "{\"originalUrl\":\"https://a.example\"}\n"
+                + "{\"originalUrl\":\"https://b.example\",\"customAlias\":\"bee\"}\n";
+
+        // When
+        List<BulkLinkResult> results = new ArrayList<>();
+        int created = importLinks(input, results);
+
+        // Then
+        assertEquals(1, created);
+        assertEquals(BulkLinkResult.CREATED, results.get(0).status());
+        assertEquals("Custom alias already exists", results.get(1).error());
+        verify(linkBatchRepository).delete(2L);
+        verify(linkBatchRepository, never()).delete(1L);
+    }
+
+    @Test
+    public void testShortCodeExhaustionReleasesTheReservedAlias() throws IOException {
+        // Given: the alias is free but every short code is taken
+        doThrow(new DuplicateKeyException("taken")).when(linkCodeRepository).reserveAll(anyList());
+        when(linkCodeRepository.reserve(anyString(), anyLong(), any())).thenAnswer(invocation ->
+                "bee".equals(invocation.getArgument(0)));
+        String input = "{\"originalUrl\":\"https://b.example\",\"customAlias\":\"bee\"}\n";
+
+        // When
+        List<BulkLinkResult> results = new ArrayList<>();
+        int created = importLinks(input, results);
+
+        // Then
+        assertEquals(0, created);
+        assertEquals("Could not reserve a free short code", results.get(0).error());
+        verify(linkCodeRepository).releaseAll(1L);
+        verify(linkBatchRepository).delete(1L);
+        verify(linkBatchRepository, never()).updateAliases(anyList());
+    }
+
+    @Test
+    public void testLinkTheDatabaseRejectsOnlyFailsItsLine() throws IOException {
+        // Given: a chunk of four where any insert containing the third link fails
+        ReflectionTestUtils.setField(service, "chunkSize", 4);
+        AtomicLong ids = new AtomicLong();
+        doAnswer(invocation -> {
+            List<Link> links = invocation.getArgument(0);
+            if (links.stream().anyMatch(link -> link.getOriginalUrl().contains("rejected"))) {
+                throw new DataIntegrityViolationException("Data too long");
+            }
+            links.forEach(link -> link.setId(ids.incrementAndGet()));
+            return null;
+        }).when(linkBatchRepository).insertAll(anyList());
+        String input = lines("https://a.example", "https://b.example", "https://rejected.example", "https://d.example");
+
+        // When
+        List<BulkLinkResult> results = new ArrayList<>();
+        int created = importLinks(input, results);
+
+        // Then: the chunk, then its halves, then the failing half item by item
+        assertEquals(3, created);
+        assertEquals(List.of(BulkLinkResult.CREATED, BulkLinkResult.CREATED, BulkLinkResult.ERROR, BulkLinkResult.CREATED),
+                results.stream().map(BulkLinkResult::status).toList());
+        assertEquals("Could not save link", results.get(2).error());
+        verify(linkBatchRepository, times(5)).insertAll(anyList());
+    }
+
+    private int importLinks(String input, List<BulkLinkResult> results) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int created = service.importLinks(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out, null);
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            results.add(objectMapper.readValue(line, BulkLinkResult.class));
+        }
+        return created;
+    }
+
+    private static String lines(String... urls) {
+        StringBuilder input = new StringBuilder();
+        for (String url : urls) {
+            input.append("{\"originalUrl\":\"").append(url).append("\"}\n");
+        }
+        return input.toString();
+    }
+}
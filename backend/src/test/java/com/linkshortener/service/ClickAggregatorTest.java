@@ -0,0 +1,105 @@
+package com.linkshortener.service;
+
+import com.linkshortener.entity.Click;
+import com.linkshortener.entity.ClickRollup;
+import com.linkshortener.repository.ClickStatsRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClickAggregatorTest {
+
+    @Test
+    public void testAggregatesEveryDimensionInOnePass() {
+        // Given
+        ClickAggregator aggregator = new ClickAggregator();
+
+        // When
+        aggregator.accept(click("FR", "France", "Paris", "Chrome", true, false, 9));
+        aggregator.accept(click("FR", "France", "Lyon", "Chrome", false, false, 9));
+        aggregator.accept(click("US", "United States", null, "Firefox", false, true, 23));
+
+        // Then
+        assertEquals(3, aggregator.getTotal());
+        assertEquals(1, aggregator.getBots());
+        assertEquals(1, aggregator.getMobile());
+        assertEquals(2, aggregator.getHourOfDay()[9]);
+        assertEquals(LocalDateTime.of(2024, 1, 1, 23, 0), aggregator.getLastClickAt());
+
+        List<ClickStatsRepository.ValueCount> countries = aggregator.top(ClickRollup.Dimension.COUNTRY, 0);
+        assertEquals(new ClickStatsRepository.ValueCount("FR", "France", 2), countries.get(0));
+        assertEquals(new ClickStatsRepository.ValueCount("US", "United States", 1), countries.get(1));
+        assertEquals(2, aggregator.top(ClickRollup.Dimension.CITY, 0).size());
+        assertEquals(1, aggregator.top(ClickRollup.Dimension.BROWSER, 1).size());
+        assertEquals(2, aggregator.getCounters(ClickRollup.Dimension.BOT).get("false").getCount());
+    }
+
+    @Test
+    public void testParallelCollectMatchesSequentialPass() {
+        // Given
+        List<Click> clicks = new ArrayList<>();
+        String[] countries = {"FR", "US", "DE", "JP"};
+        for (int i = 0; i < 10_000; i++) {
+            clicks.add(click(countries[i % 4], null, "City" + (i % 37), "Browser" + (i % 5),
+                    i % 3 == 0, i % 7 == 0, i % 24));
+        }
+
+        // When
+        ClickAggregator sequential = new ClickAggregator();
+        clicks.forEach(sequential::accept);
+        ClickAggregator parallel = clicks.parallelStream().collect(ClickAggregator.collector());
+
+        // Then
+        assertEquals(sequential.getTotal(), parallel.getTotal());
+        assertEquals(sequential.getBots(), parallel.getBots());
+        assertEquals(sequential.getMobile(), parallel.getMobile());
+        assertArrayEquals(sequential.getHourOfDay(), parallel.getHourOfDay());
+        for (ClickRollup.Dimension dimension : ClickRollup.Dimension.values()) {
+            assertEquals(sequential.top(dimension, 0), parallel.top(dimension, 0));
+        }
+    }
+
+    @Test
+    public void testEachValueKeepsItsLatestClickAcrossMerges() {
+        // Given: the last click of the bucket is neither from France nor by a human
+        ClickAggregator first = new ClickAggregator();
+        first.accept(click("FR", "France", "Paris", "Chrome", true, false, 9));
+        first.accept(click("US", "United States", null, "Firefox", false, true, 23));
+        ClickAggregator second = new ClickAggregator();
+        second.accept(click("FR", "France", "Paris", "Chrome", false, false, 12));
+
+        // When
+        ClickAggregator aggregator = first.merge(second);
+
+        // Then
+        assertEquals(at(12), aggregator.getCounters(ClickRollup.Dimension.COUNTRY).get("FR").getLastClickAt());
+        assertEquals(at(23), aggregator.getCounters(ClickRollup.Dimension.COUNTRY).get("US").getLastClickAt());
+        assertEquals(at(12), aggregator.getCounters(ClickRollup.Dimension.BROWSER).get("Chrome").getLastClickAt());
+        assertEquals(at(23), aggregator.getCounters(ClickRollup.Dimension.TOTAL).get("").getLastClickAt());
+        assertEquals(at(23), aggregator.getCounters(ClickRollup.Dimension.BOT).get("true").getLastClickAt());
+        assertEquals(at(12), aggregator.getCounters(ClickRollup.Dimension.BOT).get("false").getLastClickAt());
+        assertEquals(at(9), aggregator.getCounters(ClickRollup.Dimension.MOBILE).get("true").getLastClickAt());
+        assertEquals(at(23), aggregator.getCounters(ClickRollup.Dimension.MOBILE).get("false").getLastClickAt());
+    }
+
+    private Click click(String countryCode, String countryName, String city, String browser,
+                        boolean mobile, boolean bot, int hour) {
+        Click click = new Click();
+        click.setCountryCode(countryCode);
+        click.setCountryName(countryName);
+        click.setCityName(city);
+        click.setBrowser(browser);
+        click.setIsMobile(mobile);
+        click.setIsBot(bot);
+        click.setClickedAt(at(hour));
+        return click;
+    }
+
+    private static LocalDateTime at(int hour) {
+        return LocalDateTime.of(2024, 1, 1, hour, 0);
+    }
+}
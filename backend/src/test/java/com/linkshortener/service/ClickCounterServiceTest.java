@@ -0,0 +1,87 @@
+package com.linkshortener.service;
+
+import com.linkshortener.repository.LinkCounterRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+public class ClickCounterServiceTest {
+
+    private ClickCounterService service;
+    private LinkCounterRepository linkCounterRepository;
+    private final AtomicLong persisted = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        service = new ClickCounterService();
+        linkCounterRepository = mock(LinkCounterRepository.class);
+        doAnswer(invocation -> {
+            Map<Long, Long> deltas = invocation.getArgument(0);
+            deltas.values().forEach(persisted::addAndGet);
+            return null;
+        }).when(linkCounterRepository).addClickCounts(anyMap());
+        ReflectionTestUtils.setField(service, "linkCounterRepository", linkCounterRepository);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        service.registerMetrics();
+    }
+
+    @Test
+    public void testNoClickIsLostWhileIdleCountersAreEvicted() throws InterruptedException {
+        // Given: writers spread over many links, so counters keep going idle and being evicted
+        int writers = 4;
+        int clicksPerWriter = 50_000;
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Thread flusher = Thread.ofPlatform().start(() -> {
+            while (writing.get()) {
+                service.flush();
+            }
+        });
+
+        // When
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int click = 0; click < clicksPerWriter; click++) {
+                    service.increment(ThreadLocalRandom.current().nextLong(1, 500));
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        writing.set(false);
+        flusher.join();
+        service.flush();
+
+        // Then
+        assertEquals((long) writers * clicksPerWriter, persisted.get());
+    }
+
+    @Test
+    public void testFailedFlushIsRetriedWhole() {
+        // Given
+        service.add(1L, 3);
+        service.add(2L, 4);
+        doThrow(new IllegalStateException("database down"))
+                .when(linkCounterRepository).addClickCounts(anyMap());
+
+        // When
+        service.flush();
+
+        // Then
+        assertEquals(3, service.getPendingDelta(1L));
+        assertEquals(4, service.getPendingDelta(2L));
+    }
+}
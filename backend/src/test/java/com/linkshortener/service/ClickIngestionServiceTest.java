@@ -0,0 +1,128 @@
+package com.linkshortener.service;
+
+import com.linkshortener.entity.Click;
+import com.linkshortener.repository.ClickBatchRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class ClickIngestionServiceTest {
+
+    private ClickIngestionService service;
+    private ClickBatchRepository clickBatchRepository;
+    private ClickRollupService clickRollupService;
+    private ClickStreamService clickStreamService;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        service = new ClickIngestionService();
+        clickBatchRepository = mock(ClickBatchRepository.class);
+        clickRollupService = mock(ClickRollupService.class);
+        clickStreamService = mock(ClickStreamService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        when(clickRollupService.ingestionLock()).thenReturn(new ReentrantReadWriteLock().readLock());
+
+        ReflectionTestUtils.setField(service, "clickEnricher", mock(ClickEnricher.class));
+        ReflectionTestUtils.setField(service, "clickBatchRepository", clickBatchRepository);
+        ReflectionTestUtils.setField(service, "clickRollupService", clickRollupService);
+        ReflectionTestUtils.setField(service, "recentClickBuffer", mock(RecentClickBuffer.class));
+        ReflectionTestUtils.setField(service, "clickStreamService", clickStreamService);
+        ReflectionTestUtils.setField(service, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(service, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(service, "queueCapacity", 100);
+        ReflectionTestUtils.setField(service, "workerCount", 1);
+        ReflectionTestUtils.setField(service, "batchSize", 3);
+        ReflectionTestUtils.setField(service, "flushInterval", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(service, "overflowPolicy", ClickIngestionService.OverflowPolicy.DROP_NEWEST);
+        ReflectionTestUtils.setField(service, "shutdownTimeout", Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        service.stop();
+    }
+
+    @Test
+    public void testClicksOfDeletedLinksAreLeftOutOfTheBatch() {
+        // Given: link 2 was deleted while its click was queued
+        when(clickBatchRepository.insertAll(anyList())).thenAnswer(invocation -> {
+            List<Click> clicks = invocation.getArgument(0);
+            if (clicks.stream().anyMatch(click -> click.getLink().getId() == 2L)) {
+                throw new DataIntegrityViolationException("foreign key");
+            }
+            return clicks.size();
+        });
+        when(clickBatchRepository.findExistingLinkIds(any())).thenReturn(Set.of(1L, 3L));
+        service.start();
+
+        // When
+        service.submit(1L, "10.0.0.1", "agent", null);
+        service.submit(2L, "10.0.0.2", "agent", null);
+        service.submit(3L, "10.0.0.3", "agent", null);
+
+        // Then: the batch is written again without the click of link 2
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Click>> written = ArgumentCaptor.forClass(List.class);
+        verify(clickStreamService, timeout(2000)).publish(written.capture());
+        assertEquals(List.of(1L, 3L), written.getValue().stream().map(click -> click.getLink().getId()).toList());
+        assertEquals(2, meterRegistry.counter("clicks.ingestion.written").count());
+        assertEquals(1, meterRegistry.counter("clicks.ingestion.failed").count());
+    }
+
+    @Test
+    public void testOtherConstraintViolationsOnlyLoseTheOffendingClick() {
+        // Given: every link exists, but the click of link 2 cannot be stored
+        when(clickBatchRepository.insertAll(anyList())).thenAnswer(invocation -> {
+            List<Click> clicks = invocation.getArgument(0);
+            if (clicks.stream().anyMatch(click -> click.getLink().getId() == 2L)) {
+                throw new DataIntegrityViolationException("value too long");
+            }
+            return clicks.size();
+        });
+        when(clickBatchRepository.findExistingLinkIds(any())).thenReturn(Set.of(1L, 2L, 3L));
+        service.start();
+
+        // When
+        service.submit(1L, "10.0.0.1", "agent", null);
+        service.submit(2L, "10.0.0.2", "agent", null);
+        service.submit(3L, "10.0.0.3", "agent", null);
+
+        // Then: written one by one
+        verify(clickStreamService, timeout(2000).times(2)).publish(anyList());
+        assertEquals(2, meterRegistry.counter("clicks.ingestion.written").count());
+        assertEquals(1, meterRegistry.counter("clicks.ingestion.failed").count());
+    }
+
+    @Test
+    public void testLongUserAgentIsTruncated() {
+        // Given
+        service.start();
+
+        // When
+        service.submit(1L, "10.0.0.1", "a".repeat(10_000), null);
+        service.submit(1L, "10.0.0.1", "agent", null);
+        service.submit(1L, "10.0.0.1", "agent", null);
+
+        // Then
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Click>> written = ArgumentCaptor.forClass(List.class);
+        verify(clickBatchRepository, timeout(2000)).insertAll(written.capture());
+        assertEquals(1024, written.getValue().get(0).getUserAgent().length());
+    }
+}
@@ -0,0 +1,145 @@
+package com.linkshortener.service;
+
+import com.linkshortener.entity.Click;
+import com.linkshortener.entity.ClickRollup;
+import com.linkshortener.entity.Link;
+import com.linkshortener.repository.ClickRollupRepository;
+import com.linkshortener.repository.ClickSketchRepository;
+import com.linkshortener.repository.ClickTopValuesRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ClickRollupServiceTest {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    private ClickRollupService service;
+    private ClickRollupRepository clickRollupRepository;
+    private ClickSketchRepository clickSketchRepository;
+    private ClickTopValuesRepository clickTopValuesRepository;
+
+    @BeforeEach
+    void setUp() {
+        service = new ClickRollupService();
+        clickRollupRepository = mock(ClickRollupRepository.class);
+        clickSketchRepository = mock(ClickSketchRepository.class);
+        clickTopValuesRepository = mock(ClickTopValuesRepository.class);
+        ReflectionTestUtils.setField(service, "clickRollupRepository", clickRollupRepository);
+        ReflectionTestUtils.setField(service, "clickSketchRepository", clickSketchRepository);
+        ReflectionTestUtils.setField(service, "clickTopValuesRepository", clickTopValuesRepository);
+        ReflectionTestUtils.setField(service, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(service, "clicksPerBatch", 1000);
+        ReflectionTestUtils.setField(service, "referrerGranularityName", "host");
+        ReflectionTestUtils.setField(service, "topValuesCapacity", 64);
+        service.init();
+    }
+
+    @Test
+    public void testApplyCountsEachClickInItsHourAndDay() {
+        // When
+        service.apply(List.of(
+                click(1L, NOON.plusMinutes(5), "Chrome", "https://news.example.com/a"),
+                click(1L, NOON.plusMinutes(50), "Firefox", "https://news.example.com/b"),
+                click(1L, NOON.plusHours(1), "Chrome", null)));
+
+        // Then
+        Map<ClickRollupRepository.Key, ClickRollupRepository.Delta> deltas = capturedDeltas().get(0);
+        assertEquals(2, total(deltas, ClickRollup.Grain.HOUR, NOON).clicks());
+        assertEquals(NOON.plusMinutes(50), total(deltas, ClickRollup.Grain.HOUR, NOON).lastClickAt());
+        assertEquals(1, total(deltas, ClickRollup.Grain.HOUR, NOON.plusHours(1)).clicks());
+        assertEquals(3, total(deltas, ClickRollup.Grain.DAY, NOON.toLocalDate().atStartOfDay()).clicks());
+        assertEquals(2, deltas.get(new ClickRollupRepository.Key(1L, ClickRollup.Dimension.BROWSER,
+                ClickRollup.Grain.DAY, NOON.toLocalDate().atStartOfDay(), "Chrome")).clicks());
+        // Each value row has the latest click with that value, not of the bucket
+        assertEquals(NOON.plusMinutes(50), deltas.get(new ClickRollupRepository.Key(1L, ClickRollup.Dimension.BROWSER,
+                ClickRollup.Grain.DAY, NOON.toLocalDate().atStartOfDay(), "Firefox")).lastClickAt());
+        // Referrers go to the top-values summaries, visitors to the sketches
+        assertTrue(deltas.keySet().stream().noneMatch(key -> key.dimension() == ClickRollup.Dimension.REFERRER));
+        verify(clickTopValuesRepository).mergeAll(argThat(summaries -> summaries.keySet().stream()
+                .anyMatch(key -> key.dimension() == ClickRollup.Dimension.REFERRER)));
+        verify(clickSketchRepository).mergeAll(argThat(sketches -> sketches.size() == 1));
+    }
+
+    @Test
+    public void testRebuildRangesAreSizedByClicks() {
+        // Given: the first 1000 clicks end at link 4, fewer are left after it
+        when(clickRollupRepository.maxClickLinkId()).thenReturn(10L);
+        when(clickRollupRepository.findRangeEnd(0L, 1000)).thenReturn(4L);
+        when(clickRollupRepository.findRangeEnd(4L, 1000)).thenReturn(0L);
+
+        // When
+        ReflectionTestUtils.invokeMethod(service, "rebuild");
+
+        // Then
+        verify(clickRollupRepository).deleteByLinkIdRange(0L, 4L);
+        verify(clickRollupRepository).deleteByLinkIdRange(4L, 10L);
+        verify(clickSketchRepository).deleteByLinkIdRange(4L, 10L);
+        verify(clickTopValuesRepository).deleteByLinkIdRange(4L, 10L);
+        verify(clickRollupRepository, times(2)).forEachClick(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    public void testRebuildWritesAHotRangeInParts() {
+        // Given: one link with a click in more hours than a range keeps in memory
+        int hours = ClickRollupService.MAX_REBUILD_BUCKETS;
+        when(clickRollupRepository.maxClickLinkId()).thenReturn(1L);
+        doAnswer(invocation -> {
+            Consumer<Click> consumer = invocation.getArgument(2);
+            for (int hour = 0; hour < hours; hour++) {
+                consumer.accept(click(1L, NOON.plusHours(hour), "Chrome", null));
+            }
+            return null;
+        }).when(clickRollupRepository).forEachClick(eq(0L), eq(1L), any());
+
+        // When
+        ReflectionTestUtils.invokeMethod(service, "rebuild");
+
+        // Then: written more than once, and nothing is lost between the parts
+        List<Map<ClickRollupRepository.Key, ClickRollupRepository.Delta>> writes = capturedDeltas();
+        assertTrue(writes.size() > 1);
+        long hourly = writes.stream()
+                .flatMap(deltas -> deltas.entrySet().stream())
+                .filter(entry -> entry.getKey().dimension() == ClickRollup.Dimension.TOTAL
+                        && entry.getKey().grain() == ClickRollup.Grain.HOUR)
+                .mapToLong(entry -> entry.getValue().clicks())
+                .sum();
+        assertEquals(hours, hourly);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<ClickRollupRepository.Key, ClickRollupRepository.Delta>> capturedDeltas() {
+        ArgumentCaptor<Map<ClickRollupRepository.Key, ClickRollupRepository.Delta>> deltas =
+                ArgumentCaptor.forClass(Map.class);
+        verify(clickRollupRepository, atLeastOnce()).addAll(deltas.capture());
+        return deltas.getAllValues();
+    }
+
+    private static ClickRollupRepository.Delta total(Map<ClickRollupRepository.Key, ClickRollupRepository.Delta> deltas,
+                                                      ClickRollup.Grain grain, LocalDateTime bucketStart) {
+        return deltas.get(new ClickRollupRepository.Key(1L, ClickRollup.Dimension.TOTAL, grain, bucketStart, ""));
+    }
+
+    private static Click click(Long linkId, LocalDateTime clickedAt, String browser, String referer) {
+        Link link = new Link();
+        link.setId(linkId);
+        Click click = new Click();
+        click.setLink(link);
+        click.setClickedAt(clickedAt);
+        click.setBrowser(browser);
+        click.setReferer(referer);
+        click.setIpAddress("10.0.0." + clickedAt.getMinute());
+        return click;
+    }
+}
@@ -0,0 +1,210 @@
+package com.linkshortener.service;
+
+import com.linkshortener.dto.ClickStreamEvent;
+import com.linkshortener.entity.Click;
+import com.linkshortener.entity.Link;
+import com.linkshortener.repository.LinkRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+public class ClickStreamServiceTest {
+
+    private static final String HEARTBEAT = "heartbeat";
+
+    private ClickStreamService service;
+    private LinkRepository linkRepository;
+    private SimpleMeterRegistry meterRegistry;
+    // What the emitters of the test sent, in order: events, or HEARTBEAT
+    private final BlockingQueue<Object> sent = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    void setUp() {
+        service = spy(new ClickStreamService());
+        linkRepository = mock(LinkRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(service, "linkRepository", linkRepository);
+        ReflectionTestUtils.setField(service, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(service, "maxSubscribers", 10);
+        ReflectionTestUtils.setField(service, "maxPerClient", 2);
+        ReflectionTestUtils.setField(service, "bufferSize", 4);
+        ReflectionTestUtils.setField(service, "timeout", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(service, "intervalMillis", 1000L);
+        ReflectionTestUtils.setField(service, "heartbeatInterval", Duration.ofSeconds(3));
+        service.init();
+        doAnswer(invocation -> new RecordingEmitter(null)).when(service).newEmitter();
+    }
+
+    @Test
+    public void testClicksOfAnIntervalAreCoalescedIntoOneEvent() throws InterruptedException {
+        // Given
+        subscribe(ClickStreamService.Scope.all());
+
+        // When: two batches within one interval
+        service.publish(List.of(click(1L, false), click(2L, true)));
+        service.publish(List.of(click(1L, false)));
+        service.flush();
+
+        // Then
+        ClickStreamEvent event = (ClickStreamEvent) next();
+        assertEquals(3, event.clicks());
+        assertEquals(1, event.bots());
+        assertEquals(List.of(new ClickStreamEvent.LinkDelta(1L, 2, 0, 0), new ClickStreamEvent.LinkDelta(2L, 1, 1, 0)),
+                event.links().stream().sorted((a, b) -> Long.compare(a.linkId(), b.linkId())).toList());
+        assertNull(sent.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testHeartbeatIsSentAfterIdleIntervalsOnly() throws InterruptedException {
+        // Given: a heartbeat every 3 intervals
+        subscribe(ClickStreamService.Scope.all());
+
+        // When / Then
+        service.flush();
+        service.flush();
+        assertNull(sent.poll(100, TimeUnit.MILLISECONDS));
+        service.flush();
+        assertEquals(HEARTBEAT, next());
+
+        // An event restarts the count
+        service.publish(List.of(click(1L, false)));
+        service.flush();
+        assertInstanceOf(ClickStreamEvent.class, next());
+        service.flush();
+        service.flush();
+        assertNull(sent.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testSlowSubscriberIsDisconnected() throws InterruptedException {
+        // Given: a client whose first write never returns, with room for one queued event
+        ReflectionTestUtils.setField(service, "bufferSize", 1);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> new RecordingEmitter(() -> {
+            writing.countDown();
+            release.await();
+        })).when(service).newEmitter();
+        service.subscribe(ClickStreamService.Scope.all(), ClickStreamService.userClient(7L));
+        assertTrue(writing.await(2, TimeUnit.SECONDS));
+
+        // When
+        service.publish(List.of(click(1L, false)));
+        service.flush();
+        service.publish(List.of(click(1L, false)));
+        service.flush();
+
+        // Then: the first event is queued, the second finds the queue full
+        assertEquals(0, service.getSubscriberCount());
+        assertEquals(1, meterRegistry.counter("clicks.stream.disconnected.slow").count());
+        release.countDown();
+        // Its slot is free again: the client may open its two streams
+        subscribe(ClickStreamService.Scope.all());
+        subscribe(ClickStreamService.Scope.all());
+    }
+
+    @Test
+    public void testUserStreamsResolveOwnersOnceIncludingLinksWithout() throws InterruptedException {
+        // Given: link 1 belongs to user 7, link 2 is anonymous and left out by the query
+        List<Object[]> owners = new ArrayList<>();
+        owners.add(new Object[] {1L, 7L});
+        when(linkRepository.findUserIdsByIdIn(anyCollection())).thenReturn(owners);
+        subscribe(ClickStreamService.Scope.user(7L));
+
+        // When
+        service.publish(List.of(click(1L, false), click(2L, false)));
+        service.flush();
+        service.publish(List.of(click(2L, false)));
+        service.flush();
+
+        // Then: only the user's link, and link 2 is not looked up again
+        ClickStreamEvent event = (ClickStreamEvent) next();
+        assertEquals(List.of(new ClickStreamEvent.LinkDelta(1L, 1, 0, 0)), event.links());
+        assertNull(sent.poll(100, TimeUnit.MILLISECONDS));
+        verify(linkRepository, times(1)).findUserIdsByIdIn(anyCollection());
+    }
+
+    @Test
+    public void testEachClientHoldsALimitedNumberOfStreams() {
+        // Given
+        service.subscribe(ClickStreamService.Scope.all(), "ip:10.0.0.1");
+        service.subscribe(ClickStreamService.Scope.all(), "ip:10.0.0.1");
+
+        // When / Then
+        assertThrows(ClickStreamService.TooManyStreamsException.class,
+                () -> service.subscribe(ClickStreamService.Scope.all(), "ip:10.0.0.1"));
+        assertNotNull(service.subscribe(ClickStreamService.Scope.all(), "ip:10.0.0.2"));
+        assertEquals(3, service.getSubscriberCount());
+    }
+
+    // Opens a stream and consumes the heartbeat sent when it opens
+    private void subscribe(ClickStreamService.Scope scope) throws InterruptedException {
+        service.subscribe(scope, ClickStreamService.userClient(7L));
+        assertEquals(HEARTBEAT, next());
+    }
+
+    private Object next() throws InterruptedException {
+        Object item = sent.poll(2, TimeUnit.SECONDS);
+        assertNotNull(item, "nothing sent");
+        return item;
+    }
+
+    private static Click click(long linkId, boolean bot) {
+        Link link = new Link();
+        link.setId(linkId);
+        Click click = new Click();
+        click.setLink(link);
+        click.setIsBot(bot);
+        click.setIsMobile(false);
+        return click;
+    }
+
+    private interface Write {
+        void run() throws InterruptedException;
+    }
+
+    private final class RecordingEmitter extends SseEmitter {
+
+        private final Write write;
+
+        RecordingEmitter(Write write) {
+            this.write = write;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (write != null) {
+                try {
+                    write.run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            Set<ResponseBodyEmitter.DataWithMediaType> parts = builder.build();
+            Object event = parts.stream().map(ResponseBodyEmitter.DataWithMediaType::getData)
+                    .filter(ClickStreamEvent.class::isInstance).findFirst().orElse(null);
+            if (event != null) {
+                sent.add(event);
+            } else if (parts.stream().anyMatch(part -> String.valueOf(part.getData()).startsWith(":" + HEARTBEAT))) {
+                sent.add(HEARTBEAT);
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.linkshortener.service;
+
+import com.linkshortener.dto.DashboardStats;
+import com.linkshortener.repository.ClickRollupRepository;
+import com.linkshortener.repository.ClickSketchRepository;
+import com.linkshortener.repository.ClickStatsRepository;
+import com.linkshortener.repository.LinkCodeScanRepository;
+import com.linkshortener.repository.LinkRepository;
+import com.linkshortener.util.HyperLogLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+public class DashboardSnapshotServiceTest {
+
+    private DashboardSnapshotService service;
+    private ClickRollupRepository clickRollupRepository;
+    private ClickSketchRepository clickSketchRepository;
+    private LinkRepository linkRepository;
+    private LinkCodeScanRepository linkCodeScanRepository;
+    private ClickRollupService clickRollupService;
+    private final LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        service = new DashboardSnapshotService();
+        clickRollupRepository = mock(ClickRollupRepository.class);
+        clickSketchRepository = mock(ClickSketchRepository.class);
+        linkRepository = mock(LinkRepository.class);
+        linkCodeScanRepository = mock(LinkCodeScanRepository.class);
+        clickRollupService = mock(ClickRollupService.class);
+        when(clickRollupRepository.hourlyAllLinks(any())).thenReturn(new long[24]);
+        when(clickSketchRepository.unionAll(any(), any())).thenReturn(visitors(3));
+
+        ReflectionTestUtils.setField(service, "clickRollupRepository", clickRollupRepository);
+        ReflectionTestUtils.setField(service, "clickSketchRepository", clickSketchRepository);
+        ReflectionTestUtils.setField(service, "linkRepository", linkRepository);
+        ReflectionTestUtils.setField(service, "linkCodeScanRepository", linkCodeScanRepository);
+        ReflectionTestUtils.setField(service, "clickRollupService", clickRollupService);
+        ReflectionTestUtils.setField(service, "fullRefreshInterval", Duration.ofHours(1));
+        ReflectionTestUtils.setField(service, "uniqueVisitorsDays", 30);
+    }
+
+    @Test
+    public void testLinksAreTheFullRefreshCountPlusTheLinksCreatedSince() {
+        // Given
+        when(linkRepository.count()).thenReturn(10L);
+        when(linkCodeScanRepository.maxLinkId()).thenReturn(100L);
+        when(linkRepository.countByIdGreaterThan(100L)).thenReturn(3L, 5L);
+
+        // When
+        service.refresh();
+        long first = service.getSnapshot().totalLinks();
+        service.refresh();
+
+        // Then: the table is counted once, later links by primary key
+        assertEquals(13, first);
+        assertEquals(15, service.getSnapshot().totalLinks());
+        verify(linkRepository, times(1)).count();
+    }
+
+    @Test
+    public void testDaysWithoutClicksAreFilledWithZeros() {
+        // Given: clicks two days ago and today only
+        when(clickRollupRepository.dailyAllLinks(any())).thenReturn(
+                List.of(new ClickStatsRepository.DayCount(today.minusDays(2).toString(), 4)));
+        when(clickRollupRepository.sumAllLinks(isNull(), any())).thenReturn(4L);
+        when(clickRollupRepository.sumAllLinks(any(LocalDateTime.class), isNull())).thenReturn(2L);
+
+        // When
+        service.refresh();
+
+        // Then
+        DashboardStats stats = service.getSnapshot();
+        assertEquals(7, stats.dailyClicks().size());
+        assertEquals(List.of(0L, 0L, 0L, 0L, 4L, 0L, 2L),
+                stats.dailyClicks().stream().map(DashboardStats.DailyClicks::clicks).toList());
+        assertEquals(today.toString(), stats.dailyClicks().get(6).date());
+        assertEquals(6, stats.totalClicks());
+        assertEquals(2, stats.clicksToday());
+    }
+
+    @Test
+    public void testNewDayTriggersAFullRefresh() {
+        // Given: a snapshot whose full refresh dates from yesterday
+        service.refresh();
+        ReflectionTestUtils.setField(service, "baseTime", today.minusDays(1).atTime(23, 59));
+
+        // When
+        service.refresh();
+
+        // Then
+        verify(linkRepository, times(2)).count();
+        verify(clickRollupRepository, times(2)).dailyAllLinks(any());
+    }
+
+    @Test
+    public void testVisitorsAreOnlyUnitedOnFullRefreshes() {
+        // When
+        service.refresh();
+        service.refresh();
+        service.refresh();
+
+        // Then: one union over the whole visitor window, today included
+        assertEquals(3, service.getSnapshot().uniqueVisitors());
+        verify(clickSketchRepository, times(1)).unionAll(today.minusDays(29), null);
+    }
+
+    @Test
+    public void testRefreshIsSkippedWhileTheRollupsAreRebuilt() {
+        // Given
+        when(clickRollupService.isRebuilding()).thenReturn(true);
+
+        // When
+        service.refresh();
+
+        // Then: the previous snapshot stays
+        assertNull(service.getSnapshot().generatedAt());
+        verifyNoInteractions(clickRollupRepository, clickSketchRepository, linkRepository, linkCodeScanRepository);
+    }
+
+    private static HyperLogLog visitors(int count) {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < count; i++) {
+            sketch.add("10.0.0." + i);
+        }
+        return sketch;
+    }
+}
@@ -0,0 +1,61 @@
+package com.linkshortener.service;
+
+import com.linkshortener.dto.LinkRedirect;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LinkAccessGrantServiceTest {
+
+    private LinkAccessGrantService grantService;
+    private LinkRedirect protectedLink;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        grantService = new LinkAccessGrantService();
+        ReflectionTestUtils.setField(grantService, "secret", "test-secret");
+        ReflectionTestUtils.setField(grantService, "ttl", Duration.ofMinutes(30));
+        grantService.init();
+
+        protectedLink = new LinkRedirect(1L, "https://example.com", true, null, true, "stampA", null, null, null);
+    }
+
+    @Test
+    public void testIssuedGrantIsValid() {
+        // When
+        String grant = grantService.issue(protectedLink);
+
+        // Then
+        assertTrue(grantService.isValid(protectedLink, grant));
+    }
+
+    @Test
+    public void testGrantIsBoundToLinkAndPassword() {
+        // Given
+        String grant = grantService.issue(protectedLink);
+        LinkRedirect otherLink = new LinkRedirect(2L, "https://example.com", true, null, true, "stampA", null, null, null);
+        LinkRedirect newPassword = new LinkRedirect(1L, "https://example.com", true, null, true, "stampB", null, null, null);
+
+        // Then
+        assertFalse(grantService.isValid(otherLink, grant));
+        assertFalse(grantService.isValid(newPassword, grant));
+    }
+
+    @Test
+    public void testTamperedOrExpiredGrantIsRejected() {
+        // Given
+        String grant = grantService.issue(protectedLink);
+        String signature = grant.substring(grant.indexOf('.') + 1);
+        long pastExpiry = System.currentTimeMillis() / 1000 - 60;
+
+        // Then
+        assertFalse(grantService.isValid(protectedLink, (pastExpiry + 3600) + "." + signature));
+        assertFalse(grantService.isValid(protectedLink, pastExpiry + "." + signature));
+        assertFalse(grantService.isValid(protectedLink, "not-a-grant"));
+        assertFalse(grantService.isValid(protectedLink, null));
+    }
+}
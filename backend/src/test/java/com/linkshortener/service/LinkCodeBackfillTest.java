@@ -0,0 +1,68 @@
+package com.linkshortener.service;
+
+import com.linkshortener.repository.LinkCodeRepository;
+import com.linkshortener.repository.LinkCodeScanRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class LinkCodeBackfillTest {
+
+    @Mock
+    private LinkCodeRepository linkCodeRepository;
+
+    @Mock
+    private LinkCodeScanRepository linkCodeScanRepository;
+
+    @InjectMocks
+    private LinkCodeBackfill linkCodeBackfill;
+
+    @Test
+    public void testFirstBackfillCoversEveryLink() {
+        // Given
+        when(linkCodeScanRepository.maxLinkId()).thenReturn(50_000L);
+        when(linkCodeRepository.findBackfillWatermark()).thenReturn(Optional.empty());
+
+        // When
+        linkCodeBackfill.backfill();
+
+        // Then
+        verify(linkCodeRepository).backfill(0L, 50_000L);
+        verify(linkCodeRepository).saveBackfillWatermark(50_000L);
+    }
+
+    @Test
+    public void testLaterBackfillsStartNearTheWatermark() {
+        // Given
+        when(linkCodeScanRepository.maxLinkId()).thenReturn(50_010L);
+        when(linkCodeRepository.findBackfillWatermark()).thenReturn(Optional.of(50_000L));
+
+        // When
+        linkCodeBackfill.backfill();
+
+        // Then
+        verify(linkCodeRepository).backfill(49_000L, 50_010L);
+        verify(linkCodeRepository).saveBackfillWatermark(50_010L);
+    }
+
+    @Test
+    public void testNothingToDoWithoutLinks() {
+        // Given
+        when(linkCodeScanRepository.maxLinkId()).thenReturn(0L);
+        when(linkCodeRepository.findBackfillWatermark()).thenReturn(Optional.empty());
+
+        // When
+        linkCodeBackfill.backfill();
+
+        // Then
+        verify(linkCodeRepository, never()).backfill(anyLong(), anyLong());
+    }
+}
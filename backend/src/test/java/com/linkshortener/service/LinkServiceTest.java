@@ -1,9 +1,13 @@
 package com.linkshortener.service;
 
 import com.linkshortener.dto.CreateLinkRequest;
+import com.linkshortener.dto.LinkRedirect;
 import com.linkshortener.dto.LinkResponse;
 import com.linkshortener.entity.Link;
+import com.linkshortener.entity.LinkCode;
 import com.linkshortener.entity.User;
+import com.linkshortener.repository.LinkCodeRepository;
+import com.linkshortener.repository.LinkDeletionRepository;
 import com.linkshortener.repository.LinkRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,10 +15,12 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -23,6 +29,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,7 +39,28 @@ public class LinkServiceTest {
     private LinkRepository linkRepository;
 
     @Mock
-    private QRCodeService qrCodeService;
+    private QRCodeGenerationService qrCodeGenerationService;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private ClickCounterService clickCounterService;
+
+    @Mock
+    private LinkCodeFilter linkCodeFilter;
+
+    @Mock
+    private ShortCodeGenerator shortCodeGenerator;
+
+    @Mock
+    private LinkCodeRepository linkCodeRepository;
+
+    @Mock
+    private LinkDeletionRepository linkDeletionRepository;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
 
     @InjectMocks
     private LinkService linkService;
@@ -63,10 +91,10 @@ public class LinkServiceTest {
         request.setOriginalUrl("https://example.com");
         request.setCustomAlias("custom");
 
-        when(linkRepository.existsByCustomAlias("custom")).thenReturn(false);
-        when(linkRepository.existsByShortCode(anyString())).thenReturn(false);
+        when(shortCodeGenerator.nextCode()).thenReturn("aB3dE9x");
+        when(linkCodeRepository.reserve("custom", 1L, LinkCode.Kind.ALIAS)).thenReturn(true);
+        when(linkCodeRepository.reserve("abc123", 1L, LinkCode.Kind.SHORT_CODE)).thenReturn(true);
         when(linkRepository.save(any(Link.class))).thenReturn(testLink);
-        when(qrCodeService.generateQRCode(anyString(), any(Long.class))).thenReturn("/qr/path");
 
         // When
         LinkResponse result = linkService.createLink(request, testUser);
@@ -77,26 +105,68 @@ public class LinkServiceTest {
         assertEquals("abc123", result.getShortCode());
         assertEquals(0L, result.getClickCount());
         assertNotNull(result.getCreatedAt());
+        assertNotNull(result.getQrCodeUrl());
 
-        verify(linkRepository, times(2)).save(any(Link.class)); // Once for initial save, once for QR code path
-        verify(qrCodeService, times(1)).generateQRCode(anyString(), any(Long.class));
+        verify(linkRepository, times(1)).save(any(Link.class)); // The QR code path is set by the background job
+        verify(qrCodeGenerationService, times(1)).scheduleAfterCommit(eq(1L), anyString());
+        verify(linkRepository, never()).existsByShortCode(anyString());
+        verify(linkRepository, never()).existsByCustomAlias(anyString());
     }
 
     @Test
-    public void testCreateLinkWithDuplicateAlias() {
+    public void testCreateLinkWithDuplicateAlias() throws Exception {
         // Given
         CreateLinkRequest request = new CreateLinkRequest();
         request.setOriginalUrl("https://example.com");
         request.setCustomAlias("custom");
         
-        when(linkRepository.existsByCustomAlias("custom")).thenReturn(true);
+        when(shortCodeGenerator.nextCode()).thenReturn("aB3dE9x");
+        when(linkRepository.save(any(Link.class))).thenReturn(testLink);
+        when(linkCodeRepository.reserve("custom", 1L, LinkCode.Kind.ALIAS)).thenReturn(false);
+
+        // When & Then: the insert is rolled back with the transaction
+        assertThrows(IllegalArgumentException.class, () -> {
+            linkService.createLink(request, testUser);
+        });
+
+        verify(linkCodeRepository, times(1)).reserve("custom", 1L, LinkCode.Kind.ALIAS);
+        verify(linkCodeRepository, never()).reserve(anyString(), any(), eq(LinkCode.Kind.SHORT_CODE));
+        verify(qrCodeGenerationService, never()).scheduleAfterCommit(any(), anyString());
+    }
+
+    @Test
+    public void testCreateLinkDrawsNewCodeWhenTakenByAlias() throws Exception {
+        // Given
+        CreateLinkRequest request = new CreateLinkRequest();
+        request.setOriginalUrl("https://example.com");
+
+        Link saved = new Link("https://example.com", "taken12");
+        saved.setId(1L);
+        when(shortCodeGenerator.nextCode()).thenReturn("taken12", "free345");
+        when(linkRepository.save(any(Link.class))).thenReturn(saved);
+        when(linkCodeRepository.reserve("taken12", 1L, LinkCode.Kind.SHORT_CODE)).thenReturn(false);
+        when(linkCodeRepository.reserve("free345", 1L, LinkCode.Kind.SHORT_CODE)).thenReturn(true);
+
+        // When
+        LinkResponse result = linkService.createLink(request, testUser);
+
+        // Then
+        assertEquals("free345", result.getShortCode());
+        verify(linkCodeFilter).add("free345");
+    }
+
+    @Test
+    public void testCreateLinkWithUnsupportedRedirectStatus() {
+        // Given
+        CreateLinkRequest request = new CreateLinkRequest();
+        request.setOriginalUrl("https://example.com");
+        request.setRedirectStatus(303);
 
         // When & Then
         assertThrows(IllegalArgumentException.class, () -> {
             linkService.createLink(request, testUser);
         });
 
-        verify(linkRepository, times(1)).existsByCustomAlias("custom");
         verify(linkRepository, never()).save(any(Link.class));
     }
 
@@ -169,58 +239,129 @@ public class LinkServiceTest {
         Long linkId = 1L;
         Long userId = 1L;
         when(linkRepository.findById(linkId)).thenReturn(Optional.of(testLink));
+        when(linkDeletionRepository.delete(linkId)).thenReturn(true);
 
         // When
         linkService.deleteLink(linkId, userId);
 
-        // Then
+        // Then: the link and its click data go in one locked path
         verify(linkRepository, times(1)).findById(linkId);
-        verify(linkRepository, times(1)).delete(testLink);
+        verify(linkDeletionRepository, times(1)).delete(linkId);
+        verify(linkRepository, never()).delete(any(Link.class));
     }
 
     @Test
-    public void testIncrementClickCount() {
+    public void testDeleteLinkOfAnotherUserDeletesNothing() {
         // Given
-        when(linkRepository.save(testLink)).thenReturn(testLink);
+        when(linkRepository.findById(1L)).thenReturn(Optional.of(testLink));
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> linkService.deleteLink(1L, 2L));
+        verify(linkDeletionRepository, never()).delete(anyLong());
+    }
 
+    @Test
+    public void testIncrementClickCount() {
         // When
         linkService.incrementClickCount(testLink);
 
         // Then
-        assertEquals(1L, testLink.getClickCount());
-        verify(linkRepository, times(1)).save(testLink);
+        verify(clickCounterService, times(1)).increment(1L);
+        verify(linkRepository, never()).save(any(Link.class));
+    }
+
+    @Test
+    public void testClickCountIncludesPendingDelta() {
+        // Given
+        testLink.setClickCount(10L);
+        when(clickCounterService.getPendingDelta(1L)).thenReturn(3L);
+
+        // When
+        long clickCount = linkService.getClickCount(testLink);
+
+        // Then
+        assertEquals(13L, clickCount);
     }
 
     @Test
     public void testFindByCode() {
         // Given
         String code = "abc123";
-        when(linkRepository.findByCustomAlias(code)).thenReturn(Optional.empty());
-        when(linkRepository.findByShortCode(code)).thenReturn(Optional.of(testLink));
+        LinkRedirect redirect = new LinkRedirect(1L, "https://example.com", true, null, false, null, null, null, null);
+        when(linkCodeFilter.mightContain(code)).thenReturn(true);
+        when(linkRepository.findRedirectByCode(code)).thenReturn(Optional.of(redirect));
 
         // When
-        Optional<Link> result = linkService.findByCode(code);
+        Optional<LinkRedirect> result = linkService.findByCode(code);
 
         // Then
         assertTrue(result.isPresent());
-        assertEquals(testLink, result.get());
-        verify(linkRepository, times(1)).findByCustomAlias(code);
-        verify(linkRepository, times(1)).findByShortCode(code);
+        assertEquals("https://example.com", result.get().originalUrl());
+        verify(linkRepository, times(1)).findRedirectByCode(code);
+        verify(linkRepository, never()).findByCustomAlias(code);
+        verify(linkRepository, never()).findByShortCode(code);
     }
 
     @Test
     public void testFindByCodeWithExpiredLink() {
         // Given
         String code = "abc123";
-        testLink.setExpiresAt(LocalDateTime.now().minusDays(1)); // Expired
-        
-        when(linkRepository.findByCustomAlias(code)).thenReturn(Optional.empty());
-        when(linkRepository.findByShortCode(code)).thenReturn(Optional.of(testLink));
+        LinkRedirect expired = new LinkRedirect(1L, "https://example.com", true,
+                LocalDateTime.now().minusDays(1), false, null, null, null, null);
+        when(linkCodeFilter.mightContain(code)).thenReturn(true);
+        when(linkRepository.findRedirectByCode(code)).thenReturn(Optional.of(expired));
 
         // When
-        Optional<Link> result = linkService.findByCode(code);
+        Optional<LinkRedirect> result = linkService.findByCode(code);
 
         // Then
         assertFalse(result.isPresent());
     }
+
+    @Test
+    public void testFindByCodeSkipsDatabaseForUnknownCode() {
+        // Given
+        String code = "nope42";
+        when(linkCodeFilter.mightContain(code)).thenReturn(false);
+
+        // When
+        Optional<LinkRedirect> result = linkService.findByCode(code);
+
+        // Then
+        assertFalse(result.isPresent());
+        verify(linkRepository, never()).findRedirectByCode(code);
+    }
+
+    @Test
+    public void testVerifyLinkPasswordLoadsTheHash() {
+        // Given: the cached redirect only carries a stamp of the hash
+        LinkRedirect redirect = new LinkRedirect(1L, "https://example.com", true, null,
+                null, null, null, "$2a$10$hash");
+        when(linkRepository.findPasswordHashById(1L)).thenReturn(Optional.of("$2a$10$hash"));
+        when(passwordEncoder.matches("secret", "$2a$10$hash")).thenReturn(true);
+
+        // When / Then
+        assertTrue(redirect.requiresPassword());
+        assertNotEquals("$2a$10$hash", redirect.passwordStamp());
+        assertTrue(linkService.verifyLinkPassword(redirect, "secret"));
+        assertFalse(linkService.verifyLinkPassword(redirect, "wrong"));
+        assertFalse(linkService.verifyLinkPassword(redirect, null));
+    }
+
+    @Test
+    public void testFindByCodeFallsBackToLinksNotRegisteredYet() {
+        // Given: created by a node that does not write link_codes
+        String code = "old123";
+        LinkRedirect redirect = new LinkRedirect(1L, "https://example.com", true, null, false, null, null, null, null);
+        when(linkCodeFilter.mightContain(code)).thenReturn(true);
+        when(linkRepository.findRedirectByCode(code)).thenReturn(Optional.empty());
+        when(linkRepository.findRedirectsByLinkColumns(code)).thenReturn(List.of(redirect));
+
+        // When
+        Optional<LinkRedirect> result = linkService.findByCode(code);
+
+        // Then
+        assertTrue(result.isPresent());
+        verify(linkCodeFilter, never()).recordFalsePositive();
+    }
 }
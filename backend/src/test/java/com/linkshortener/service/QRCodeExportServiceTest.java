@@ -0,0 +1,127 @@
+package com.linkshortener.service;
+
+import com.linkshortener.entity.Link;
+import com.linkshortener.entity.User;
+import com.linkshortener.repository.LinkRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class QRCodeExportServiceTest {
+
+    private QRCodeExportService service;
+    private LinkRepository linkRepository;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        service = new QRCodeExportService();
+        linkRepository = mock(LinkRepository.class);
+        QRCodeService qrCodeService = mock(QRCodeService.class);
+        LinkService linkService = mock(LinkService.class);
+        when(qrCodeService.renderQRCode(anyString(), anyInt(), any())).thenReturn(new byte[] {1, 2, 3});
+        when(linkService.buildShortUrl(any(Link.class))).thenAnswer(invocation ->
+                "http://localhost/" + invocation.<Link>getArgument(0).getShortCode());
+
+        ReflectionTestUtils.setField(service, "qrCodeService", qrCodeService);
+        ReflectionTestUtils.setField(service, "linkRepository", linkRepository);
+        ReflectionTestUtils.setField(service, "linkService", linkService);
+        ReflectionTestUtils.setField(service, "parallelism", 2);
+        ReflectionTestUtils.setField(service, "maxLinks", 100);
+        service.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    public void testListedLinksAreScopedToTheCaller() throws IOException {
+        // Given: link 2 belongs to someone else, so the scoped query leaves it out
+        when(linkRepository.findAllByIdOrdered(List.of(1L, 2L), 7L, false)).thenReturn(List.of(link(1L, 7L)));
+
+        // When
+        Archive archive = export(List.of(2L, 1L), 7L, false);
+
+        // Then: the other user's link is indistinguishable from a missing one
+        assertEquals(List.of("abc1.png", "manifest.csv"), archive.entries);
+        assertEquals(List.of(
+                "link_id,code,short_url,original_url,status",
+                "1,abc1,http://localhost/abc1,\"https://example.com/1\",ok",
+                "2,,,,not_found"), archive.manifest);
+    }
+
+    @Test
+    public void testAnonymousManifestLeavesOutOriginalUrls() throws IOException {
+        // Given
+        when(linkRepository.findAllByIdOrdered(List.of(1L), null, true)).thenReturn(List.of(link(1L, 7L)));
+
+        // When
+        Archive archive = export(List.of(1L), null, true);
+
+        // Then
+        assertEquals("1,abc1,http://localhost/abc1,,ok", archive.manifest.get(1));
+    }
+
+    @Test
+    public void testExportByOwnerPassesTheScope() throws IOException {
+        // Given
+        when(linkRepository.findExportPage(eq(7L), eq(true), eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(link(1L, 7L), link(2L, 7L)));
+
+        // When
+        Archive archive = export(List.of(), 7L, true);
+
+        // Then
+        assertEquals(List.of("abc1.png", "abc2.png", "manifest.csv"), archive.entries);
+        verify(linkRepository).findExportPage(eq(7L), eq(true), eq(2L), any(Pageable.class));
+        verify(linkRepository, never()).findAllByIdOrdered(any(), any(), anyBoolean());
+    }
+
+    private Archive export(List<Long> ids, Long userId, boolean activeOnly) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.export(ids, userId, activeOnly, 200, QRCodeService.Format.PNG, out);
+        Archive archive = new Archive();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                archive.entries.add(entry.getName());
+                if (entry.getName().equals("manifest.csv")) {
+                    archive.manifest = List.of(new String(zip.readAllBytes(), StandardCharsets.UTF_8).split("\n"));
+                }
+            }
+        }
+        return archive;
+    }
+
+    private static Link link(Long id, Long ownerId) {
+        User owner = new User();
+        owner.setId(ownerId);
+        Link link = new Link();
+        link.setId(id);
+        link.setShortCode("abc" + id);
+        link.setOriginalUrl("https://example.com/" + id);
+        link.setUser(owner);
+        return link;
+    }
+
+    private static final class Archive {
+        final List<String> entries = new ArrayList<>();
+        List<String> manifest;
+    }
+}
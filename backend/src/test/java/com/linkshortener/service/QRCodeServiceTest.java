@@ -0,0 +1,45 @@
+package com.linkshortener.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QRCodeServiceTest {
+
+    private QRCodeService qrCodeService;
+
+    @BeforeEach
+    void setUp() {
+        qrCodeService = new QRCodeService();
+        ReflectionTestUtils.setField(qrCodeService, "qrCodeSize", 300);
+    }
+
+    @Test
+    public void testRenderingIsDeterministic() throws Exception {
+        // When
+        byte[] first = qrCodeService.renderQRCode("https://sho.rt/abc1234", 256, QRCodeService.Format.PNG);
+        byte[] second = qrCodeService.renderQRCode("https://sho.rt/abc1234", 256, QRCodeService.Format.PNG);
+        byte[] other = qrCodeService.renderQRCode("https://sho.rt/abc1235", 256, QRCodeService.Format.PNG);
+
+        // Then: same input, same bytes, which is what makes key-derived strong ETags valid
+        assertArrayEquals(first, second);
+        assertFalse(Arrays.equals(first, other));
+    }
+
+    @Test
+    public void testRenderSvg() throws Exception {
+        // When
+        String svg = new String(qrCodeService.renderQRCode("https://sho.rt/abc1234", 512, QRCodeService.Format.SVG),
+                StandardCharsets.UTF_8);
+
+        // Then
+        assertTrue(svg.contains("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"512\" height=\"512\""));
+        assertTrue(svg.contains("<path fill=\"#000000\" d=\"M"));
+        assertTrue(svg.trim().endsWith("</svg>"));
+    }
+}
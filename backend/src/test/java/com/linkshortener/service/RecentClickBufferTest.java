@@ -0,0 +1,140 @@
+package com.linkshortener.service;
+
+import com.linkshortener.dto.RecentClickStats;
+import com.linkshortener.entity.Click;
+import com.linkshortener.entity.Link;
+import com.linkshortener.repository.ClickRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class RecentClickBufferTest {
+
+    private RecentClickBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new RecentClickBuffer();
+        ReflectionTestUtils.setField(buffer, "enabled", true);
+        ReflectionTestUtils.setField(buffer, "capacity", 4);
+        ReflectionTestUtils.setField(buffer, "window", Duration.ofHours(24));
+        buffer.init();
+        // As after the startup load of an empty clicks table
+        ReflectionTestUtils.setField(buffer, "coveredFrom", Long.MIN_VALUE);
+        ReflectionTestUtils.setField(buffer, "live", true);
+    }
+
+    @Test
+    public void testQueryCountsOnlyTheLinksAndRange() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        buffer.append(List.of(
+                click(1L, "FR", "Chrome", true, now.minusMinutes(50)),
+                click(1L, "FR", "Firefox", false, now.minusMinutes(5)),
+                click(2L, "US", "Chrome", false, now.minusMinutes(4)),
+                click(1L, "DE", "Chrome", false, now.minusMinutes(3))));
+
+        // When
+        RecentClickStats stats = buffer.query(new long[] {1L}, now.minusMinutes(10), Duration.ofMinutes(1));
+
+        // Then
+        assertEquals("memory", stats.getSource());
+        assertEquals(2, stats.getTotalClicks());
+        assertEquals(0, stats.getBotClicks());
+        assertEquals(1, stats.getTimeline().get(5).getClicks());
+        assertEquals(2, stats.getTimeline().stream().mapToLong(RecentClickStats.TimelinePoint::getClicks).sum());
+        assertEquals(List.of("FR", "DE"), new ArrayList<>(stats.getClicksByCountry().keySet()));
+        assertEquals(2, stats.getClicksByBrowser().size());
+    }
+
+    @Test
+    public void testRangeReachingPastOverwrittenClicksIsNotAnswered() {
+        // Given: one more click than the buffer holds
+        LocalDateTime now = LocalDateTime.now();
+        List<Click> clicks = new ArrayList<>();
+        for (int i = 5; i > 0; i--) {
+            clicks.add(click(1L, "FR", "Chrome", false, now.minusMinutes(i)));
+        }
+        buffer.append(clicks);
+
+        // When / Then: the click of five minutes ago is gone, four minutes ago is complete
+        assertNull(buffer.query(new long[] {1L}, now.minusMinutes(6), Duration.ofMinutes(1)));
+        assertEquals(4, buffer.query(new long[] {1L}, now.minusMinutes(4), Duration.ofMinutes(1)).getTotalClicks());
+        assertEquals(4, buffer.size());
+    }
+
+    @Test
+    public void testLoadPausesIngestionOnlyForTheClicksCommittedMeanwhile() throws InterruptedException {
+        // Given: two clicks committed before the load starts, one while it reads them
+        RecentClickBuffer loading = new RecentClickBuffer();
+        ReflectionTestUtils.setField(loading, "enabled", true);
+        ReflectionTestUtils.setField(loading, "capacity", 4);
+        ReflectionTestUtils.setField(loading, "window", Duration.ofHours(24));
+        loading.init();
+        ReentrantReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+        ClickRollupService clickRollupService = mock(ClickRollupService.class);
+        when(clickRollupService.exclusiveLock()).thenReturn(rebuildLock.writeLock());
+        ClickRollupRepository clickRollupRepository = mock(ClickRollupRepository.class);
+        when(clickRollupRepository.maxClickId()).thenReturn(2L);
+        LocalDateTime now = LocalDateTime.now();
+        Click committedMeanwhile = click(2L, "US", "Safari", false, now.minusMinutes(1));
+        List<Boolean> ingestionPaused = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            ingestionPaused.add(rebuildLock.isWriteLocked());
+            Consumer<Click> consumer = invocation.getArgument(3);
+            if (invocation.<Long>getArgument(1) == 0L) {
+                loading.append(List.of(committedMeanwhile));
+                consumer.accept(click(1L, "FR", "Chrome", false, now.minusMinutes(10)));
+                consumer.accept(click(1L, "FR", "Chrome", false, now.minusMinutes(9)));
+            } else {
+                consumer.accept(committedMeanwhile);
+            }
+            return null;
+        }).when(clickRollupRepository).forEachClickSince(any(), anyLong(), anyLong(), any());
+        ReflectionTestUtils.setField(loading, "clickRollupService", clickRollupService);
+        ReflectionTestUtils.setField(loading, "clickRollupRepository", clickRollupRepository);
+
+        // When
+        loading.load();
+        long deadline = System.currentTimeMillis() + 2000;
+        while (loading.query(new long[] {1L, 2L}, now.minusMinutes(30), Duration.ofHours(1)) == null
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // Then: the bulk is read unlocked, the tail with ingestion paused, and each click once
+        verify(clickRollupRepository).forEachClickSince(any(), eq(0L), eq(2L), any());
+        verify(clickRollupRepository).forEachClickSince(any(), eq(2L), eq(Long.MAX_VALUE), any());
+        assertEquals(List.of(false, true), ingestionPaused);
+        assertEquals(3, loading.query(new long[] {1L, 2L}, now.minusMinutes(30), Duration.ofHours(1)).getTotalClicks());
+        loading.append(List.of(click(2L, "US", "Safari", false, now)));
+        assertEquals(4, loading.size());
+    }
+
+    private static Click click(long linkId, String country, String browser, boolean bot, LocalDateTime clickedAt) {
+        Link link = new Link();
+        link.setId(linkId);
+        Click click = new Click();
+        click.setLink(link);
+        click.setCountryCode(country);
+        click.setBrowser(browser);
+        click.setIsBot(bot);
+        click.setIsMobile(false);
+        click.setClickedAt(clickedAt);
+        return click;
+    }
+}
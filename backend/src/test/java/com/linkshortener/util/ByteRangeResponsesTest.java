@@ -0,0 +1,92 @@
+package com.linkshortener.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+public class ByteRangeResponsesTest {
+
+    private static final String BODY = "0123456789";
+    private static final String ETAG = "\"abc\"";
+
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new BodyController()).build();
+
+    @RestController
+    static class BodyController {
+
+        @GetMapping("/body")
+        ResponseEntity<?> body(HttpServletRequest request) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.IMAGE_PNG);
+            return ByteRangeResponses.of(BODY.getBytes(), headers, ETAG, request);
+        }
+    }
+
+    @Test
+    public void testNoRangeGetsTheWholeBody() throws Exception {
+        mockMvc.perform(get("/body"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 10))
+                .andExpect(content().string(BODY));
+    }
+
+    @Test
+    public void testSingleRange() throws Exception {
+        mockMvc.perform(get("/body").header(HttpHeaders.RANGE, "bytes=2-4"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-4/10"))
+                .andExpect(content().contentType(MediaType.IMAGE_PNG))
+                .andExpect(content().string("234"));
+    }
+
+    @Test
+    public void testSuffixRangeIsClampedToTheBody() throws Exception {
+        mockMvc.perform(get("/body").header(HttpHeaders.RANGE, "bytes=-20"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-9/10"))
+                .andExpect(content().string(BODY));
+    }
+
+    @Test
+    public void testMultipleRanges() throws Exception {
+        mockMvc.perform(get("/body").header(HttpHeaders.RANGE, "bytes=0-1, 5-6"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, startsWith("multipart/byteranges")));
+    }
+
+    @Test
+    public void testRangeBeyondTheBodyIsNotSatisfiable() throws Exception {
+        mockMvc.perform(get("/body").header(HttpHeaders.RANGE, "bytes=10-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    public void testMalformedRangeGetsTheWholeBody() throws Exception {
+        mockMvc.perform(get("/body").header(HttpHeaders.RANGE, "bytes=5-2"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(BODY));
+    }
+
+    @Test
+    public void testStaleIfRangeGetsTheWholeBody() throws Exception {
+        mockMvc.perform(get("/body").header(HttpHeaders.RANGE, "bytes=2-4").header(HttpHeaders.IF_RANGE, "\"old\""))
+                .andExpect(status().isOk())
+                .andExpect(content().string(BODY));
+        mockMvc.perform(get("/body").header(HttpHeaders.RANGE, "bytes=2-4").header(HttpHeaders.IF_RANGE, ETAG))
+                .andExpect(status().isPartialContent());
+    }
+}
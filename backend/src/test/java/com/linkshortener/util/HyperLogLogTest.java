@@ -0,0 +1,60 @@
+package com.linkshortener.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HyperLogLogTest {
+
+    @Test
+    public void testEstimateWithinExpectedError() {
+        // Given
+        HyperLogLog sketch = new HyperLogLog();
+
+        // When: every value added three times
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 100_000; i++) {
+                sketch.add("10.0." + (i >> 8) + "." + (i & 0xff) + "/" + i);
+            }
+        }
+
+        // Then: standard error is ~1.6% at precision 12, allow four of them
+        assertEquals(100_000, sketch.estimate(), 100_000 * 0.065);
+    }
+
+    @Test
+    public void testMergeEstimatesUnion() {
+        // Given: two days sharing half their visitors
+        HyperLogLog monday = new HyperLogLog();
+        HyperLogLog tuesday = new HyperLogLog();
+        for (int i = 0; i < 20_000; i++) {
+            monday.add("visitor-" + i);
+            tuesday.add("visitor-" + (i + 10_000));
+        }
+
+        // When
+        HyperLogLog both = HyperLogLog.fromBytes(monday.toBytes()).merge(HyperLogLog.fromBytes(tuesday.toBytes()));
+
+        // Then
+        assertEquals(30_000, both.estimate(), 30_000 * 0.065);
+    }
+
+    @Test
+    public void testSparseEncodingRoundTrip() {
+        // Given
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 50; i++) {
+            sketch.add("192.168.1." + i);
+        }
+
+        // When
+        byte[] bytes = sketch.toBytes();
+        HyperLogLog copy = HyperLogLog.fromBytes(bytes);
+
+        // Then: a few dozen visitors take a few hundred bytes, not one per register
+        assertTrue(bytes.length < 200);
+        assertEquals(sketch.estimate(), copy.estimate());
+        assertEquals(50, copy.estimate(), 3);
+        assertTrue(new HyperLogLog().isEmpty());
+    }
+}
@@ -0,0 +1,42 @@
+package com.linkshortener.util;
+
+import org.junit.jupiter.api.Test;
+
+import static com.linkshortener.util.ReferrerNormalizer.Granularity.HOST;
+import static com.linkshortener.util.ReferrerNormalizer.Granularity.PATH;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReferrerNormalizerTest {
+
+    @Test
+    public void testHostDropsWwwCaseQueryAndFragment() {
+        // When / Then
+        assertEquals("example.com", ReferrerNormalizer.normalize("https://WWW.Example.com/a/b?utm_source=x#top", HOST));
+        assertEquals("news.example.com", ReferrerNormalizer.normalize("http://news.example.com", HOST));
+    }
+
+    @Test
+    public void testPathKeepsThePathWithoutTrailingSlash() {
+        // When / Then
+        assertEquals("example.com/blog/post", ReferrerNormalizer.normalize("https://www.example.com/blog/post/?id=1", PATH));
+        assertEquals("example.com", ReferrerNormalizer.normalize("https://example.com/", PATH));
+    }
+
+    @Test
+    public void testValuesThatAreNotUrisStillYieldAHost() {
+        // When / Then: spaces make them invalid URIs, and some values have no scheme
+        assertEquals("example.com", ReferrerNormalizer.normalize("https://example.com/a b", HOST));
+        assertEquals("example.com/a b", ReferrerNormalizer.normalize("https://example.com/a b", PATH));
+        assertEquals("com.example.app", ReferrerNormalizer.normalize("android-app://com.example.app", HOST));
+        assertEquals("com.example.app", ReferrerNormalizer.normalize("com.example.app/feed", HOST));
+    }
+
+    @Test
+    public void testNothingToCountIsNull() {
+        // When / Then
+        assertNull(ReferrerNormalizer.normalize(null, HOST));
+        assertNull(ReferrerNormalizer.normalize("  ", HOST));
+        assertNull(ReferrerNormalizer.normalize("?utm_source=x", HOST));
+        assertNull(ReferrerNormalizer.normalize("https://www./path", PATH));
+    }
+}
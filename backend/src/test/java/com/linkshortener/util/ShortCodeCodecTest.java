@@ -0,0 +1,57 @@
+package com.linkshortener.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShortCodeCodecTest {
+
+    @Test
+    public void testScrambledCodesArePermutationOfTheWholeSpace() {
+        // Given
+        ShortCodeCodec codec = new ShortCodeCodec(4, "test-key", true);
+        Set<String> codes = new HashSet<>();
+
+        // When
+        for (long id = 0; id < 62 * 62 * 62; id++) {
+            codes.add(codec.encode(id));
+        }
+
+        // Then
+        assertEquals(62 * 62 * 62, codes.size());
+        for (String code : codes) {
+            assertEquals(4, code.length());
+        }
+    }
+
+    @Test
+    public void testEncodeDecodeRoundTrip() {
+        // Given
+        ShortCodeCodec scrambled = new ShortCodeCodec(7, "test-key", true);
+        ShortCodeCodec plain = new ShortCodeCodec(7, "test-key", false);
+
+        // Then
+        for (long id : new long[] {0, 1, 2, 61, 62, 123456789, scrambled.getCapacity() - 1}) {
+            String code = scrambled.encode(id);
+            assertEquals(7, code.length());
+            assertEquals(id, scrambled.decode(code));
+            assertEquals(id, plain.decode(plain.encode(id)));
+        }
+        assertEquals("1z", plain.encode(123));
+    }
+
+    @Test
+    public void testConsecutiveIdsAreNotConsecutiveCodes() {
+        // Given
+        ShortCodeCodec codec = new ShortCodeCodec(7, "test-key", true);
+        ShortCodeCodec otherKey = new ShortCodeCodec(7, "other-key", true);
+
+        // Then
+        assertNotEquals(codec.encode(1000).substring(0, 6), codec.encode(1001).substring(0, 6));
+        assertNotEquals(codec.encode(1000), otherKey.encode(1000));
+        assertThrows(IllegalArgumentException.class, () -> codec.encode(codec.getCapacity()));
+    }
+}
@@ -0,0 +1,58 @@
+package com.linkshortener.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpaceSavingTest {
+
+    @Test
+    public void testHeavyHittersSurviveLongTail() {
+        // Given: three heavy referrers among 5,000 that appear once
+        SpaceSaving summary = new SpaceSaving(32);
+
+        // When: interleaved so the tail keeps evicting
+        for (int i = 0; i < 5_000; i++) {
+            summary.add("tail-" + i + ".example", null);
+            if (i % 5 == 0) summary.add("twitter.com", null);
+            if (i % 10 == 0) summary.add("google.com", null);
+            if (i % 20 == 0) summary.add("news.ycombinator.com", null);
+        }
+
+        // Then: found in order, each count at most total/capacity too high, never too low
+        List<SpaceSaving.Entry> top = summary.top(3);
+        assertEquals(List.of("twitter.com", "google.com", "news.ycombinator.com"),
+                top.stream().map(SpaceSaving.Entry::value).toList());
+        long bound = summary.getTotal() / summary.getCapacity();
+        long[] exact = {1_000, 500, 250};
+        for (int i = 0; i < 3; i++) {
+            assertTrue(top.get(i).count() >= exact[i]);
+            assertTrue(top.get(i).count() - top.get(i).error() <= exact[i]);
+            assertTrue(top.get(i).error() <= bound);
+        }
+        assertEquals(32, summary.size());
+    }
+
+    @Test
+    public void testMergeAndRoundTrip() {
+        // Given: two days with different leaders
+        SpaceSaving monday = new SpaceSaving(4);
+        SpaceSaving tuesday = new SpaceSaving(4);
+        monday.add("Paris", "FR", 50);
+        monday.add("Berlin", "DE", 10);
+        tuesday.add("Berlin", "DE", 70);
+        tuesday.add("Tokyo", "JP", 5);
+
+        // When
+        SpaceSaving both = SpaceSaving.fromBytes(monday.toBytes()).merge(SpaceSaving.fromBytes(tuesday.toBytes()));
+
+        // Then: neither was full, so the merged counts are exact
+        List<SpaceSaving.Entry> top = both.top(10);
+        assertEquals(new SpaceSaving.Entry("Berlin", "DE", 80, 0), top.get(0));
+        assertEquals(new SpaceSaving.Entry("Paris", "FR", 50, 0), top.get(1));
+        assertEquals(new SpaceSaving.Entry("Tokyo", "JP", 5, 0), top.get(2));
+        assertEquals(135, both.getTotal());
+    }
+}
@@ -27,5 +27,16 @@ export const useDashboard = () => {
     fetchStats()
   }, [])
 
+  // Deltas pushed by the server keep the counters current without polling
+  useEffect(() => {
+    return dashboardService.streamClicks((delta) => {
+      setStats((current) => current && {
+        ...current,
+        totalClicks: (current.totalClicks || 0) + delta.clicks,
+        clicksToday: (current.clicksToday || 0) + delta.clicks,
+      })
+    }, fetchStats)
+  }, [])
+
   return { stats, loading, error, refetch: fetchStats }
 }
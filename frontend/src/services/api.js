@@ -107,10 +107,17 @@ export const linkService = {
     return response.data
   },
 
-  // Bulk create links
+  // Bulk create links: NDJSON in, one result per line out
   bulkCreateLinks: async (links) => {
-    const response = await api.post('/links/bulk', links)
+    const body = links.map((link) => JSON.stringify(link)).join('\n')
+    const response = await api.post('/links/bulk', body, {
+      headers: { 'Content-Type': 'application/x-ndjson' },
+      responseType: 'text',
+    })
     return response.data
+      .split('\n')
+      .filter((line) => line.trim())
+      .map((line) => JSON.parse(line))
   },
 }
 
@@ -120,6 +127,24 @@ export const dashboardService = {
     const response = await api.get('/dashboard/stats')
     return response.data
   },
+
+  // Live click deltas (Server-Sent Events); returns a function that closes the stream.
+  // Deltas missed while disconnected are not replayed: onReconnect should reload the stats.
+  streamClicks: (onClicks, onReconnect) => {
+    if (typeof EventSource === 'undefined') {
+      return () => {}
+    }
+    const source = new EventSource(`${API_BASE_URL}/dashboard/stream`)
+    let opened = false
+    source.onopen = () => {
+      if (opened && onReconnect) {
+        onReconnect()
+      }
+      opened = true
+    }
+    source.addEventListener('clicks', (event) => onClicks(JSON.parse(event.data)))
+    return () => source.close()
+  },
 }
 
 export const qrService = {